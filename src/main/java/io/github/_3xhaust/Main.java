@@ -1,56 +1,150 @@
 package io.github._3xhaust;
 
+import io.github._3xhaust.ast.Program;
+import io.github._3xhaust.compiler.CompiledProgram;
+import io.github._3xhaust.compiler.Compiler;
 import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.interpreter.Interpreter;
+import io.github._3xhaust.jit.JitRuntime;
 import io.github._3xhaust.parser.Parser;
 import io.github._3xhaust.lexer.Lexer;
+import io.github._3xhaust.lexer.MappedSource;
+import io.github._3xhaust.resolver.Resolver;
+import io.github._3xhaust.runtime.MemoCache;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.vm.VirtualMachine;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 
 /**
  * The main class for the EzyLang interpreter.
+ * <p>
+ * Programs run on a thread of their own with a large stack, as the interpreter and the JIT
+ * recurse on the Java stack for every call that is not a tail call.
  */
 public class Main {
+    private static final long DEFAULT_STACK_SIZE = 512L << 20;
+
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java -jar ezylang-<version>.jar <source file>");
+        String engine = "interpreter";
+        NumericMode numericMode = NumericMode.EXACT;
+        String fileName = null;
+        boolean memoStats = false;
+        long stackSize = DEFAULT_STACK_SIZE;
+        for (String arg : args) {
+            if (arg.equals("--memo-stats")) {
+                memoStats = true;
+            } else if (arg.startsWith("--stack-size=")) {
+                stackSize = parseSize(arg.substring("--stack-size=".length()));
+            } else if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--numeric=")) {
+                numericMode = NumericMode.fromName(arg.substring("--numeric=".length()));
+            } else if (fileName == null && !arg.startsWith("--")) {
+                fileName = arg;
+            } else {
+                fileName = null;
+                break;
+            }
+        }
+        if (fileName == null || numericMode == null || stackSize <= 0 ||
+                !(engine.equals("interpreter") || engine.equals("vm") || engine.equals("jit"))) {
+            System.out.println("Usage: java -jar ezylang-<version>.jar [--engine=interpreter|vm|jit] " +
+                    "[--numeric=exact|decimal128|double] [--memo-stats] [--stack-size=<size>[k|m|g]] <source file>");
             System.exit(1);
         }
 
-        String fileName = args[0];
-        try {
-            if (!fileName.endsWith(".ezy")) throw new IOException("Invalid file extension: Must be '.ezy'");
-
-            String input = readFile(fileName);
-            Lexer lexer = new Lexer(input);
-            var tokens = lexer.tokenize(); // Use var for type inference
-
-            Parser parser = new Parser(tokens, fileName, input);
-            parser.parse();
-
-        } catch (IOException | ParseException e) {
-            System.err.println(e.getMessage()); // Print the formatted error
+        String selectedEngine = engine;
+        NumericMode mode = numericMode;
+        String file = fileName;
+        boolean printMemoStats = memoStats;
+        Thread worker = new Thread(null, () -> run(selectedEngine, mode, file, printMemoStats), "ezylang", stackSize);
+        // An unexpected error still fails the process, as it would on the main thread
+        worker.setUncaughtExceptionHandler((thread, e) -> {
+            e.printStackTrace();
             System.exit(1);
+        });
+        worker.start();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Reads the content of a file and returns it as a string.
+     * Parses a size in bytes, optionally followed by k, m or g.
      *
-     * @param fileName The path to the file to read.
-     * @return The content of the file as a string.
-     * @throws IOException If an error occurs during file reading.
+     * @return The size, or -1 if it is not valid.
      */
-    private static String readFile(String fileName) throws IOException {
-        StringBuilder input = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                input.append(line).append("\n");
+    private static long parseSize(String text) {
+        long unit = 1;
+        String digits = text;
+        if (!text.isEmpty()) {
+            switch (Character.toLowerCase(text.charAt(text.length() - 1))) {
+                case 'k' -> unit = 1L << 10;
+                case 'm' -> unit = 1L << 20;
+                case 'g' -> unit = 1L << 30;
+                default -> {
+                }
             }
+            if (unit > 1) digits = text.substring(0, text.length() - 1);
+        }
+        try {
+            long size = Long.parseLong(digits);
+            return size > 0 && size <= Long.MAX_VALUE / unit ? size * unit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void run(String engine, NumericMode numericMode, String fileName, boolean memoStats) {
+        try {
+            if (!fileName.endsWith(".ezy")) throw new IOException("Invalid file extension: Must be '.ezy'");
+
+            CharSequence input = MappedSource.read(fileName);
+            Lexer lexer = new Lexer(input);
+            // Large inputs are read in parallel when there are cores to do it; others as the parser asks for tokens
+            boolean parallel = input.length() >= 4 * Lexer.PARALLEL_CHUNK_SIZE
+                    && Runtime.getRuntime().availableProcessors() > 1;
+            var tokens = parallel ? lexer.scanParallel() : lexer.stream(); // Use var for type inference
+
+            Parser parser = new Parser(tokens, fileName, input, numericMode);
+            Program program = parser.parse();
+            new Resolver(fileName, input).resolve(program);
+
+            Collection<MemoCache> memoCaches;
+            if (engine.equals("vm")) {
+                CompiledProgram compiled = new Compiler(program, fileName, input).compile();
+                VirtualMachine vm = new VirtualMachine(compiled, fileName, input);
+                vm.run();
+                memoCaches = vm.getMemoCaches();
+            } else if (engine.equals("jit")) {
+                CompiledProgram compiled = new Compiler(program, fileName, input).compile();
+                JitRuntime jit = new JitRuntime(compiled, fileName, input);
+                jit.run();
+                memoCaches = jit.getMemoCaches();
+            } else {
+                Interpreter interpreter = new Interpreter(program, fileName, input);
+                interpreter.interpret();
+                memoCaches = interpreter.getMemoCaches();
+            }
+            if (memoStats) {
+                for (MemoCache cache : memoCaches) {
+                    System.err.println("memo " + cache.getStatistics());
+                }
+            }
+
+        } catch (ParseException e) {
+            System.err.println(e.getFormattedMessage()); // Print the formatted error
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (StackOverflowError e) {
+            System.err.println("Stack overflow: the recursion is too deep; use a larger --stack-size");
+            System.exit(1);
         }
-        return input.toString();
     }
-}
\ No newline at end of file
+}
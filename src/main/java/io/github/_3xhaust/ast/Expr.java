@@ -0,0 +1,309 @@
+package io.github._3xhaust.ast;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.MethodCache;
+import io.github._3xhaust.token.Token;
+
+import java.util.List;
+
+/**
+ * Base class for all expression nodes of the abstract syntax tree.
+ * Nodes are immutable once built by the parser; every node keeps the token it was parsed from
+ * so that runtime errors can still point at the original source location.
+ */
+public abstract class Expr {
+
+    /**
+     * Visitor over expression nodes.
+     *
+     * @param <R> The result type of the visit.
+     */
+    public interface Visitor<R> {
+        R visitLiteral(Literal expr) throws ParseException;
+
+        R visitInterpolation(Interpolation expr) throws ParseException;
+
+        R visitVariable(Variable expr) throws ParseException;
+
+        R visitArrayLiteral(ArrayLiteral expr) throws ParseException;
+
+        R visitIndex(Index expr) throws ParseException;
+
+        R visitCall(Call expr) throws ParseException;
+
+        R visitMethodCall(MethodCall expr) throws ParseException;
+
+        R visitBinary(Binary expr) throws ParseException;
+
+        R visitLogical(Logical expr) throws ParseException;
+
+        R visitUnary(Unary expr) throws ParseException;
+
+        R visitTypeCheck(TypeCheck expr) throws ParseException;
+
+        R visitCast(Cast expr) throws ParseException;
+    }
+
+    public final Token token; // Token used to report errors for this node
+
+    protected Expr(Token token) {
+        this.token = token;
+    }
+
+    public abstract <R> R accept(Visitor<R> visitor) throws ParseException;
+
+    /**
+     * A literal value (number, string, boolean, char or null).
+     */
+    public static final class Literal extends Expr {
+        public final Object value;
+
+        public Literal(Token token, Object value) {
+            super(token);
+            this.value = value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitLiteral(this);
+        }
+    }
+
+    /**
+     * A string literal containing ${variable} parts, e.g. "Hello, ${name}!".
+     */
+    public static final class Interpolation extends Expr {
+        public final List<Expr> parts;
+
+        public Interpolation(Token token, List<Expr> parts) {
+            super(token);
+            this.parts = List.copyOf(parts);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitInterpolation(this);
+        }
+    }
+
+    /**
+     * A reference to a variable or constant.
+     */
+    public static final class Variable extends Expr {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        // Address of the variable, assigned by the resolver
+        public int depth;
+        public int slot;
+
+        public Variable(Token token, String name, int symbol) {
+            super(token);
+            this.name = name;
+            this.symbol = symbol;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitVariable(this);
+        }
+    }
+
+    /**
+     * An array literal such as [1, 2, 3] or [[1, 2], [3, 4]].
+     */
+    public static final class ArrayLiteral extends Expr {
+        public final List<Expr> elements;
+
+        public ArrayLiteral(Token token, List<Expr> elements) {
+            super(token);
+            this.elements = List.copyOf(elements);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitArrayLiteral(this);
+        }
+    }
+
+    /**
+     * An array element access with one or more indices, e.g. arr[i] or matrix[i][j].
+     */
+    public static final class Index extends Expr {
+        public final Expr target;
+        public final List<Expr> indices;
+        public boolean inBounds; // Set by the resolver when the only index is proven within the array's bounds
+
+        public Index(Token token, Expr target, List<Expr> indices) {
+            super(token);
+            this.target = target;
+            this.indices = List.copyOf(indices);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitIndex(this);
+        }
+    }
+
+    /**
+     * A call by name, resolved to a user-defined function or a built-in function at runtime.
+     */
+    public static final class Call extends Expr {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final List<Expr> arguments;
+        public MethodCache cache; // Inline cache of the built-in called here, made by the interpreter
+        public Stmt.Function function; // The user-defined function called here, once the interpreter checked the arity
+
+        public Call(Token token, String name, int symbol, List<Expr> arguments) {
+            super(token);
+            this.name = name;
+            this.symbol = symbol;
+            this.arguments = List.copyOf(arguments);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitCall(this);
+        }
+    }
+
+    /**
+     * A built-in method call on a receiver, e.g. arr.length() or "a".repeat(3).
+     */
+    public static final class MethodCall extends Expr {
+        public final Expr receiver;
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final List<Expr> arguments;
+        public MethodCache cache; // Inline cache of the built-in called here, made by the interpreter
+
+        public MethodCall(Token token, Expr receiver, String name, int symbol, List<Expr> arguments) {
+            super(token);
+            this.receiver = receiver;
+            this.name = name;
+            this.symbol = symbol;
+            this.arguments = List.copyOf(arguments);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitMethodCall(this);
+        }
+    }
+
+    /**
+     * A binary operation. The operator is the token type of {@link #token}.
+     * <p>
+     * The interpreter rewrites {@link #specialization} after observing the operand types,
+     * so later evaluations can skip the generic type dispatch.
+     */
+    public static final class Binary extends Expr {
+        public final Expr left;
+        public final String operator;
+        public final Expr right;
+        public Specialization specialization = Specialization.UNINITIALIZED;
+
+        /**
+         * The operand types a binary operation has been specialized for.
+         */
+        public enum Specialization {
+            UNINITIALIZED, // Not evaluated yet
+            NUMBER, // Both operands have always been numbers
+            STRING, // Both operands have always been strings
+            BOOLEAN, // Both operands have always been booleans
+            GENERIC // Operands of different types have been seen, or the operator has no fast path for them
+        }
+
+        public Binary(Token token, Expr left, Expr right) {
+            super(token);
+            this.left = left;
+            this.operator = token.getToken();
+            this.right = right;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitBinary(this);
+        }
+    }
+
+    /**
+     * A logical operation, '&&' or '||'. The right operand is only evaluated when the left one
+     * does not decide the result.
+     */
+    public static final class Logical extends Expr {
+        public final Expr left;
+        public final String operator;
+        public final Expr right;
+
+        public Logical(Token token, Expr left, Expr right) {
+            super(token);
+            this.left = left;
+            this.operator = token.getToken();
+            this.right = right;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitLogical(this);
+        }
+    }
+
+    /**
+     * A unary operation: '!', the logical negation, or '~', the bitwise complement.
+     */
+    public static final class Unary extends Expr {
+        public final String operator;
+        public final Expr operand;
+
+        public Unary(Token token, Expr operand) {
+            super(token);
+            this.operator = token.getToken();
+            this.operand = operand;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitUnary(this);
+        }
+    }
+
+    /**
+     * A type check using the 'is' operator, e.g. x is number.
+     */
+    public static final class TypeCheck extends Expr {
+        public final Expr value;
+        public final String type;
+
+        public TypeCheck(Token token, Expr value, String type) {
+            super(token);
+            this.value = value;
+            this.type = type;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitTypeCheck(this);
+        }
+    }
+
+    /**
+     * A type conversion using the 'as' operator, e.g. "42" as number.
+     */
+    public static final class Cast extends Expr {
+        public final Expr value;
+        public final String type;
+
+        public Cast(Token token, Expr value, String type) {
+            super(token);
+            this.value = value;
+            this.type = type;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitCast(this);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.github._3xhaust.ast;
+
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.token.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The root of the abstract syntax tree: the top-level statements of a source file
+ * together with every function declared anywhere in it.
+ */
+public class Program {
+    private final List<Stmt> statements;
+    private final SymbolTable symbols;
+    private final Stmt.Function[] functionsBySymbol; // The function of each name, indexed by symbol id
+    private final List<Stmt.Function> functions;
+    private final NumericMode numericMode;
+    // Assigned by the resolver
+    private int localCount;
+    private List<String> globalNames = List.of();
+
+    /**
+     * Creates a program.
+     *
+     * @param statements  The top-level statements.
+     * @param functions   The function declarations in order; a later declaration of a name replaces an earlier one.
+     * @param symbols     The symbol table of the names in the program.
+     * @param numericMode The numeric mode of the number literals.
+     */
+    public Program(List<Stmt> statements, List<Stmt.Function> functions, SymbolTable symbols, NumericMode numericMode) {
+        this.statements = List.copyOf(statements);
+        this.symbols = symbols;
+        this.numericMode = numericMode;
+
+        functionsBySymbol = new Stmt.Function[symbols.size()];
+        for (Stmt.Function function : functions) {
+            functionsBySymbol[function.symbol] = function;
+        }
+        List<Stmt.Function> declared = new ArrayList<>();
+        for (Stmt.Function function : functionsBySymbol) {
+            if (function != null) declared.add(function);
+        }
+        this.functions = List.copyOf(declared);
+    }
+
+    public List<Stmt> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Gets the symbol table that the names of the program are interned in.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the functions of the program, one per name, in the order of their symbol ids.
+     */
+    public List<Stmt.Function> getFunctions() {
+        return functions;
+    }
+
+    /**
+     * Gets the function with a name.
+     *
+     * @param symbol The symbol id of the name.
+     * @return The function, or null if there is none.
+     */
+    public Stmt.Function getFunction(int symbol) {
+        return symbol < functionsBySymbol.length ? functionsBySymbol[symbol] : null;
+    }
+
+    /**
+     * Gets the numeric mode the program's number literals were parsed in, and in which it must run.
+     */
+    public NumericMode getNumericMode() {
+        return numericMode;
+    }
+
+    /**
+     * Gets the number of local slots used by blocks of the top-level statements.
+     */
+    public int getLocalCount() {
+        return localCount;
+    }
+
+    public void setLocalCount(int localCount) {
+        this.localCount = localCount;
+    }
+
+    /**
+     * Gets the names of the global variables, indexed by their slot.
+     */
+    public List<String> getGlobalNames() {
+        return globalNames;
+    }
+
+    public void setGlobalNames(List<String> globalNames) {
+        this.globalNames = List.copyOf(globalNames);
+    }
+}
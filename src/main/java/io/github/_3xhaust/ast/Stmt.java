@@ -0,0 +1,382 @@
+package io.github._3xhaust.ast;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.token.Token;
+
+import java.util.List;
+
+/**
+ * Base class for all statement nodes of the abstract syntax tree.
+ */
+public abstract class Stmt {
+
+    /**
+     * Visitor over statement nodes.
+     *
+     * @param <R> The result type of the visit.
+     */
+    public interface Visitor<R> {
+        R visitPrint(Print stmt) throws ParseException;
+
+        R visitExpression(Expression stmt) throws ParseException;
+
+        R visitVarDecl(VarDecl stmt) throws ParseException;
+
+        R visitAssign(Assign stmt) throws ParseException;
+
+        R visitIndexAssign(IndexAssign stmt) throws ParseException;
+
+        R visitBlock(Block stmt) throws ParseException;
+
+        R visitIf(If stmt) throws ParseException;
+
+        R visitWhile(While stmt) throws ParseException;
+
+        R visitForEach(ForEach stmt) throws ParseException;
+
+        R visitForRange(ForRange stmt) throws ParseException;
+
+        R visitFunction(Function stmt) throws ParseException;
+
+        R visitReturn(Return stmt) throws ParseException;
+
+        R visitBreak(Break stmt) throws ParseException;
+
+        R visitContinue(Continue stmt) throws ParseException;
+    }
+
+    public final Token token; // Token used to report errors for this node
+
+    protected Stmt(Token token) {
+        this.token = token;
+    }
+
+    public abstract <R> R accept(Visitor<R> visitor) throws ParseException;
+
+    /**
+     * A 'print' or 'println' statement.
+     */
+    public static final class Print extends Stmt {
+        public final boolean newline;
+        public final List<Expr> arguments;
+
+        public Print(Token token, boolean newline, List<Expr> arguments) {
+            super(token);
+            this.newline = newline;
+            this.arguments = List.copyOf(arguments);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitPrint(this);
+        }
+    }
+
+    /**
+     * An expression evaluated for its side effects, such as a function or method call.
+     */
+    public static final class Expression extends Stmt {
+        public final Expr expression;
+
+        public Expression(Token token, Expr expression) {
+            super(token);
+            this.expression = expression;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitExpression(this);
+        }
+    }
+
+    /**
+     * A variable or constant declaration, e.g. x: number = 1 or $PI: number = 3.14.
+     */
+    public static final class VarDecl extends Stmt {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final String type;
+        public final boolean constant;
+        public final Expr initializer;
+        // Address of the declared variable, assigned by the resolver
+        public int depth;
+        public int slot;
+
+        public VarDecl(Token token, String name, int symbol, String type, boolean constant, Expr initializer) {
+            super(token);
+            this.name = name;
+            this.symbol = symbol;
+            this.type = type;
+            this.constant = constant;
+            this.initializer = initializer;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitVarDecl(this);
+        }
+    }
+
+    /**
+     * An assignment to a declared variable, e.g. x = 1, or a compound assignment such as x += 1 or x++.
+     */
+    public static final class Assign extends Stmt {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final String operator; // Operator applied to the old value and the value, e.g. "+" for '+=' and '++'; null for '='
+        public final Expr value;
+        // Address of the assigned variable, assigned by the resolver
+        public int depth;
+        public int slot;
+
+        public Assign(Token token, String name, int symbol, String operator, Expr value) {
+            super(token);
+            this.name = name;
+            this.symbol = symbol;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitAssign(this);
+        }
+    }
+
+    /**
+     * An assignment to an array element, e.g. arr[i] = x or matrix[i][j] = x, or a compound assignment
+     * such as matrix[i][j] += x. The array and indices are evaluated once, before the value.
+     */
+    public static final class IndexAssign extends Stmt {
+        public final Expr.Index target;
+        public final String operator; // Operator applied to the old element and the value, or null for '='
+        public final Expr value;
+
+        public IndexAssign(Token token, Expr.Index target, String operator, Expr value) {
+            super(token);
+            this.target = target;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitIndexAssign(this);
+        }
+    }
+
+    /**
+     * A block of statements enclosed in curly braces, introducing a new scope.
+     */
+    public static final class Block extends Stmt {
+        public final List<Stmt> statements;
+
+        public Block(Token token, List<Stmt> statements) {
+            super(token);
+            this.statements = List.copyOf(statements);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitBlock(this);
+        }
+    }
+
+    /**
+     * An if statement. 'else if' chains are represented as nested ifs in {@link #elseBranch}.
+     */
+    public static final class If extends Stmt {
+        public final Expr condition;
+        public final Stmt thenBranch;
+        public final Stmt elseBranch; // null if there is no else branch
+
+        public If(Token token, Expr condition, Stmt thenBranch, Stmt elseBranch) {
+            super(token);
+            this.condition = condition;
+            this.thenBranch = thenBranch;
+            this.elseBranch = elseBranch;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitIf(this);
+        }
+    }
+
+    /**
+     * A while loop.
+     */
+    public static final class While extends Stmt {
+        public final Expr condition;
+        public final Stmt body;
+
+        public While(Token token, Expr condition, Stmt body) {
+            super(token);
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitWhile(this);
+        }
+    }
+
+    /**
+     * A for loop over the elements of an array, e.g. for (x: number in arr).
+     */
+    public static final class ForEach extends Stmt {
+        public final String variable;
+        public final int symbol; // Id of the loop variable in the program's symbol table
+        public final String type;
+        public final Expr iterable;
+        public final Stmt body;
+        // Local slots assigned by the resolver: the loop variable, and two slots for the array and the index
+        public int slot;
+        public int stateSlot;
+
+        public ForEach(Token token, String variable, int symbol, String type, Expr iterable, Stmt body) {
+            super(token);
+            this.variable = variable;
+            this.symbol = symbol;
+            this.type = type;
+            this.iterable = iterable;
+            this.body = body;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitForEach(this);
+        }
+    }
+
+    /**
+     * A for loop over a numeric range, e.g. for (i: number in 1..10..2).
+     */
+    public static final class ForRange extends Stmt {
+        public final String variable;
+        public final int symbol; // Id of the loop variable in the program's symbol table
+        public final String type;
+        public final Expr start;
+        public final Expr end;
+        public final Expr step; // null if the default step of 1 is used
+        public final Stmt body;
+        // Local slots assigned by the resolver: the loop variable, and three slots for the counter, the end and the step
+        public int slot;
+        public int stateSlot;
+
+        public ForRange(Token token, String variable, int symbol, String type, Expr start, Expr end, Expr step,
+                        Stmt body) {
+            super(token);
+            this.variable = variable;
+            this.symbol = symbol;
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.step = step;
+            this.body = body;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitForRange(this);
+        }
+    }
+
+    /**
+     * A function parameter.
+     */
+    public static final class Parameter {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final String type;
+
+        public Parameter(String name, int symbol, String type) {
+            this.name = name;
+            this.symbol = symbol;
+            this.type = type;
+        }
+    }
+
+    /**
+     * A user-defined function declaration. Functions are hoisted by the parser,
+     * so they can be called before their declaration.
+     */
+    public static final class Function extends Stmt {
+        public final String name;
+        public final int symbol; // Id of the name in the program's symbol table
+        public final List<Parameter> parameters;
+        public final String returnType;
+        public final boolean returnsVoid; // Whether the return type is void, so calls need not compare it
+        public final boolean memoized; // Declared with 'memo': results are cached by argument values
+        public final List<Stmt> body;
+        public int localCount; // Number of local slots including the parameters, assigned by the resolver
+
+        public Function(Token token, String name, int symbol, List<Parameter> parameters, String returnType,
+                        boolean memoized, List<Stmt> body) {
+            super(token);
+            this.name = name;
+            this.symbol = symbol;
+            this.parameters = List.copyOf(parameters);
+            this.returnType = returnType;
+            this.returnsVoid = returnType.equals(Token.VOID);
+            this.memoized = memoized;
+            this.body = List.copyOf(body);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitFunction(this);
+        }
+    }
+
+    /**
+     * A return statement.
+     * <p>
+     * The resolver marks a return of a call to a user-defined function as a tail call when the
+     * callee can take over the frame of the caller: the result is returned unchanged, and both
+     * functions check it against the same return type.
+     */
+    public static final class Return extends Stmt {
+        public final Expr value; // null for a bare 'return' in a void function
+        public Function tailCall; // The function called in tail position, or null; set by the resolver
+
+        public Return(Token token, Expr value) {
+            super(token);
+            this.value = value;
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitReturn(this);
+        }
+    }
+
+    /**
+     * A break statement.
+     */
+    public static final class Break extends Stmt {
+        public Break(Token token) {
+            super(token);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitBreak(this);
+        }
+    }
+
+    /**
+     * A continue statement.
+     */
+    public static final class Continue extends Stmt {
+        public Continue(Token token) {
+            super(token);
+        }
+
+        @Override
+        public <R> R accept(Visitor<R> visitor) throws ParseException {
+            return visitor.visitContinue(this);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github._3xhaust.compiler;
+
+import io.github._3xhaust.token.Token;
+
+/**
+ * The compiled bytecode of a single function, or of the top-level program.
+ */
+public final class CodeObject {
+    public final String name; // Function name, or "<main>" for the top-level program
+    public final int[] code; // Opcodes and their operands
+    public final Token[] positions; // Source token of the instruction starting at each offset, for error reporting
+    public final int parameterCount; // Number of parameters, stored in the first local slots
+    public final int localCount; // Number of local slots, including parameters and loop state
+    public final String returnType; // Declared return type, or null for the top-level program
+    public final boolean returnsVoid; // Whether the return type is void
+    public final boolean memoized; // Whether results are cached by argument values
+
+    public CodeObject(String name, int[] code, Token[] positions, int parameterCount, int localCount, String returnType,
+                      boolean memoized) {
+        this.name = name;
+        this.code = code;
+        this.positions = positions;
+        this.parameterCount = parameterCount;
+        this.localCount = localCount;
+        this.returnType = returnType;
+        this.returnsVoid = Token.VOID.equals(returnType);
+        this.memoized = memoized;
+    }
+
+    /**
+     * Returns a human-readable listing of the instructions, for debugging.
+     *
+     * @return The disassembled code.
+     */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder("== ").append(name).append(" ==\n");
+        int offset = 0;
+        while (offset < code.length) {
+            int opCode = code[offset];
+            sb.append(String.format("%04d %-14s", offset, OpCode.name(opCode)));
+            for (int i = 1; i <= OpCode.operandCount(opCode); i++) {
+                sb.append(' ').append(code[offset + i]);
+            }
+            sb.append('\n');
+            offset += 1 + OpCode.operandCount(opCode);
+        }
+        return sb.toString();
+    }
+}
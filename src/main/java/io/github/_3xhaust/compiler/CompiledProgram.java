@@ -0,0 +1,29 @@
+package io.github._3xhaust.compiler;
+
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.token.SymbolTable;
+
+/**
+ * A program lowered to bytecode: the top-level code, one code object per function,
+ * and the constant pool shared by all of them.
+ */
+public final class CompiledProgram {
+    public final CodeObject main;
+    public final CodeObject[] functions; // Indexed by the operand of CALL
+    public final Object[] constants;
+    public final String[] globalNames; // Indexed by the operand of the global variable instructions
+    public final int[] callSites; // Symbol id of the built-in of each call site, the operand of CALL_BUILTIN and INVOKE
+    public final SymbolTable symbols; // Names of the built-ins of the call sites
+    public final NumericMode numericMode;
+
+    public CompiledProgram(CodeObject main, CodeObject[] functions, Object[] constants, String[] globalNames,
+                           int[] callSites, SymbolTable symbols, NumericMode numericMode) {
+        this.main = main;
+        this.functions = functions;
+        this.constants = constants;
+        this.globalNames = globalNames;
+        this.callSites = callSites;
+        this.symbols = symbols;
+        this.numericMode = numericMode;
+    }
+}
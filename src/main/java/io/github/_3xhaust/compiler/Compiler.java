@@ -0,0 +1,506 @@
+package io.github._3xhaust.compiler;
+
+import io.github._3xhaust.ast.Expr;
+import io.github._3xhaust.ast.Program;
+import io.github._3xhaust.ast.Stmt;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.resolver.Resolver;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.Token;
+
+import java.util.*;
+
+/**
+ * Lowers the abstract syntax tree into bytecode for the virtual machine.
+ * Variables use the local slots and global indices assigned by the {@link Resolver}, and every
+ * jump target is computed here, so the virtual machine never looks at names or scans for matching braces.
+ */
+public class Compiler implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    private final Program program;
+    private final SourceFile source;
+
+    // Constant pool shared by all code objects
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    // Function index of the user-defined function of each name, indexed by symbol id, or -1
+    private int[] functionIndices;
+    // Symbol id of the built-in called at each built-in call site, in order of the call site index
+    private int[] callSites = new int[16];
+    private int callSiteCount;
+
+    // State of the function currently being compiled
+    private FunctionState current;
+
+    /**
+     * The code being generated for one function, together with its enclosing loops.
+     */
+    private static class FunctionState {
+        int[] code = new int[64];
+        Token[] positions = new Token[64];
+        int length = 0;
+        // Enclosing loops, innermost first
+        final Deque<Loop> loops = new ArrayDeque<>();
+    }
+
+    /**
+     * A loop being compiled: where 'continue' jumps to and which 'break' jumps must be patched.
+     */
+    private static class Loop {
+        final int continueTarget;
+        final List<Integer> breakJumps = new ArrayList<>();
+
+        Loop(int continueTarget) {
+            this.continueTarget = continueTarget;
+        }
+    }
+
+    /**
+     * Constructor for the Compiler class.
+     *
+     * @param program  The program to compile, already processed by the {@link Resolver}.
+     * @param fileName The name of the file being compiled.
+     * @param input    The input code as a single string, used for error reporting.
+     */
+    public Compiler(Program program, String fileName, CharSequence input) {
+        this.program = program;
+        this.source = new SourceFile(fileName, input);
+    }
+
+    /**
+     * Compiles the program.
+     *
+     * @return The compiled program.
+     * @throws ParseException If the program cannot be compiled.
+     */
+    public CompiledProgram compile() throws ParseException {
+        List<Stmt.Function> declarations = program.getFunctions();
+        functionIndices = new int[program.getSymbols().size()];
+        Arrays.fill(functionIndices, -1);
+        for (int i = 0; i < declarations.size(); i++) {
+            functionIndices[declarations.get(i).symbol] = i;
+        }
+        CodeObject[] functions = new CodeObject[declarations.size()];
+        for (int i = 0; i < declarations.size(); i++) {
+            functions[i] = compileFunction(declarations.get(i));
+        }
+
+        current = new FunctionState();
+        for (Stmt statement : program.getStatements()) {
+            statement.accept(this);
+        }
+        emit(OpCode.HALT, null);
+        CodeObject main = finish("<main>", 0, program.getLocalCount(), null, false);
+
+        return new CompiledProgram(main, functions, constants.toArray(), program.getGlobalNames().toArray(new String[0]),
+                Arrays.copyOf(callSites, callSiteCount), program.getSymbols(), program.getNumericMode());
+    }
+
+    private CodeObject compileFunction(Stmt.Function function) throws ParseException {
+        current = new FunctionState();
+        for (Stmt statement : function.body) {
+            statement.accept(this);
+        }
+        emit(function.returnsVoid ? OpCode.RETURN_VOID : OpCode.MISSING_RETURN, function.token);
+        return finish(function.name, function.parameters.size(), function.localCount, function.returnType,
+                function.memoized);
+    }
+
+    private CodeObject finish(String name, int parameterCount, int localCount, String returnType, boolean memoized) {
+        FunctionState state = current;
+        return new CodeObject(name, Arrays.copyOf(state.code, state.length),
+                Arrays.copyOf(state.positions, state.length), parameterCount, localCount, returnType, memoized);
+    }
+
+    // ----- Statements -----
+
+    @Override
+    public Void visitPrint(Stmt.Print stmt) throws ParseException {
+        for (Expr argument : stmt.arguments) {
+            argument.accept(this);
+        }
+        emit(OpCode.PRINT, stmt.token, stmt.arguments.size(), stmt.newline ? 1 : 0);
+        return null;
+    }
+
+    @Override
+    public Void visitExpression(Stmt.Expression stmt) throws ParseException {
+        stmt.expression.accept(this);
+        emit(OpCode.POP, stmt.token);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDecl(Stmt.VarDecl stmt) throws ParseException {
+        stmt.initializer.accept(this);
+        emit(OpCode.CHECK_TYPE, stmt.token, constant(stmt.type));
+        emit(stmt.depth == Resolver.GLOBAL ? OpCode.DEFINE_GLOBAL : OpCode.SET_LOCAL, stmt.token, stmt.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(Stmt.Assign stmt) throws ParseException {
+        if (stmt.operator != null) {
+            emit(stmt.depth == Resolver.GLOBAL ? OpCode.GET_GLOBAL : OpCode.GET_LOCAL, stmt.token, stmt.slot);
+        }
+        stmt.value.accept(this);
+        if (stmt.operator != null) {
+            emit(binaryOpCode(stmt.operator, stmt.token), stmt.token);
+        }
+        emit(stmt.depth == Resolver.GLOBAL ? OpCode.SET_GLOBAL : OpCode.SET_LOCAL, stmt.token, stmt.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexAssign(Stmt.IndexAssign stmt) throws ParseException {
+        stmt.target.target.accept(this);
+        for (Expr index : stmt.target.indices) {
+            index.accept(this);
+        }
+        if (stmt.operator != null) {
+            // Read the element without evaluating the array and indices again
+            emit(OpCode.INDEX_KEEP, stmt.target.token, stmt.target.indices.size());
+        }
+        stmt.value.accept(this);
+        if (stmt.operator != null) {
+            emit(binaryOpCode(stmt.operator, stmt.token), stmt.token);
+        }
+        if (stmt.target.inBounds) {
+            emit(OpCode.SET_INDEX_IN_BOUNDS, stmt.target.token);
+        } else {
+            emit(OpCode.SET_INDEX, stmt.target.token, stmt.target.indices.size());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Stmt.Block stmt) throws ParseException {
+        for (Stmt statement : stmt.statements) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIf(Stmt.If stmt) throws ParseException {
+        stmt.condition.accept(this);
+        int elseJump = emitJump(OpCode.JUMP_IF_FALSE, stmt.condition.token);
+        stmt.thenBranch.accept(this);
+
+        if (stmt.elseBranch == null) {
+            patchJump(elseJump);
+        } else {
+            int endJump = emitJump(OpCode.JUMP, stmt.token);
+            patchJump(elseJump);
+            stmt.elseBranch.accept(this);
+            patchJump(endJump);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(Stmt.While stmt) throws ParseException {
+        int loopStart = current.length;
+        stmt.condition.accept(this);
+        int exitJump = emitJump(OpCode.JUMP_IF_FALSE, stmt.condition.token);
+
+        Loop loop = beginLoop(loopStart);
+        stmt.body.accept(this);
+        emit(OpCode.JUMP, stmt.token, loopStart);
+
+        patchJump(exitJump);
+        endLoop(loop);
+        return null;
+    }
+
+    @Override
+    public Void visitForEach(Stmt.ForEach stmt) throws ParseException {
+        int arraySlot = stmt.stateSlot; // the array and the current index
+        int variableSlot = stmt.slot;
+
+        stmt.iterable.accept(this);
+        String message = stmt.iterable instanceof Expr.Variable variable
+                ? "Variable '" + variable.name + "' is not an array"
+                : "Expression is not an array";
+        emit(OpCode.FOR_EACH_PREP, stmt.iterable.token, arraySlot, constant(message));
+
+        int loopStart = current.length;
+        emit(OpCode.FOR_EACH_NEXT, stmt.token, arraySlot, variableSlot, 0);
+        int exitJump = current.length - 1;
+
+        Loop loop = beginLoop(loopStart);
+        stmt.body.accept(this);
+        emit(OpCode.JUMP, stmt.token, loopStart);
+
+        patchJump(exitJump);
+        endLoop(loop);
+        return null;
+    }
+
+    @Override
+    public Void visitForRange(Stmt.ForRange stmt) throws ParseException {
+        int rangeSlot = stmt.stateSlot; // the counter, the end and the step
+        int variableSlot = stmt.slot;
+
+        stmt.start.accept(this);
+        emit(OpCode.RANGE_BOUND, stmt.start.token);
+        stmt.end.accept(this);
+        emit(OpCode.RANGE_BOUND, stmt.end.token);
+        if (stmt.step != null) {
+            stmt.step.accept(this);
+            emit(OpCode.RANGE_BOUND, stmt.step.token);
+        } else {
+            emit(OpCode.CONSTANT, stmt.token, constant(program.getNumericMode().valueOf(1)));
+        }
+        emit(OpCode.RANGE_PREP, stmt.step != null ? stmt.step.token : stmt.start.token, rangeSlot);
+        emit(OpCode.RANGE_CHECK, stmt.token, rangeSlot, constant(stmt.type));
+
+        int loopStart = current.length;
+        emit(OpCode.RANGE_NEXT, stmt.token, rangeSlot, variableSlot, 0);
+        int exitJump = current.length - 1;
+
+        Loop loop = beginLoop(loopStart);
+        stmt.body.accept(this);
+        emit(OpCode.JUMP, stmt.token, loopStart);
+
+        patchJump(exitJump);
+        endLoop(loop);
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Stmt.Function stmt) {
+        // Functions are compiled into their own code objects up front
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Stmt.Return stmt) throws ParseException {
+        if (stmt.value == null) {
+            emit(OpCode.RETURN_VOID, stmt.token);
+        } else if (stmt.tailCall != null) {
+            Expr.Call call = (Expr.Call) stmt.value;
+            for (Expr argument : call.arguments) {
+                argument.accept(this);
+            }
+            emit(OpCode.TAIL_CALL, call.token, functionIndices[call.symbol], call.arguments.size());
+        } else {
+            stmt.value.accept(this);
+            emit(OpCode.RETURN, stmt.token);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(Stmt.Break stmt) {
+        emit(OpCode.JUMP, stmt.token, 0);
+        current.loops.peek().breakJumps.add(current.length - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(Stmt.Continue stmt) {
+        emit(OpCode.JUMP, stmt.token, current.loops.peek().continueTarget);
+        return null;
+    }
+
+    // ----- Expressions -----
+
+    @Override
+    public Void visitLiteral(Expr.Literal expr) {
+        emit(OpCode.CONSTANT, expr.token, constant(expr.value));
+        return null;
+    }
+
+    @Override
+    public Void visitInterpolation(Expr.Interpolation expr) throws ParseException {
+        for (Expr part : expr.parts) {
+            part.accept(this);
+        }
+        emit(OpCode.INTERPOLATE, expr.token, expr.parts.size());
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Expr.Variable expr) {
+        emit(expr.depth == Resolver.GLOBAL ? OpCode.GET_GLOBAL : OpCode.GET_LOCAL, expr.token, expr.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(Expr.ArrayLiteral expr) throws ParseException {
+        for (Expr element : expr.elements) {
+            element.accept(this);
+        }
+        emit(OpCode.ARRAY, expr.token, expr.elements.size());
+        return null;
+    }
+
+    @Override
+    public Void visitIndex(Expr.Index expr) throws ParseException {
+        expr.target.accept(this);
+        for (Expr index : expr.indices) {
+            index.accept(this);
+        }
+        if (expr.inBounds) {
+            emit(OpCode.INDEX_IN_BOUNDS, expr.token);
+        } else {
+            emit(OpCode.INDEX, expr.token, expr.indices.size());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCall(Expr.Call expr) throws ParseException {
+        for (Expr argument : expr.arguments) {
+            argument.accept(this);
+        }
+        int function = functionIndices[expr.symbol];
+        if (function >= 0) {
+            emit(OpCode.CALL, expr.token, function, expr.arguments.size());
+        } else {
+            emit(OpCode.CALL_BUILTIN, expr.token, callSite(expr.symbol), expr.arguments.size());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitMethodCall(Expr.MethodCall expr) throws ParseException {
+        expr.receiver.accept(this);
+        for (Expr argument : expr.arguments) {
+            argument.accept(this);
+        }
+        emit(OpCode.INVOKE, expr.token, callSite(expr.symbol), expr.arguments.size());
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(Expr.Binary expr) throws ParseException {
+        expr.left.accept(this);
+        expr.right.accept(this);
+        emit(binaryOpCode(expr.operator, expr.token), expr.token);
+        return null;
+    }
+
+    private int binaryOpCode(String operator, Token at) throws ParseException {
+        return switch (operator) {
+            case Token.PLUS -> OpCode.ADD;
+            case Token.MINUS -> OpCode.SUBTRACT;
+            case Token.ASTERISK -> OpCode.MULTIPLY;
+            case Token.SLASH -> OpCode.DIVIDE;
+            case Token.PERCENT -> OpCode.REMAINDER;
+            case Token.EQUAL_EQUAL -> OpCode.EQUAL;
+            case Token.NOT_EQUAL -> OpCode.NOT_EQUAL;
+            case Token.LESS_THAN -> OpCode.LESS;
+            case Token.GREATER_THAN -> OpCode.GREATER;
+            case Token.LESS_THAN_OR_EQUAL -> OpCode.LESS_EQUAL;
+            case Token.GREATER_THAN_OR_EQUAL -> OpCode.GREATER_EQUAL;
+            case Token.BITWISE_AND -> OpCode.BIT_AND;
+            case Token.BITWISE_OR -> OpCode.BIT_OR;
+            case Token.BITWISE_XOR -> OpCode.BIT_XOR;
+            case Token.LEFT_SHIFT -> OpCode.SHIFT_LEFT;
+            case Token.RIGHT_SHIFT -> OpCode.SHIFT_RIGHT;
+            default -> throw source.error("Unsupported operator: " + operator, at);
+        };
+    }
+
+    @Override
+    public Void visitLogical(Expr.Logical expr) throws ParseException {
+        boolean and = expr.operator.equals(Token.AND);
+        expr.left.accept(this);
+        // A left operand that decides the result skips the right one; any other one is checked with it
+        int endJump = emitJump(and ? OpCode.JUMP_IF_FALSE_KEEP : OpCode.JUMP_IF_TRUE_KEEP, expr.token);
+        expr.right.accept(this);
+        emit(and ? OpCode.AND : OpCode.OR, expr.token);
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Expr.Unary expr) throws ParseException {
+        expr.operand.accept(this);
+        emit(expr.operator.equals(Token.BANG) ? OpCode.NOT : OpCode.BIT_NOT, expr.token);
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCheck(Expr.TypeCheck expr) throws ParseException {
+        expr.value.accept(this);
+        emit(OpCode.IS, expr.token, constant(expr.type));
+        return null;
+    }
+
+    @Override
+    public Void visitCast(Expr.Cast expr) throws ParseException {
+        expr.value.accept(this);
+        emit(OpCode.AS, expr.token, constant(expr.type));
+        return null;
+    }
+
+    // ----- Constants -----
+
+    private int constant(Object value) {
+        return constantIndices.computeIfAbsent(value, key -> {
+            constants.add(key);
+            return constants.size() - 1;
+        });
+    }
+
+    /**
+     * Adds a built-in call site, which gets its own inline cache at run time.
+     *
+     * @param symbol The symbol id of the name of the built-in.
+     * @return The index of the call site.
+     */
+    private int callSite(int symbol) {
+        if (callSiteCount == callSites.length) callSites = Arrays.copyOf(callSites, callSiteCount * 2);
+        callSites[callSiteCount] = symbol;
+        return callSiteCount++;
+    }
+
+    // ----- Loops and jumps -----
+
+    private Loop beginLoop(int continueTarget) {
+        Loop loop = new Loop(continueTarget);
+        current.loops.push(loop);
+        return loop;
+    }
+
+    private void endLoop(Loop loop) {
+        current.loops.pop();
+        for (int jump : loop.breakJumps) {
+            patchJump(jump);
+        }
+    }
+
+    /**
+     * Emits a jump whose target is patched later.
+     *
+     * @return The offset of the jump's target operand.
+     */
+    private int emitJump(int opCode, Token at) {
+        emit(opCode, at, 0);
+        return current.length - 1;
+    }
+
+    /**
+     * Points a previously emitted jump operand at the current end of the code.
+     */
+    private void patchJump(int operandOffset) {
+        current.code[operandOffset] = current.length;
+    }
+
+    private void emit(int opCode, Token at, int... operands) {
+        FunctionState state = current;
+        int needed = state.length + 1 + operands.length;
+        if (needed > state.code.length) {
+            int capacity = Math.max(needed, state.code.length * 2);
+            state.code = Arrays.copyOf(state.code, capacity);
+            state.positions = Arrays.copyOf(state.positions, capacity);
+        }
+        state.positions[state.length] = at;
+        state.code[state.length++] = opCode;
+        for (int operand : operands) {
+            state.code[state.length++] = operand;
+        }
+    }
+}
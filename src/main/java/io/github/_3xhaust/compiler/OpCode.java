@@ -0,0 +1,155 @@
+package io.github._3xhaust.compiler;
+
+/**
+ * The instruction set of the EzyLang virtual machine.
+ * Each instruction is an opcode followed by a fixed number of int operands.
+ * Jump targets are absolute offsets into the instruction array of the same code object.
+ */
+public final class OpCode {
+    // Constants and stack
+    public static final int CONSTANT = 0; // constant index: push a value from the constant pool
+    public static final int POP = 1; // discard the top of the stack
+
+    // Variables
+    public static final int GET_LOCAL = 2; // slot
+    public static final int SET_LOCAL = 3; // slot: pop into a local slot
+    public static final int GET_GLOBAL = 4; // global index
+    public static final int SET_GLOBAL = 5; // global index: pop into an already declared global
+    public static final int DEFINE_GLOBAL = 6; // global index: pop into a new global
+
+    // Arithmetic operators
+    public static final int ADD = 7;
+    public static final int SUBTRACT = 8;
+    public static final int MULTIPLY = 9;
+    public static final int DIVIDE = 10;
+    public static final int REMAINDER = 11;
+
+    // Comparison and logical operators
+    public static final int EQUAL = 12;
+    public static final int NOT_EQUAL = 13;
+    public static final int LESS = 14;
+    public static final int GREATER = 15;
+    public static final int LESS_EQUAL = 16;
+    public static final int GREATER_EQUAL = 17;
+    public static final int AND = 18;
+    public static final int OR = 19;
+
+    // Types
+    public static final int IS = 20; // type constant: replace the top of the stack with an 'is' check
+    public static final int AS = 21; // type constant: convert the top of the stack
+    public static final int CHECK_TYPE = 22; // type constant: check the top of the stack against a declared type
+
+    // Strings and arrays
+    public static final int INTERPOLATE = 23; // part count: concatenate the parts into a string
+    public static final int ARRAY = 24; // element count: build an array from the elements
+    public static final int INDEX = 25; // index count: pop the indices and the array, push the element
+    public static final int SET_INDEX = 26; // index count: pop the value, the indices and the array
+
+    // Control flow
+    public static final int JUMP = 27; // target
+    public static final int JUMP_IF_FALSE = 28; // target: pop a condition and jump if it is false
+    public static final int FOR_EACH_PREP = 29; // slot, message constant: pop an array into slot, index into slot + 1
+    public static final int FOR_EACH_NEXT = 30; // slot, variable slot, exit target
+    public static final int RANGE_PREP = 31; // slot: pop start, end and step into slot, slot + 1 and slot + 2
+    public static final int RANGE_NEXT = 32; // slot, variable slot, exit target
+
+    // Calls
+    public static final int CALL = 33; // function index, argument count
+    public static final int CALL_BUILTIN = 34; // call site index, argument count
+    public static final int INVOKE = 35; // call site index, argument count: call a method on a receiver
+    public static final int RETURN = 36; // pop the return value and return to the caller
+    public static final int RETURN_VOID = 37;
+    public static final int MISSING_RETURN = 38; // end of a non-void function reached without a return
+
+    // Statements
+    public static final int PRINT = 39; // argument count, newline flag
+    public static final int HALT = 40;
+
+    // Range checks
+    public static final int RANGE_BOUND = 41; // check that the top of the stack is a number usable as a range bound
+
+    // Tail calls
+    public static final int TAIL_CALL = 42; // function index, argument count: return the result of a call in the caller's frame
+
+    // Logical operators
+    public static final int JUMP_IF_FALSE_KEEP = 43; // target: jump if the top of the stack is false, leaving it as the result of '&&'
+    public static final int JUMP_IF_TRUE_KEEP = 44; // target: jump if the top of the stack is true, leaving it as the result of '||'
+    public static final int NOT = 45;
+
+    // Compound assignments
+    public static final int INDEX_KEEP = 46; // index count: push the element addressed by the array and indices on top, keeping them
+
+    // Bitwise operators
+    public static final int BIT_AND = 47;
+    public static final int BIT_OR = 48;
+    public static final int BIT_XOR = 49;
+    public static final int SHIFT_LEFT = 50;
+    public static final int SHIFT_RIGHT = 51;
+    public static final int BIT_NOT = 52;
+
+    // Range checks
+    public static final int RANGE_CHECK = 53; // slot, type constant: check the first value of a range that is not empty
+
+    // Array accesses the resolver proved to be within bounds
+    public static final int INDEX_IN_BOUNDS = 54; // pop the index and the array, push the element
+    public static final int SET_INDEX_IN_BOUNDS = 55; // pop the value, the index and the array
+
+    private static final String[] NAMES = {
+            "CONSTANT", "POP", "GET_LOCAL", "SET_LOCAL", "GET_GLOBAL", "SET_GLOBAL", "DEFINE_GLOBAL",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "REMAINDER",
+            "EQUAL", "NOT_EQUAL", "LESS", "GREATER", "LESS_EQUAL", "GREATER_EQUAL", "AND", "OR",
+            "IS", "AS", "CHECK_TYPE",
+            "INTERPOLATE", "ARRAY", "INDEX", "SET_INDEX",
+            "JUMP", "JUMP_IF_FALSE", "FOR_EACH_PREP", "FOR_EACH_NEXT", "RANGE_PREP", "RANGE_NEXT",
+            "CALL", "CALL_BUILTIN", "INVOKE", "RETURN", "RETURN_VOID", "MISSING_RETURN",
+            "PRINT", "HALT",
+            "RANGE_BOUND",
+            "TAIL_CALL",
+            "JUMP_IF_FALSE_KEEP", "JUMP_IF_TRUE_KEEP", "NOT",
+            "INDEX_KEEP",
+            "BIT_AND", "BIT_OR", "BIT_XOR", "SHIFT_LEFT", "SHIFT_RIGHT", "BIT_NOT",
+            "RANGE_CHECK",
+            "INDEX_IN_BOUNDS", "SET_INDEX_IN_BOUNDS"
+    };
+
+    private static final int[] OPERAND_COUNTS = {
+            1, 0, 1, 1, 1, 1, 1,
+            0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1,
+            1, 1, 1, 1,
+            1, 1, 2, 3, 1, 3,
+            2, 2, 2, 0, 0, 0,
+            2, 0,
+            0,
+            2,
+            1, 1, 0,
+            1,
+            0, 0, 0, 0, 0, 0,
+            2,
+            0, 0
+    };
+
+    private OpCode() {
+    }
+
+    /**
+     * Gets the name of an opcode, for disassembly.
+     *
+     * @param opCode The opcode.
+     * @return The name of the opcode.
+     */
+    public static String name(int opCode) {
+        return NAMES[opCode];
+    }
+
+    /**
+     * Gets the number of operands following an opcode.
+     *
+     * @param opCode The opcode.
+     * @return The number of int operands.
+     */
+    public static int operandCount(int opCode) {
+        return OPERAND_COUNTS[opCode];
+    }
+}
@@ -19,6 +19,26 @@ public class ParseException extends Exception {
         this.errorLine = errorLine;
     }
 
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getErrorLine() {
+        return errorLine;
+    }
+
     /**
      * Returns a formatted error message that includes the file name, line and column number,
      * the error message, the line of code where the error occurred, and a caret pointing to the error location.
@@ -0,0 +1,12 @@
+package io.github._3xhaust.interpreter;
+
+/**
+ * How the execution of a statement completed, used to propagate break, continue and return
+ * through enclosing blocks without re-scanning any code.
+ */
+enum Completion {
+    NORMAL,
+    BREAK,
+    CONTINUE,
+    RETURN
+}
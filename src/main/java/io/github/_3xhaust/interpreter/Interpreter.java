@@ -0,0 +1,723 @@
+package io.github._3xhaust.interpreter;
+
+import io.github._3xhaust.ast.Expr;
+import io.github._3xhaust.ast.Program;
+import io.github._3xhaust.ast.Stmt;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.resolver.Resolver;
+import io.github._3xhaust.runtime.Builtins;
+import io.github._3xhaust.runtime.LongRange;
+import io.github._3xhaust.runtime.MemoCache;
+import io.github._3xhaust.runtime.MethodCache;
+import io.github._3xhaust.runtime.Numbers;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.runtime.Operators;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.Token;
+
+import java.util.*;
+
+/**
+ * A tree-walking interpreter that executes the abstract syntax tree built by the parser.
+ * Variables live in arrays addressed by the slots assigned by the {@link Resolver}: one frame
+ * per function call, plus the globals.
+ */
+public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Completion> {
+    private final Program program;
+    private final SourceFile source;
+    private final NumericMode mode;
+    private final Operators operators;
+    private final Builtins builtins;
+
+    // Marks a global variable that has not been declared yet
+    private static final Object UNDEFINED = new Object();
+
+    private final Object[] globals;
+    // The local slots of the function call, or top-level program, currently being executed
+    private Object[] frame;
+    // Frames of the calls in progress, reused by later calls at the same depth; arrays may be longer than needed
+    private Object[][] frames = new Object[16][];
+    private int frameCount;
+    // Result caches of the memoized functions, made on their first call
+    private final Map<Stmt.Function, MemoCache> memoCaches = new LinkedHashMap<>();
+    // Value of the last executed return statement
+    private Object returnValue;
+    // The function the last return statement tail-called, with its frame pushed above the caller's, and the call
+    private Stmt.Function tailFunction;
+    private Token tailCallSite;
+
+    /**
+     * Constructor for the Interpreter class.
+     *
+     * @param program  The program to execute, already processed by the {@link Resolver}.
+     * @param fileName The name of the file being executed.
+     * @param input    The input code as a single string, used for error reporting.
+     */
+    public Interpreter(Program program, String fileName, CharSequence input) {
+        this.program = program;
+        this.source = new SourceFile(fileName, input);
+        this.mode = program.getNumericMode();
+        this.operators = new Operators(source, mode);
+        this.builtins = new Builtins(source, mode, program.getSymbols());
+        this.globals = new Object[program.getGlobalNames().size()];
+        Arrays.fill(globals, UNDEFINED);
+        this.frame = new Object[program.getLocalCount()];
+    }
+
+    /**
+     * Gets the result caches of the memoized functions that have been called.
+     */
+    public Collection<MemoCache> getMemoCaches() {
+        return memoCaches.values();
+    }
+
+    /**
+     * Executes the top-level statements of the program.
+     *
+     * @throws ParseException If a runtime error occurs.
+     */
+    public void interpret() throws ParseException {
+        for (Stmt statement : program.getStatements()) {
+            execute(statement);
+        }
+    }
+
+    private Completion execute(Stmt stmt) throws ParseException {
+        return stmt.accept(this);
+    }
+
+    private Object evaluate(Expr expr) throws ParseException {
+        return expr.accept(this);
+    }
+
+    /**
+     * Executes a list of statements.
+     *
+     * @param statements The statements to execute.
+     * @return How the statements completed.
+     * @throws ParseException If a runtime error occurs.
+     */
+    private Completion executeBlock(List<Stmt> statements) throws ParseException {
+        for (Stmt statement : statements) {
+            Completion completion = execute(statement);
+            if (completion != Completion.NORMAL) {
+                return completion;
+            }
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitPrint(Stmt.Print stmt) throws ParseException {
+        List<Object> printArgs = new ArrayList<>(stmt.arguments.size());
+        for (Expr argument : stmt.arguments) {
+            printArgs.add(evaluate(argument));
+        }
+
+        for (Object arg : printArgs) {
+            System.out.print(operators.stringify(arg));
+        }
+
+        if (stmt.newline) {
+            System.out.println();
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitExpression(Stmt.Expression stmt) throws ParseException {
+        evaluate(stmt.expression);
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitVarDecl(Stmt.VarDecl stmt) throws ParseException {
+        if (stmt.depth == Resolver.GLOBAL && globals[stmt.slot] != UNDEFINED) {
+            throw source.error("Variable '" + stmt.name + "' already declared in this scope", stmt.token);
+        }
+
+        Object value = evaluate(stmt.initializer);
+        operators.checkType(value, stmt.type, stmt.token);
+
+        if (stmt.depth == Resolver.GLOBAL) {
+            globals[stmt.slot] = value;
+        } else {
+            frame[stmt.slot] = value;
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitAssign(Stmt.Assign stmt) throws ParseException {
+        if (stmt.operator != null) {
+            return compoundAssign(stmt);
+        }
+        Object value = evaluate(stmt.value);
+        if (stmt.depth == Resolver.GLOBAL) {
+            if (globals[stmt.slot] == UNDEFINED) {
+                throw source.error("Undefined variable: " + stmt.name, stmt.token);
+            }
+            globals[stmt.slot] = value;
+        } else {
+            frame[stmt.slot] = value;
+        }
+        return Completion.NORMAL;
+    }
+
+    /**
+     * Executes a compound assignment such as x += 1, reading the variable before evaluating the value
+     * as x = x + 1 would.
+     */
+    private Completion compoundAssign(Stmt.Assign stmt) throws ParseException {
+        if (stmt.depth == Resolver.GLOBAL) {
+            Object old = globals[stmt.slot];
+            if (old == UNDEFINED) {
+                throw source.error("Undefined variable: " + stmt.name, stmt.token);
+            }
+            globals[stmt.slot] = operators.binary(old, stmt.operator, evaluate(stmt.value), stmt.token);
+        } else {
+            Object old = frame[stmt.slot];
+            frame[stmt.slot] = operators.binary(old, stmt.operator, evaluate(stmt.value), stmt.token);
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitIndexAssign(Stmt.IndexAssign stmt) throws ParseException {
+        Object array = evaluate(stmt.target.target);
+        List<Expr> indices = stmt.target.indices;
+        if (indices.size() == 2) {
+            Object row = evaluate(indices.get(0));
+            Object column = evaluate(indices.get(1));
+            Object old = stmt.operator == null ? null : operators.getIndex(array, row, column, stmt.target.token);
+            Object value = evaluate(stmt.value);
+            if (stmt.operator != null) value = operators.binary(old, stmt.operator, value, stmt.token);
+            operators.setIndex(array, row, column, value, stmt.target.token);
+            return Completion.NORMAL;
+        }
+        for (int i = 0; i < indices.size() - 1; i++) {
+            array = operators.getIndex(array, evaluate(indices.get(i)), stmt.target.token);
+        }
+        Object index = evaluate(indices.get(indices.size() - 1));
+
+        boolean inBounds = stmt.target.inBounds;
+        Object old = stmt.operator == null ? null : inBounds
+                ? operators.getIndexInBounds(array, index, stmt.target.token)
+                : operators.getIndex(array, index, stmt.target.token);
+        Object value = evaluate(stmt.value);
+        if (stmt.operator != null) value = operators.binary(old, stmt.operator, value, stmt.token);
+        if (inBounds) {
+            operators.setIndexInBounds(array, index, value, stmt.target.token);
+        } else {
+            operators.setIndex(array, index, value, stmt.target.token);
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitBlock(Stmt.Block stmt) throws ParseException {
+        return executeBlock(stmt.statements);
+    }
+
+    @Override
+    public Completion visitIf(Stmt.If stmt) throws ParseException {
+        if (operators.condition(evaluate(stmt.condition), stmt.condition.token)) {
+            return execute(stmt.thenBranch);
+        } else if (stmt.elseBranch != null) {
+            return execute(stmt.elseBranch);
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitWhile(Stmt.While stmt) throws ParseException {
+        while (operators.condition(evaluate(stmt.condition), stmt.condition.token)) {
+            Completion completion = execute(stmt.body);
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitForEach(Stmt.ForEach stmt) throws ParseException {
+        Object arrayObject = evaluate(stmt.iterable);
+        if (!(arrayObject instanceof List<?> array)) {
+            String message = stmt.iterable instanceof Expr.Variable variable
+                    ? "Variable '" + variable.name + "' is not an array"
+                    : "Expression is not an array";
+            throw source.error(message, stmt.iterable.token);
+        }
+
+        for (int i = 0; i < array.size(); i++) {
+            frame[stmt.slot] = array.get(i);
+
+            Completion completion = execute(stmt.body);
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitForRange(Stmt.ForRange stmt) throws ParseException {
+        Object start = rangeBound(stmt.start);
+        Object end = rangeBound(stmt.end);
+        Object step = stmt.step == null ? mode.valueOf(1) : rangeBound(stmt.step);
+
+        if (mode.signum(step) == 0) {
+            throw source.error("Step cannot be zero", stmt.step.token);
+        }
+        if (mode == NumericMode.DOUBLE) {
+            return doubleRange(stmt, (Double) start, (Double) end, (Double) step);
+        }
+        LongRange range = LongRange.of(start, end, step);
+        if (range != null) {
+            return longRange(stmt, range);
+        }
+
+        boolean ascending = mode.signum(step) > 0;
+        boolean checked = false;
+        for (Object i = start; ascending ? mode.compare(i, end) <= 0 : mode.compare(i, end) >= 0; i = mode.add(i, step)) {
+            // The counter is always a number, so checking the first value covers every iteration
+            if (!checked) {
+                operators.checkType(i, stmt.type, stmt.token);
+                checked = true;
+            }
+            frame[stmt.slot] = i;
+
+            Completion completion = execute(stmt.body);
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    /**
+     * Runs a range loop in the double numeric mode, keeping the counter in a primitive
+     * and boxing it only to store it in the loop variable.
+     */
+    private Completion doubleRange(Stmt.ForRange stmt, double start, double end, double step) throws ParseException {
+        boolean ascending = step > 0;
+        boolean checked = false;
+        for (double i = start; ascending ? i <= end : i >= end; i += step) {
+            Object value = i;
+            if (!checked) {
+                operators.checkType(value, stmt.type, stmt.token);
+                checked = true;
+            }
+            frame[stmt.slot] = value;
+
+            Completion completion = execute(stmt.body);
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    /**
+     * Runs a range loop over integers, keeping the counter in a primitive long.
+     * The loop variable is checked once against the first value, as every later value is an integer too.
+     */
+    private Completion longRange(Stmt.ForRange stmt, LongRange range) throws ParseException {
+        if (range.hasNext()) {
+            operators.checkType(mode.valueOf(range.peek()), stmt.type, stmt.token);
+        }
+        while (range.hasNext()) {
+            frame[stmt.slot] = mode.valueOf(range.next());
+
+            Completion completion = execute(stmt.body);
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    /**
+     * Evaluates a bound or the step of a for loop range.
+     *
+     * @param expr The expression to evaluate.
+     * @return The value, a number.
+     * @throws ParseException If the value is not a number.
+     */
+    private Object rangeBound(Expr expr) throws ParseException {
+        Object value = evaluate(expr);
+        if (!Numbers.isNumber(value)) {
+            throw source.error("Range bounds must be numbers, found " + operators.typeName(value), expr.token);
+        }
+        return value;
+    }
+
+    @Override
+    public Completion visitFunction(Stmt.Function stmt) {
+        // Functions are hoisted by the parser; the declaration itself does nothing at runtime
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitReturn(Stmt.Return stmt) throws ParseException {
+        if (stmt.tailCall != null) {
+            // The caller's callFunction runs the callee in place of the caller
+            Expr.Call call = (Expr.Call) stmt.value;
+            pushArguments(stmt.tailCall, call.arguments);
+            tailFunction = stmt.tailCall;
+            tailCallSite = call.token;
+            return Completion.RETURN;
+        }
+        returnValue = stmt.value == null ? null : evaluate(stmt.value);
+        return Completion.RETURN;
+    }
+
+    @Override
+    public Completion visitBreak(Stmt.Break stmt) {
+        return Completion.BREAK;
+    }
+
+    @Override
+    public Completion visitContinue(Stmt.Continue stmt) {
+        return Completion.CONTINUE;
+    }
+
+    @Override
+    public Object visitLiteral(Expr.Literal expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitInterpolation(Expr.Interpolation expr) throws ParseException {
+        StringBuilder result = new StringBuilder();
+        for (Expr part : expr.parts) {
+            result.append(operators.stringify(evaluate(part)));
+        }
+        return result.toString();
+    }
+
+    @Override
+    public Object visitVariable(Expr.Variable expr) throws ParseException {
+        if (expr.depth == Resolver.LOCAL) {
+            return frame[expr.slot];
+        }
+        Object value = globals[expr.slot];
+        if (value == UNDEFINED) {
+            throw source.error("Undefined variable: " + expr.name, expr.token);
+        }
+        return value;
+    }
+
+    @Override
+    public Object visitArrayLiteral(Expr.ArrayLiteral expr) throws ParseException {
+        List<Object> elements = new ArrayList<>(expr.elements.size());
+        for (Expr element : expr.elements) {
+            elements.add(evaluate(element));
+        }
+        return operators.newArray(elements);
+    }
+
+    @Override
+    public Object visitIndex(Expr.Index expr) throws ParseException {
+        Object value = evaluate(expr.target);
+        if (expr.inBounds) {
+            return operators.getIndexInBounds(value, evaluate(expr.indices.get(0)), expr.token);
+        }
+        if (expr.indices.size() == 2) {
+            Object row = evaluate(expr.indices.get(0));
+            return operators.getIndex(value, row, evaluate(expr.indices.get(1)), expr.token);
+        }
+        for (Expr index : expr.indices) {
+            value = operators.getIndex(value, evaluate(index), expr.token);
+        }
+        return value;
+    }
+
+    @Override
+    public Object visitCall(Expr.Call expr) throws ParseException {
+        if (expr.function != null) {
+            return callFunction(expr.function, expr.arguments, expr.token);
+        }
+        List<Object> arguments = evaluateArguments(expr.arguments);
+
+        // Check if it's a user-defined function
+        Stmt.Function function = program.getFunction(expr.symbol);
+        if (function != null) {
+            checkArity(function, arguments.size(), expr.token);
+            // The call site is checked, so later calls evaluate their arguments straight into the frame
+            expr.function = function;
+            return callFunction(function, pushFrame(function, arguments), expr.token);
+        }
+        // Check if it's a built-in function
+        if (builtins.contains(expr.symbol)) {
+            return builtins.callFunction(expr.cache = cache(expr.cache, expr.symbol), arguments, expr.token);
+        }
+        throw source.error("Undefined function: " + expr.name, expr.token);
+    }
+
+    @Override
+    public Object visitMethodCall(Expr.MethodCall expr) throws ParseException {
+        Object receiver = evaluate(expr.receiver);
+        List<Object> arguments = evaluateArguments(expr.arguments);
+        return builtins.callMethod(receiver, expr.cache = cache(expr.cache, expr.symbol), arguments, expr.token);
+    }
+
+    /**
+     * Gets the inline cache of a call site, making a new one if the site has none for these built-ins.
+     */
+    private MethodCache cache(MethodCache cache, int symbol) {
+        return cache != null && cache.isOf(builtins) ? cache : builtins.cache(symbol);
+    }
+
+    private List<Object> evaluateArguments(List<Expr> expressions) throws ParseException {
+        List<Object> arguments = new ArrayList<>(expressions.size());
+        for (Expr argument : expressions) {
+            arguments.add(evaluate(argument));
+        }
+        return arguments;
+    }
+
+    private void checkArity(Stmt.Function function, int argumentCount, Token at) throws ParseException {
+        if (argumentCount != function.parameters.size()) {
+            throw source.error("Function " + function.name + " expects " + function.parameters.size() +
+                    " arguments, but got " + argumentCount, at);
+        }
+    }
+
+    /**
+     * Takes the frame for a call from the frame stack, without filling it.
+     */
+    private Object[] pushFrame(Stmt.Function function) {
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        Object[] callFrame = frames[frameCount];
+        if (callFrame == null || callFrame.length < function.localCount) {
+            callFrame = frames[frameCount] = new Object[function.localCount];
+        }
+        frameCount++;
+        return callFrame;
+    }
+
+    private Object[] pushFrame(Stmt.Function function, List<Object> arguments) {
+        Object[] callFrame = pushFrame(function);
+        for (int i = 0; i < arguments.size(); i++) {
+            callFrame[i] = arguments.get(i);
+        }
+        return callFrame;
+    }
+
+    /**
+     * Calls a user-defined function from a call site whose arity has been checked,
+     * evaluating the arguments into the parameter slots of a frame from the frame stack.
+     *
+     * @param function  The function to execute.
+     * @param arguments The argument expressions of the call.
+     * @param at        The token of the call, used for error reporting.
+     * @return The return value of the function, or null if it doesn't return a value.
+     * @throws ParseException If an error occurs during function execution.
+     */
+    private Object callFunction(Stmt.Function function, List<Expr> arguments, Token at) throws ParseException {
+        return callFunction(function, pushArguments(function, arguments), at);
+    }
+
+    /**
+     * Takes the frame for a call from the frame stack and evaluates the arguments into its parameter slots.
+     *
+     * @return The frame, on top of the frame stack.
+     * @throws ParseException If an error occurs evaluating an argument, in which case the frame is popped.
+     */
+    private Object[] pushArguments(Stmt.Function function, List<Expr> arguments) throws ParseException {
+        Object[] callFrame = pushFrame(function);
+        try {
+            // Calls made by the arguments take the frames above this one
+            for (int i = 0; i < arguments.size(); i++) {
+                callFrame[i] = evaluate(arguments.get(i));
+            }
+        } catch (ParseException | RuntimeException | Error e) {
+            popFrame(function);
+            throw e;
+        }
+        return callFrame;
+    }
+
+    /**
+     * Executes a user-defined function in the frame on top of the frame stack, and pops the frame.
+     * A tail call made by the function replaces it in the frame stack and in this loop, so chains
+     * of tail calls run in constant space; errors of its result are reported at the tail call.
+     *
+     * @param function  The function to execute.
+     * @param callFrame The frame of the call, with the arguments in its first slots.
+     * @param at        The token of the call, used for error reporting.
+     * @return The return value of the function, or null if it doesn't return a value.
+     * @throws ParseException If an error occurs during function execution.
+     */
+    private Object callFunction(Stmt.Function function, Object[] callFrame, Token at) throws ParseException {
+        MemoCache memo = null;
+        Object key = null;
+        if (function.memoized) {
+            memo = memoCaches.computeIfAbsent(function, f -> new MemoCache(f.name, MemoCache.DEFAULT_CAPACITY));
+            key = MemoCache.key(callFrame, 0, function.parameters.size());
+            Object cached = memo.get(key);
+            if (cached != null) {
+                popFrame(function);
+                return cached;
+            }
+        }
+
+        Object[] previous = frame;
+        Completion completion;
+        try {
+            while (true) {
+                frame = callFrame;
+                completion = executeBlock(function.body);
+                if (tailFunction == null) break;
+
+                // Swap the callee's frame below the caller's, then pop the caller's, which is no longer needed
+                Object[] calleeFrame = frames[frameCount - 1];
+                frames[frameCount - 1] = callFrame;
+                frames[frameCount - 2] = calleeFrame;
+                popFrame(function);
+                callFrame = calleeFrame;
+                function = tailFunction;
+                at = tailCallSite;
+                tailFunction = null;
+                tailCallSite = null;
+            }
+        } finally {
+            frame = previous;
+            popFrame(function);
+        }
+        Object result = returnValue;
+        returnValue = null;
+
+        if (function.returnsVoid) {
+            return null;
+        }
+        // Check for missing return statement in non-void functions
+        if (completion != Completion.RETURN) {
+            throw source.error("Missing return statement in function '" + function.name + "'", at);
+        }
+        // Type check the returned value
+        operators.checkType(result, function.returnType, at);
+        if (memo != null) memo.put(key, result);
+        return result;
+    }
+
+    private void popFrame(Stmt.Function function) {
+        // Drop the references held by the frame, so that it does not keep values alive until it is reused
+        Arrays.fill(frames[--frameCount], 0, function.localCount, null);
+    }
+
+    @Override
+    public Object visitBinary(Expr.Binary expr) throws ParseException {
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
+
+        switch (expr.specialization) {
+            case NUMBER -> {
+                if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+                    return numberOperation(expr, left, right);
+                }
+            }
+            case STRING -> {
+                if (left instanceof String l && right instanceof String r) {
+                    return stringOperation(expr.operator, l, r);
+                }
+            }
+            case BOOLEAN -> {
+                if (left instanceof Boolean l && right instanceof Boolean r) {
+                    return booleanOperation(expr.operator, l, r);
+                }
+            }
+            case UNINITIALIZED -> {
+                Object result = operators.binary(left, expr.operator, right, expr.token);
+                expr.specialization = specialize(expr.operator, left, right);
+                return result;
+            }
+            case GENERIC -> {
+                return operators.binary(left, expr.operator, right, expr.token);
+            }
+        }
+
+        // The guard of the specialization failed, so the operation stays generic from now on
+        expr.specialization = Expr.Binary.Specialization.GENERIC;
+        return operators.binary(left, expr.operator, right, expr.token);
+    }
+
+    /**
+     * Chooses the specialization of a binary operation from the operands of its first evaluation.
+     */
+    private static Expr.Binary.Specialization specialize(String operator, Object left, Object right) {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return Expr.Binary.Specialization.NUMBER;
+        } else if (left instanceof String && right instanceof String) {
+            return switch (operator) {
+                case Token.PLUS, Token.EQUAL_EQUAL, Token.NOT_EQUAL -> Expr.Binary.Specialization.STRING;
+                default -> Expr.Binary.Specialization.GENERIC;
+            };
+        } else if (left instanceof Boolean && right instanceof Boolean) {
+            return switch (operator) {
+                case Token.EQUAL_EQUAL, Token.NOT_EQUAL -> Expr.Binary.Specialization.BOOLEAN;
+                default -> Expr.Binary.Specialization.GENERIC;
+            };
+        }
+        return Expr.Binary.Specialization.GENERIC;
+    }
+
+    private Object numberOperation(Expr.Binary expr, Object left, Object right) throws ParseException {
+        return switch (expr.operator) {
+            case Token.PLUS -> mode.add(left, right);
+            case Token.MINUS -> mode.subtract(left, right);
+            case Token.ASTERISK -> mode.multiply(left, right);
+            case Token.SLASH -> operators.divide(left, right, expr.token);
+            case Token.PERCENT -> operators.remainder(left, right, expr.token);
+            case Token.EQUAL_EQUAL -> mode.compare(left, right) == 0;
+            case Token.NOT_EQUAL -> mode.compare(left, right) != 0;
+            case Token.LESS_THAN -> mode.compare(left, right) < 0;
+            case Token.GREATER_THAN -> mode.compare(left, right) > 0;
+            case Token.LESS_THAN_OR_EQUAL -> mode.compare(left, right) <= 0;
+            case Token.GREATER_THAN_OR_EQUAL -> mode.compare(left, right) >= 0;
+            default -> operators.binary(left, expr.operator, right, expr.token);
+        };
+    }
+
+    private static Object stringOperation(String operator, String left, String right) {
+        return switch (operator) {
+            case Token.PLUS -> left.concat(right);
+            case Token.EQUAL_EQUAL -> left.equals(right);
+            default -> !left.equals(right);
+        };
+    }
+
+    private static Object booleanOperation(String operator, Boolean left, Boolean right) {
+        return operator.equals(Token.EQUAL_EQUAL) ? left.equals(right) : !left.equals(right);
+    }
+
+    @Override
+    public Object visitLogical(Expr.Logical expr) throws ParseException {
+        Object left = evaluate(expr.left);
+        // A left operand that decides the result is the result; any other one is checked with the right
+        if (left instanceof Boolean && (Boolean) left == expr.operator.equals(Token.OR)) {
+            return left;
+        }
+        Object right = evaluate(expr.right);
+        return expr.operator.equals(Token.AND)
+                ? operators.and(left, right, expr.token)
+                : operators.or(left, right, expr.token);
+    }
+
+    @Override
+    public Object visitUnary(Expr.Unary expr) throws ParseException {
+        Object operand = evaluate(expr.operand);
+        return expr.operator.equals(Token.BANG)
+                ? operators.not(operand, expr.token)
+                : operators.bitwiseNot(operand, expr.token);
+    }
+
+    @Override
+    public Object visitTypeCheck(Expr.TypeCheck expr) throws ParseException {
+        return operators.evaluateIs(evaluate(expr.value), expr.type, expr.token);
+    }
+
+    @Override
+    public Object visitCast(Expr.Cast expr) throws ParseException {
+        return operators.evaluateAs(evaluate(expr.value), expr.type, expr.token);
+    }
+}
@@ -0,0 +1,394 @@
+package io.github._3xhaust.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer for JVM class files, covering just what the JIT compiler needs:
+ * static fields, static methods and the instructions used to call into the runtime.
+ * Classes are written with version 49 so that the verifier infers frame types itself
+ * and no StackMapTable has to be computed.
+ */
+final class ClassFileWriter {
+    private static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final String className;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndices = new HashMap<>();
+    private int poolCount = 1;
+
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    /**
+     * @param className The internal name of the class, such as "io/github/_3xhaust/jit/Code".
+     */
+    ClassFileWriter(String className) {
+        this.className = className;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Adds a method whose code has been fully emitted.
+     */
+    void addMethod(int access, String name, String descriptor, Code code) {
+        byte[] instructions = code.toByteArray();
+        if (instructions.length > 65535) {
+            throw new JitException("Method " + name + " is too large");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1); // attributes
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            out.write(pool.toByteArray());
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(fields.size());
+            for (byte[] field : fields) out.write(field);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) out.write(method);
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // ----- Constant pool -----
+
+    private int constant(String key, int tag, PoolEntryWriter writer) {
+        Integer index = poolIndices.get(key);
+        if (index != null) return index;
+        try {
+            poolOut.writeByte(tag);
+            writer.write(poolOut);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        poolIndices.put(key, poolCount);
+        if (poolCount == 65535) {
+            throw new JitException("Constant pool is too large");
+        }
+        return poolCount++;
+    }
+
+    private interface PoolEntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, 1, out -> out.writeUTF(value));
+    }
+
+    int integer(int value) {
+        return constant("I" + value, 3, out -> out.writeInt(value));
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, 7, out -> out.writeShort(name));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return constant("N" + name + ":" + descriptor, 12, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return constant(tag + owner + "." + name + ":" + descriptor, tag, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    /**
+     * The instructions of one method. Tracks the operand stack depth as instructions are emitted,
+     * which is exact for the structured code the JIT compiler produces.
+     */
+    final class Code {
+        private byte[] code = new byte[256];
+        private int length = 0;
+        private int stack = 0;
+        int maxStack = 0;
+        int maxLocals;
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        int position() {
+            return length;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[length];
+            System.arraycopy(code, 0, result, 0, length);
+            return result;
+        }
+
+        private void adjustStack(int delta) {
+            stack += delta;
+            if (stack > maxStack) maxStack = stack;
+        }
+
+        private void u1(int value) {
+            if (length == code.length) {
+                byte[] grown = new byte[code.length * 2];
+                System.arraycopy(code, 0, grown, 0, length);
+                code = grown;
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        void op(int opCode, int stackDelta) {
+            u1(opCode);
+            adjustStack(stackDelta);
+        }
+
+        void pushNull() {
+            op(0x01, 1); // aconst_null
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                op(0x03 + value, 1); // iconst_<n>
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(0x10, 1); // bipush
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(0x11, 1); // sipush
+                u2(value);
+            } else {
+                op(0x13, 1); // ldc_w
+                u2(integer(value));
+            }
+        }
+
+        private void local(int opCode, int index, int stackDelta) {
+            maxLocals = Math.max(maxLocals, index + 1);
+            if (index > 255) {
+                u1(0xC4); // wide
+                op(opCode, stackDelta);
+                u2(index);
+            } else {
+                op(opCode, stackDelta);
+                u1(index);
+            }
+        }
+
+        void aload(int index) {
+            local(0x19, index, 1);
+        }
+
+        void astore(int index) {
+            local(0x3A, index, -1);
+        }
+
+        void iload(int index) {
+            local(0x15, index, 1);
+        }
+
+        void istore(int index) {
+            local(0x36, index, -1);
+        }
+
+        void iinc(int index, int amount) {
+            maxLocals = Math.max(maxLocals, index + 1);
+            if (index > 255) {
+                u1(0xC4); // wide
+                u1(0x84);
+                u2(index);
+                u2(amount);
+            } else {
+                u1(0x84);
+                u1(index);
+                u1(amount);
+            }
+        }
+
+        void pop() {
+            op(0x57, -1);
+        }
+
+        void dup() {
+            op(0x59, 1);
+        }
+
+        void aaload() {
+            op(0x32, -1);
+        }
+
+        void aastore() {
+            op(0x53, -3);
+        }
+
+        void areturn() {
+            op(0xB0, -1);
+        }
+
+        void anewarray(String internalName) {
+            op(0xBD, 0);
+            u2(classRef(internalName));
+        }
+
+        void checkcast(String internalName) {
+            op(0xC0, 0);
+            u2(classRef(internalName));
+        }
+
+        void getstatic(String owner, String name, String descriptor) {
+            op(0xB2, 1);
+            u2(fieldRef(owner, name, descriptor));
+        }
+
+        void putstatic(String owner, String name, String descriptor) {
+            op(0xB3, -1);
+            u2(fieldRef(owner, name, descriptor));
+        }
+
+        void invokestatic(String owner, String name, String descriptor) {
+            op(0xB8, returnSize(descriptor) - argumentSize(descriptor));
+            u2(methodRef(owner, name, descriptor));
+        }
+
+        void invokeinterface(String owner, String name, String descriptor) {
+            int arguments = argumentSize(descriptor) + 1;
+            op(0xB9, returnSize(descriptor) - arguments);
+            u2(interfaceMethodRef(owner, name, descriptor));
+            u1(arguments);
+            u1(0);
+        }
+
+        /**
+         * Emits a branch instruction with a placeholder offset.
+         *
+         * @param opCode     The branch opcode, such as goto or ifeq.
+         * @param stackDelta The effect of the instruction on the operand stack.
+         * @return The position of the instruction, to be passed to {@link #patchBranch}.
+         */
+        int branch(int opCode, int stackDelta) {
+            int position = length;
+            op(opCode, stackDelta);
+            u2(0);
+            return position;
+        }
+
+        void patchBranch(int position, int target) {
+            int offset = target - position;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new JitException("Branch offset is too large");
+            }
+            code[position + 1] = (byte) (offset >> 8);
+            code[position + 2] = (byte) offset;
+        }
+    }
+
+    static final int GOTO = 0xA7;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFLT = 0x9B;
+    static final int IF_ICMPGE = 0xA2;
+
+    /**
+     * Counts the argument slots of a method descriptor. Only reference, int and boolean
+     * arguments are expected, each of which takes a single slot.
+     */
+    private static int argumentSize(String descriptor) {
+        int size = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'L') {
+                i = descriptor.indexOf(';', i);
+            } else if (c == '[') {
+                i++;
+                continue;
+            }
+            size++;
+            i++;
+        }
+        return size;
+    }
+
+    private static int returnSize(String descriptor) {
+        return descriptor.endsWith(")V") ? 0 : 1;
+    }
+}
@@ -0,0 +1,533 @@
+package io.github._3xhaust.jit;
+
+import io.github._3xhaust.compiler.CodeObject;
+import io.github._3xhaust.compiler.CompiledProgram;
+import io.github._3xhaust.compiler.OpCode;
+import io.github._3xhaust.token.Token;
+
+import java.util.*;
+
+/**
+ * Translates the bytecode of the virtual machine into a JVM class, one static method per function.
+ * The operand stack and local slots of the virtual machine map directly onto those of the JVM;
+ * every operation on values is a call to a static helper of {@link JitRuntime}.
+ * <p>
+ * A function that cannot be translated, for example because its method would exceed the limits
+ * of the class file format, is called through the virtual machine instead.
+ */
+final class JitCompiler {
+    static final String MAIN = "main";
+
+    private static final String CLASS_NAME = "io/github/_3xhaust/jit/CompiledCode";
+    private static final String RUNTIME = "io/github/_3xhaust/jit/JitRuntime";
+    private static final String RUNTIME_TYPE = "L" + RUNTIME + ";";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String OBJECT_TYPE = "Ljava/lang/Object;";
+    private static final String OBJECT_ARRAY_TYPE = "[Ljava/lang/Object;";
+    private static final String LIST = "java/util/List";
+
+    // Helper descriptors, named after the operands they take before the runtime
+    private static final String BINARY = "(" + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + "I)" + OBJECT_TYPE;
+    private static final String UNARY_WITH_CONSTANT = "(" + OBJECT_TYPE + RUNTIME_TYPE + "II)" + OBJECT_TYPE;
+    private static final String ARRAY_CALL = "(" + OBJECT_ARRAY_TYPE + RUNTIME_TYPE + "II)" + OBJECT_TYPE;
+
+    private final CompiledProgram program;
+    // Functions that are compiled to methods; the others are called through the virtual machine
+    private final boolean[] compiled;
+
+    private ClassFileWriter writer;
+    private List<Token> sites;
+    private Map<Token, Integer> siteIndices;
+
+    JitCompiler(CompiledProgram program) {
+        this.program = program;
+        this.compiled = new boolean[program.functions.length];
+        Arrays.fill(compiled, true);
+    }
+
+    /**
+     * Gets the tokens referenced by the sites of the generated code.
+     */
+    Token[] getSites() {
+        return sites.toArray(new Token[0]);
+    }
+
+    /**
+     * Generates the class file.
+     * A function that fails to compile changes how its callers are compiled, so the class
+     * is regenerated until every remaining function compiles.
+     *
+     * @return The bytes of the class file.
+     * @throws JitException If the top-level program cannot be compiled.
+     */
+    byte[] compile() {
+        while (true) {
+            writer = new ClassFileWriter(CLASS_NAME);
+            sites = new ArrayList<>();
+            siteIndices = new IdentityHashMap<>();
+
+            boolean changed = false;
+            for (int i = 0; i < program.functions.length; i++) {
+                if (!compiled[i]) continue;
+                CodeObject function = program.functions[i];
+                try {
+                    if (function.parameterCount > 254) {
+                        throw new JitException("Too many parameters");
+                    }
+                    if (function.memoized) {
+                        // Calls go through the virtual machine, which keeps the cache
+                        throw new JitException("Memoized function");
+                    }
+                    writer.addMethod(ClassFileWriter.ACC_STATIC, methodName(i),
+                            methodDescriptor(function.parameterCount), translate(function, i));
+                } catch (JitException e) {
+                    compiled[i] = false;
+                    changed = true;
+                }
+            }
+            if (changed) continue;
+
+            writer.addMethod(ClassFileWriter.ACC_STATIC, MAIN, "()" + OBJECT_TYPE, translate(program.main, -1));
+            writeFields();
+            return writer.toByteArray();
+        }
+    }
+
+    private static String methodName(int functionIndex) {
+        return "f" + functionIndex;
+    }
+
+    private static String methodDescriptor(int parameterCount) {
+        return "(" + OBJECT_TYPE.repeat(parameterCount) + ")" + OBJECT_TYPE;
+    }
+
+    /**
+     * Adds the static fields holding the runtime and the constant pool, and their initializer.
+     */
+    private void writeFields() {
+        int access = ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_STATIC | ClassFileWriter.ACC_FINAL;
+        writer.addField(access, "RT", RUNTIME_TYPE);
+        writer.addField(access, "K", OBJECT_ARRAY_TYPE);
+
+        ClassFileWriter.Code code = writer.new Code(0);
+        code.invokestatic(RUNTIME, "pending", "()" + RUNTIME_TYPE);
+        code.dup();
+        code.putstatic(CLASS_NAME, "RT", RUNTIME_TYPE);
+        code.invokestatic(RUNTIME, "constants", "(" + RUNTIME_TYPE + ")" + OBJECT_ARRAY_TYPE);
+        code.putstatic(CLASS_NAME, "K", OBJECT_ARRAY_TYPE);
+        code.op(0xB1, 0); // return
+        writer.addMethod(ClassFileWriter.ACC_STATIC, "<clinit>", "()V", code);
+    }
+
+    private int site(Token token) {
+        return siteIndices.computeIfAbsent(token, key -> {
+            sites.add(key);
+            return sites.size() - 1;
+        });
+    }
+
+    /**
+     * Translates the bytecode of one function.
+     * The compiler only jumps between statements, where the operand stack is empty, and from the
+     * left operand of '&&' and '||' past the right one, leaving the left as the result; either way
+     * the depth at the target is the one reached by running straight to it, so it can be tracked linearly.
+     * <p>
+     * A tail call of the function itself stores the arguments in the parameters and jumps back to
+     * the start, so it runs in constant stack space. Other tail calls are plain calls.
+     *
+     * @param functionIndex The index of the function, or -1 for the top-level program.
+     */
+    private ClassFileWriter.Code translate(CodeObject function, int functionIndex) {
+        int[] vmCode = function.code;
+        boolean selfTailCalls = hasSelfTailCall(function, functionIndex);
+        // Site of the last self tail call, or -1, kept to check the result where the VM would
+        int tailSite = function.localCount;
+        // Locals after the function's own slots hold values while arrays of arguments are built
+        int scratch = selfTailCalls ? tailSite + 1 : function.localCount;
+        ClassFileWriter.Code code = writer.new Code(function.localCount);
+
+        if (selfTailCalls) {
+            code.pushInt(-1);
+            code.istore(tailSite);
+        }
+        int start = code.position();
+        for (int slot = function.parameterCount; slot < function.localCount; slot++) {
+            code.pushNull();
+            code.astore(slot);
+        }
+
+        int[] offsets = new int[vmCode.length];
+        List<int[]> branches = new ArrayList<>(); // JVM position of the branch, VM target
+        int ip = 0;
+        while (ip < vmCode.length) {
+            offsets[ip] = code.position();
+            int opCode = vmCode[ip];
+            int site = function.positions[ip] == null ? -1 : site(function.positions[ip]);
+            int a = OpCode.operandCount(opCode) > 0 ? vmCode[ip + 1] : 0;
+            int b = OpCode.operandCount(opCode) > 1 ? vmCode[ip + 2] : 0;
+
+            switch (opCode) {
+                case OpCode.CONSTANT -> {
+                    code.getstatic(CLASS_NAME, "K", OBJECT_ARRAY_TYPE);
+                    code.pushInt(a);
+                    code.aaload();
+                }
+                case OpCode.POP -> code.pop();
+
+                case OpCode.GET_LOCAL -> code.aload(a);
+                case OpCode.SET_LOCAL -> code.astore(a);
+                case OpCode.GET_GLOBAL -> {
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "getGlobal", "(" + RUNTIME_TYPE + "II)" + OBJECT_TYPE);
+                }
+                case OpCode.SET_GLOBAL, OpCode.DEFINE_GLOBAL -> {
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, opCode == OpCode.SET_GLOBAL ? "setGlobal" : "defineGlobal",
+                            "(" + OBJECT_TYPE + RUNTIME_TYPE + "II)V");
+                }
+
+                case OpCode.ADD -> binary(code, "add", site);
+                case OpCode.SUBTRACT -> binary(code, "subtract", site);
+                case OpCode.MULTIPLY -> binary(code, "multiply", site);
+                case OpCode.DIVIDE -> binary(code, "divide", site);
+                case OpCode.REMAINDER -> binary(code, "remainder", site);
+                case OpCode.EQUAL -> binary(code, "equal", site);
+                case OpCode.NOT_EQUAL -> binary(code, "notEqual", site);
+                case OpCode.LESS -> binary(code, "lessThan", site);
+                case OpCode.GREATER -> binary(code, "greaterThan", site);
+                case OpCode.LESS_EQUAL -> binary(code, "lessThanOrEqual", site);
+                case OpCode.GREATER_EQUAL -> binary(code, "greaterThanOrEqual", site);
+                case OpCode.AND -> binary(code, "and", site);
+                case OpCode.OR -> binary(code, "or", site);
+                case OpCode.BIT_AND -> binary(code, "bitwiseAnd", site);
+                case OpCode.BIT_OR -> binary(code, "bitwiseOr", site);
+                case OpCode.BIT_XOR -> binary(code, "bitwiseXor", site);
+                case OpCode.SHIFT_LEFT -> binary(code, "shiftLeft", site);
+                case OpCode.SHIFT_RIGHT -> binary(code, "shiftRight", site);
+
+                case OpCode.NOT, OpCode.BIT_NOT -> {
+                    runtime(code);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, opCode == OpCode.NOT ? "not" : "bitwiseNot",
+                            "(" + OBJECT_TYPE + RUNTIME_TYPE + "I)" + OBJECT_TYPE);
+                }
+
+                case OpCode.IS, OpCode.AS -> {
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, opCode == OpCode.IS ? "is" : "as", UNARY_WITH_CONSTANT);
+                }
+                case OpCode.CHECK_TYPE -> {
+                    code.dup();
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "checkType", "(" + OBJECT_TYPE + RUNTIME_TYPE + "II)V");
+                }
+
+                case OpCode.INTERPOLATE, OpCode.ARRAY -> {
+                    collect(code, a, scratch);
+                    runtime(code);
+                    code.invokestatic(RUNTIME, opCode == OpCode.INTERPOLATE ? "interpolate" : "newArray",
+                            "(" + OBJECT_ARRAY_TYPE + RUNTIME_TYPE + ")" + OBJECT_TYPE);
+                }
+                case OpCode.INDEX -> {
+                    if (a == 2) {
+                        runtime(code);
+                        code.pushInt(site);
+                        code.invokestatic(RUNTIME, "getIndex2", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE +
+                                RUNTIME_TYPE + "I)" + OBJECT_TYPE);
+                    } else {
+                        spill(code, a, scratch);
+                        for (int i = 0; i < a; i++) {
+                            code.aload(scratch + i);
+                            getIndex(code, site);
+                        }
+                    }
+                }
+                case OpCode.INDEX_KEEP -> {
+                    spill(code, a + 1, scratch); // the array and the indices
+                    for (int i = 0; i <= a; i++) {
+                        code.aload(scratch + i);
+                    }
+                    code.aload(scratch);
+                    if (a == 2) {
+                        code.aload(scratch + 1);
+                        code.aload(scratch + 2);
+                        runtime(code);
+                        code.pushInt(site);
+                        code.invokestatic(RUNTIME, "getIndex2", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE +
+                                RUNTIME_TYPE + "I)" + OBJECT_TYPE);
+                    } else {
+                        for (int i = 1; i <= a; i++) {
+                            code.aload(scratch + i);
+                            getIndex(code, site);
+                        }
+                    }
+                }
+                case OpCode.SET_INDEX -> {
+                    if (a == 2) {
+                        runtime(code);
+                        code.pushInt(site);
+                        code.invokestatic(RUNTIME, "setIndex2", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE +
+                                OBJECT_TYPE + RUNTIME_TYPE + "I)V");
+                    } else {
+                        spill(code, a + 1, scratch); // the indices and the value
+                        for (int i = 0; i < a - 1; i++) {
+                            code.aload(scratch + i);
+                            getIndex(code, site);
+                        }
+                        code.aload(scratch + a - 1);
+                        code.aload(scratch + a);
+                        runtime(code);
+                        code.pushInt(site);
+                        code.invokestatic(RUNTIME, "setIndex", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + "I)V");
+                    }
+                }
+                case OpCode.INDEX_IN_BOUNDS -> binary(code, "getIndexInBounds", site);
+                case OpCode.SET_INDEX_IN_BOUNDS -> {
+                    runtime(code);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "setIndexInBounds", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + "I)V");
+                }
+
+                case OpCode.JUMP -> branches.add(new int[]{code.branch(ClassFileWriter.GOTO, 0), a});
+                case OpCode.JUMP_IF_FALSE_KEEP, OpCode.JUMP_IF_TRUE_KEEP -> {
+                    code.dup();
+                    code.invokestatic(RUNTIME, opCode == OpCode.JUMP_IF_FALSE_KEEP ? "isFalse" : "isTrue",
+                            "(" + OBJECT_TYPE + ")Z");
+                    branches.add(new int[]{code.branch(ClassFileWriter.IFNE, -1), a});
+                }
+                case OpCode.JUMP_IF_FALSE -> {
+                    runtime(code);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "condition", "(" + OBJECT_TYPE + RUNTIME_TYPE + "I)Z");
+                    branches.add(new int[]{code.branch(ClassFileWriter.IFEQ, -1), a});
+                }
+                case OpCode.FOR_EACH_PREP -> {
+                    runtime(code);
+                    code.pushInt(b);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "forEachArray", UNARY_WITH_CONSTANT);
+                    code.astore(a);
+                    code.pushInt(0);
+                    code.istore(a + 1);
+                }
+                case OpCode.FOR_EACH_NEXT -> {
+                    int exit = vmCode[ip + 3];
+                    code.iload(a + 1);
+                    code.aload(a);
+                    code.checkcast(LIST);
+                    code.invokeinterface(LIST, "size", "()I");
+                    branches.add(new int[]{code.branch(ClassFileWriter.IF_ICMPGE, -2), exit});
+                    code.aload(a);
+                    code.checkcast(LIST);
+                    code.iload(a + 1);
+                    code.invokeinterface(LIST, "get", "(I)" + OBJECT_TYPE);
+                    code.astore(b);
+                    code.iinc(a + 1, 1);
+                }
+                case OpCode.RANGE_PREP -> {
+                    code.dup();
+                    runtime(code);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "checkStep", "(" + OBJECT_TYPE + RUNTIME_TYPE + "I)V");
+                    code.astore(a + 2);
+                    code.astore(a + 1);
+                    code.aload(a + 1);
+                    code.aload(a + 2);
+                    code.invokestatic(RUNTIME, "rangeStart", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE + ")" + OBJECT_TYPE);
+                    code.astore(a);
+                }
+                case OpCode.RANGE_CHECK -> {
+                    code.aload(a);
+                    code.aload(a + 1);
+                    code.aload(a + 2);
+                    runtime(code);
+                    code.pushInt(b);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "checkRange",
+                            "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + "II)V");
+                }
+                case OpCode.RANGE_BOUND -> {
+                    code.dup();
+                    runtime(code);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "checkRangeBound", "(" + OBJECT_TYPE + RUNTIME_TYPE + "I)V");
+                }
+                case OpCode.RANGE_NEXT -> {
+                    int exit = vmCode[ip + 3];
+                    code.aload(a);
+                    code.aload(a + 1);
+                    code.aload(a + 2);
+                    runtime(code);
+                    code.invokestatic(RUNTIME, "rangeDone", "(" + OBJECT_TYPE + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + ")Z");
+                    branches.add(new int[]{code.branch(ClassFileWriter.IFNE, -1), exit});
+                    code.aload(a);
+                    runtime(code);
+                    code.invokestatic(RUNTIME, "rangeValue", "(" + OBJECT_TYPE + RUNTIME_TYPE + ")" + OBJECT_TYPE);
+                    code.astore(b);
+                    code.aload(a);
+                    code.aload(a + 2);
+                    runtime(code);
+                    code.invokestatic(RUNTIME, "rangeStep", "(" + OBJECT_TYPE + OBJECT_TYPE + RUNTIME_TYPE + ")" + OBJECT_TYPE);
+                    code.astore(a);
+                }
+
+                case OpCode.CALL -> call(code, a, b, site, scratch);
+                case OpCode.TAIL_CALL -> {
+                    if (a == functionIndex) {
+                        for (int i = b - 1; i >= 0; i--) {
+                            code.astore(i);
+                        }
+                        code.pushInt(site);
+                        code.istore(tailSite);
+                        code.patchBranch(code.branch(ClassFileWriter.GOTO, 0), start);
+                    } else {
+                        // Only a loop can reuse the frame of a method, so the virtual machine runs the function
+                        throw new JitException("Tail call to another function");
+                    }
+                }
+                case OpCode.CALL_BUILTIN -> {
+                    collect(code, b, scratch);
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "callBuiltin", ARRAY_CALL);
+                }
+                case OpCode.INVOKE -> {
+                    collect(code, b, scratch);
+                    runtime(code);
+                    code.pushInt(a);
+                    code.pushInt(site);
+                    code.invokestatic(RUNTIME, "invoke", "(" + OBJECT_TYPE + OBJECT_ARRAY_TYPE + RUNTIME_TYPE + "II)" + OBJECT_TYPE);
+                }
+                case OpCode.RETURN -> returnResult(code, function, functionIndex, selfTailCalls, tailSite);
+                case OpCode.RETURN_VOID, OpCode.HALT -> {
+                    code.pushNull();
+                    code.areturn();
+                }
+                case OpCode.MISSING_RETURN -> {
+                    code.getstatic(RUNTIME, "MISSING_RETURN", OBJECT_TYPE);
+                    returnResult(code, function, functionIndex, selfTailCalls, tailSite);
+                }
+
+                case OpCode.PRINT -> {
+                    collect(code, a, scratch);
+                    runtime(code);
+                    code.pushInt(b);
+                    code.invokestatic(RUNTIME, "print", "(" + OBJECT_ARRAY_TYPE + RUNTIME_TYPE + "Z)V");
+                }
+                default -> throw new JitException("Unsupported opcode: " + OpCode.name(opCode));
+            }
+            ip += 1 + OpCode.operandCount(opCode);
+        }
+
+        for (int[] branch : branches) {
+            code.patchBranch(branch[0], offsets[branch[1]]);
+        }
+        return code;
+    }
+
+    private static boolean hasSelfTailCall(CodeObject function, int functionIndex) {
+        int[] vmCode = function.code;
+        for (int ip = 0; ip < vmCode.length; ip += 1 + OpCode.operandCount(vmCode[ip])) {
+            if (vmCode[ip] == OpCode.TAIL_CALL && vmCode[ip + 1] == functionIndex) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value on top of the stack. The caller checks it against the return type at its call,
+     * so a function that tail-called itself first checks it at the last tail call, whose result it is.
+     */
+    private void returnResult(ClassFileWriter.Code code, CodeObject function, int functionIndex,
+                              boolean selfTailCalls, int tailSite) {
+        if (function.returnsVoid) {
+            code.pop();
+            code.pushNull();
+        } else if (selfTailCalls) {
+            code.iload(tailSite);
+            int skip = code.branch(ClassFileWriter.IFLT, -1);
+            runtime(code);
+            code.pushInt(functionIndex);
+            code.iload(tailSite);
+            code.invokestatic(RUNTIME, "checkReturn", UNARY_WITH_CONSTANT);
+            code.patchBranch(skip, code.position());
+        }
+        code.areturn();
+    }
+
+    private void runtime(ClassFileWriter.Code code) {
+        code.getstatic(CLASS_NAME, "RT", RUNTIME_TYPE);
+    }
+
+    private void binary(ClassFileWriter.Code code, String helper, int site) {
+        runtime(code);
+        code.pushInt(site);
+        code.invokestatic(RUNTIME, helper, BINARY);
+    }
+
+    private void getIndex(ClassFileWriter.Code code, int site) {
+        runtime(code);
+        code.pushInt(site);
+        code.invokestatic(RUNTIME, "getIndex", BINARY);
+    }
+
+    /**
+     * Moves the top values of the operand stack into scratch locals, the deepest into the first.
+     */
+    private void spill(ClassFileWriter.Code code, int count, int scratch) {
+        for (int i = count - 1; i >= 0; i--) {
+            code.astore(scratch + i);
+        }
+    }
+
+    /**
+     * Replaces the top values of the operand stack with an Object[] holding them in order.
+     */
+    private void collect(ClassFileWriter.Code code, int count, int scratch) {
+        spill(code, count, scratch);
+        code.pushInt(count);
+        code.anewarray(OBJECT);
+        for (int i = 0; i < count; i++) {
+            code.dup();
+            code.pushInt(i);
+            code.aload(scratch + i);
+            code.aastore();
+        }
+    }
+
+    private void call(ClassFileWriter.Code code, int functionIndex, int argumentCount, int site, int scratch) {
+        CodeObject function = program.functions[functionIndex];
+        if (argumentCount != function.parameterCount) {
+            for (int i = 0; i < argumentCount; i++) {
+                code.pop();
+            }
+            runtime(code);
+            code.pushInt(functionIndex);
+            code.pushInt(argumentCount);
+            code.pushInt(site);
+            code.invokestatic(RUNTIME, "arityError", "(" + RUNTIME_TYPE + "III)" + OBJECT_TYPE);
+        } else if (!compiled[functionIndex]) {
+            collect(code, argumentCount, scratch);
+            runtime(code);
+            code.pushInt(functionIndex);
+            code.pushInt(site);
+            code.invokestatic(RUNTIME, "callInterpreted", ARRAY_CALL);
+        } else {
+            code.invokestatic(CLASS_NAME, methodName(functionIndex), methodDescriptor(argumentCount));
+            if (!function.returnsVoid) {
+                runtime(code);
+                code.pushInt(functionIndex);
+                code.pushInt(site);
+                code.invokestatic(RUNTIME, "checkReturn", UNARY_WITH_CONSTANT);
+            }
+        }
+    }
+}
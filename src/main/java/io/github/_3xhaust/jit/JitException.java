@@ -0,0 +1,12 @@
+package io.github._3xhaust.jit;
+
+/**
+ * Thrown when a function cannot be compiled to JVM bytecode, so that it is interpreted instead.
+ */
+class JitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    JitException(String message) {
+        super(message);
+    }
+}
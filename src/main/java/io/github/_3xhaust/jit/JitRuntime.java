@@ -0,0 +1,396 @@
+package io.github._3xhaust.jit;
+
+import io.github._3xhaust.compiler.CodeObject;
+import io.github._3xhaust.compiler.CompiledProgram;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.Builtins;
+import io.github._3xhaust.runtime.LongRange;
+import io.github._3xhaust.runtime.MemoCache;
+import io.github._3xhaust.runtime.MethodCache;
+import io.github._3xhaust.runtime.Numbers;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.runtime.Operators;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.Token;
+import io.github._3xhaust.vm.VirtualMachine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a compiled program as JVM bytecode generated by the {@link JitCompiler}.
+ * The generated code calls the static helpers of this class for everything beyond moving values
+ * between locals, and functions that could not be compiled run on a {@link VirtualMachine}
+ * sharing the same globals.
+ * <p>
+ * Helpers take their operands first, then the runtime, then the immediate operands of the
+ * instruction, so the generated code can push the runtime after evaluating the operands.
+ * A site is the index of a token in {@link #sites}, used for error reporting.
+ */
+public final class JitRuntime {
+    // Returned by a compiled non-void function that reached its end without a return statement
+    static final Object MISSING_RETURN = new Object();
+
+    // The runtime of the class being defined, read by the static initializer of the generated class
+    private static final ThreadLocal<JitRuntime> PENDING = new ThreadLocal<>();
+
+    private final CompiledProgram program;
+    private final SourceFile source;
+    private final Operators operators;
+    private final Builtins builtins;
+    private final VirtualMachine vm;
+    private final MethodCache[] caches; // Inline cache of each built-in call site
+    private Token[] sites;
+
+    /**
+     * Constructor for the JitRuntime class.
+     *
+     * @param program  The compiled program to execute.
+     * @param fileName The name of the file being executed.
+     * @param input    The input code as a single string, used for error reporting.
+     */
+    public JitRuntime(CompiledProgram program, String fileName, CharSequence input) {
+        this.program = program;
+        this.source = new SourceFile(fileName, input);
+        this.operators = new Operators(source, program.numericMode);
+        this.builtins = new Builtins(source, program.numericMode, program.symbols);
+        this.vm = new VirtualMachine(program, fileName, input);
+        this.caches = new MethodCache[program.callSites.length];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = builtins.cache(program.callSites[i]);
+        }
+    }
+
+    /**
+     * Compiles the program to JVM bytecode and executes it.
+     * Falls back to the virtual machine if the top-level program cannot be compiled.
+     *
+     * @throws ParseException If a runtime error occurs.
+     */
+    public void run() throws ParseException {
+        MethodHandle main;
+        try {
+            JitCompiler compiler = new JitCompiler(program);
+            byte[] classFile = compiler.compile();
+            sites = compiler.getSites();
+            main = define(classFile);
+        } catch (JitException | LinkageError | ReflectiveOperationException e) {
+            vm.run();
+            return;
+        }
+
+        try {
+            Object ignored = main.invokeExact();
+        } catch (ParseException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the result caches of the memoized functions, which run on the virtual machine.
+     */
+    public List<MemoCache> getMemoCaches() {
+        return vm.getMemoCaches();
+    }
+
+    private MethodHandle define(byte[] classFile) throws ReflectiveOperationException {
+        PENDING.set(this);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            return lookup.findStatic(lookup.lookupClass(), JitCompiler.MAIN,
+                    MethodType.methodType(Object.class));
+        } finally {
+            PENDING.remove();
+        }
+    }
+
+    // ----- Called from the static initializer of the generated class -----
+
+    static JitRuntime pending() {
+        return PENDING.get();
+    }
+
+    static Object[] constants(JitRuntime rt) {
+        return rt.program.constants;
+    }
+
+    // ----- Variables -----
+
+    static Object getGlobal(JitRuntime rt, int index, int site) throws ParseException {
+        return rt.vm.getGlobal(index, rt.sites[site]);
+    }
+
+    static void setGlobal(Object value, JitRuntime rt, int index, int site) throws ParseException {
+        rt.vm.setGlobal(index, value, rt.sites[site]);
+    }
+
+    static void defineGlobal(Object value, JitRuntime rt, int index, int site) throws ParseException {
+        rt.vm.defineGlobal(index, value, rt.sites[site]);
+    }
+
+    // ----- Operators -----
+
+    static Object add(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.add(left, right, rt.sites[site]);
+    }
+
+    static Object subtract(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.subtract(left, right, rt.sites[site]);
+    }
+
+    static Object multiply(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.multiply(left, right, rt.sites[site]);
+    }
+
+    static Object divide(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.divide(left, right, rt.sites[site]);
+    }
+
+    static Object remainder(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.remainder(left, right, rt.sites[site]);
+    }
+
+    static Object equal(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.equal(left, right, rt.sites[site]);
+    }
+
+    static Object notEqual(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.notEqual(left, right, rt.sites[site]);
+    }
+
+    static Object lessThan(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.lessThan(left, right, rt.sites[site]);
+    }
+
+    static Object greaterThan(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.greaterThan(left, right, rt.sites[site]);
+    }
+
+    static Object lessThanOrEqual(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.lessThanOrEqual(left, right, rt.sites[site]);
+    }
+
+    static Object greaterThanOrEqual(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.greaterThanOrEqual(left, right, rt.sites[site]);
+    }
+
+    static Object and(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.and(left, right, rt.sites[site]);
+    }
+
+    static Object or(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.or(left, right, rt.sites[site]);
+    }
+
+    static Object bitwiseAnd(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.bitwiseAnd(left, right, rt.sites[site]);
+    }
+
+    static Object bitwiseOr(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.bitwiseOr(left, right, rt.sites[site]);
+    }
+
+    static Object bitwiseXor(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.bitwiseXor(left, right, rt.sites[site]);
+    }
+
+    static Object shiftLeft(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.shiftLeft(left, right, rt.sites[site]);
+    }
+
+    static Object shiftRight(Object left, Object right, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.shiftRight(left, right, rt.sites[site]);
+    }
+
+    static Object not(Object value, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.not(value, rt.sites[site]);
+    }
+
+    static Object bitwiseNot(Object value, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.bitwiseNot(value, rt.sites[site]);
+    }
+
+    static boolean condition(Object value, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.condition(value, rt.sites[site]);
+    }
+
+    /**
+     * Checks if the left operand of '&&' decides its result; any other value goes on to the right operand.
+     */
+    static boolean isFalse(Object value) {
+        return Boolean.FALSE.equals(value);
+    }
+
+    /**
+     * Checks if the left operand of '||' decides its result.
+     */
+    static boolean isTrue(Object value) {
+        return Boolean.TRUE.equals(value);
+    }
+
+    // ----- Types -----
+
+    static Object is(Object value, JitRuntime rt, int type, int site) throws ParseException {
+        return rt.operators.evaluateIs(value, (String) rt.program.constants[type], rt.sites[site]);
+    }
+
+    static Object as(Object value, JitRuntime rt, int type, int site) throws ParseException {
+        return rt.operators.evaluateAs(value, (String) rt.program.constants[type], rt.sites[site]);
+    }
+
+    static void checkType(Object value, JitRuntime rt, int type, int site) throws ParseException {
+        rt.operators.checkType(value, (String) rt.program.constants[type], rt.sites[site]);
+    }
+
+    // ----- Strings and arrays -----
+
+    static Object interpolate(Object[] parts, JitRuntime rt) {
+        StringBuilder result = new StringBuilder();
+        for (Object part : parts) {
+            result.append(rt.operators.stringify(part));
+        }
+        return result.toString();
+    }
+
+    static Object newArray(Object[] elements, JitRuntime rt) {
+        return rt.operators.newArray(Arrays.asList(elements));
+    }
+
+    static Object getIndex(Object array, Object index, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.getIndex(array, index, rt.sites[site]);
+    }
+
+    static void setIndex(Object array, Object index, Object value, JitRuntime rt, int site) throws ParseException {
+        rt.operators.setIndex(array, index, value, rt.sites[site]);
+    }
+
+    static Object getIndexInBounds(Object array, Object index, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.getIndexInBounds(array, index, rt.sites[site]);
+    }
+
+    static void setIndexInBounds(Object array, Object index, Object value, JitRuntime rt, int site) throws ParseException {
+        rt.operators.setIndexInBounds(array, index, value, rt.sites[site]);
+    }
+
+    static Object getIndex2(Object array, Object row, Object column, JitRuntime rt, int site) throws ParseException {
+        return rt.operators.getIndex(array, row, column, rt.sites[site]);
+    }
+
+    static void setIndex2(Object array, Object row, Object column, Object value, JitRuntime rt, int site) throws ParseException {
+        rt.operators.setIndex(array, row, column, value, rt.sites[site]);
+    }
+
+    // ----- Loops -----
+
+    static Object forEachArray(Object array, JitRuntime rt, int message, int site) throws ParseException {
+        if (!(array instanceof List<?>)) {
+            throw rt.source.error((String) rt.program.constants[message], rt.sites[site]);
+        }
+        return array;
+    }
+
+    static void checkRangeBound(Object bound, JitRuntime rt, int site) throws ParseException {
+        if (!Numbers.isNumber(bound)) {
+            throw rt.source.error("Range bounds must be numbers, found " + rt.operators.typeName(bound), rt.sites[site]);
+        }
+    }
+
+    static void checkStep(Object step, JitRuntime rt, int site) throws ParseException {
+        if (rt.program.numericMode.signum(step) == 0) {
+            throw rt.source.error("Step cannot be zero", rt.sites[site]);
+        }
+    }
+
+    /**
+     * Gets the counter a range starts with: a LongRange for a range over integers, or else the start.
+     */
+    static Object rangeStart(Object start, Object end, Object step) {
+        LongRange range = LongRange.of(start, end, step);
+        return range != null ? range : start;
+    }
+
+    static void checkRange(Object counter, Object end, Object step, JitRuntime rt, int type, int site) throws ParseException {
+        if (counter instanceof LongRange range) {
+            if (range.hasNext()) {
+                checkType(rt.program.numericMode.valueOf(range.peek()), rt, type, site);
+            }
+        } else if (!rangeDone(counter, end, step, rt)) {
+            checkType(counter, rt, type, site);
+        }
+    }
+
+    static boolean rangeDone(Object counter, Object end, Object step, JitRuntime rt) {
+        if (counter instanceof LongRange range) {
+            return !range.hasNext();
+        }
+        NumericMode mode = rt.program.numericMode;
+        int comparison = mode.compare(counter, end);
+        return mode.signum(step) > 0 ? comparison > 0 : comparison < 0;
+    }
+
+    /**
+     * Gets the value of the loop variable; a LongRange steps past it.
+     */
+    static Object rangeValue(Object counter, JitRuntime rt) {
+        return counter instanceof LongRange range ? rt.program.numericMode.valueOf(range.next()) : counter;
+    }
+
+    static Object rangeStep(Object counter, Object step, JitRuntime rt) {
+        return counter instanceof LongRange ? counter : rt.program.numericMode.add(counter, step);
+    }
+
+    // ----- Calls -----
+
+    static Object callBuiltin(Object[] arguments, JitRuntime rt, int callSite, int site) throws ParseException {
+        int symbol = rt.program.callSites[callSite];
+        if (!rt.builtins.contains(symbol)) {
+            throw rt.source.error("Undefined function: " + rt.program.symbols.name(symbol), rt.sites[site]);
+        }
+        return rt.builtins.callFunction(rt.caches[callSite], Arrays.asList(arguments), rt.sites[site]);
+    }
+
+    static Object invoke(Object receiver, Object[] arguments, JitRuntime rt, int callSite, int site) throws ParseException {
+        return rt.builtins.callMethod(receiver, rt.caches[callSite], Arrays.asList(arguments), rt.sites[site]);
+    }
+
+    /**
+     * Calls a function that was not compiled, on the virtual machine.
+     */
+    static Object callInterpreted(Object[] arguments, JitRuntime rt, int function, int site) throws ParseException {
+        return rt.vm.call(function, arguments, rt.sites[site]);
+    }
+
+    static Object arityError(JitRuntime rt, int function, int argumentCount, int site) throws ParseException {
+        CodeObject callee = rt.program.functions[function];
+        throw rt.source.error("Function " + callee.name + " expects " + callee.parameterCount +
+                " arguments, but got " + argumentCount, rt.sites[site]);
+    }
+
+    /**
+     * Checks the value returned by a compiled non-void function against its declared return type.
+     */
+    static Object checkReturn(Object result, JitRuntime rt, int function, int site) throws ParseException {
+        CodeObject callee = rt.program.functions[function];
+        if (result == MISSING_RETURN) {
+            throw rt.source.error("Missing return statement in function '" + callee.name + "'", rt.sites[site]);
+        }
+        rt.operators.checkType(result, callee.returnType, rt.sites[site]);
+        return result;
+    }
+
+    // ----- Statements -----
+
+    static void print(Object[] arguments, JitRuntime rt, boolean newline) {
+        for (Object argument : arguments) {
+            System.out.print(rt.operators.stringify(argument));
+        }
+        if (newline) {
+            System.out.println();
+        }
+    }
+}
@@ -1,46 +1,288 @@
 package io.github._3xhaust.lexer;
 
 import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.token.SymbolTable;
 import io.github._3xhaust.token.Token;
+import io.github._3xhaust.token.TokenKind;
+import io.github._3xhaust.token.TokenStream;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class Lexer {
-    private final String input;
-    private final List<Token> tokens = new ArrayList<>();
+    // Size of the chunks the input is split into for parallel lexing; smaller inputs are read in one
+    public static final int PARALLEL_CHUNK_SIZE = 256 * 1024;
+
+    // The keywords, looked up straight from the input; only read once built, so chunks can share it
+    private static final SymbolTable KEYWORDS = new SymbolTable();
+    private static final TokenKind[] KEYWORD_KINDS = new TokenKind[32];
+
+    static {
+        for (String type : new String[]{"number", "char", "string", "boolean", "void", "array"}) {
+            addKeyword(type, TokenKind.TYPE);
+        }
+        addKeyword("null", TokenKind.NULL);
+        addKeyword("true", TokenKind.BOOLEAN_LITERAL);
+        addKeyword("false", TokenKind.BOOLEAN_LITERAL);
+        addKeyword("println", TokenKind.PRINTLN);
+        addKeyword("print", TokenKind.PRINT);
+        addKeyword("if", TokenKind.IF);
+        addKeyword("else", TokenKind.ELSE);
+        addKeyword("is", TokenKind.IS);
+        addKeyword("for", TokenKind.FOR);
+        addKeyword("func", TokenKind.FUNC);
+        addKeyword("return", TokenKind.RETURN);
+        addKeyword("in", TokenKind.IN);
+        addKeyword("break", TokenKind.BREAK);
+        addKeyword("continue", TokenKind.CONTINUE);
+        addKeyword("while", TokenKind.WHILE);
+        addKeyword("as", TokenKind.AS);
+    }
+
+    private static void addKeyword(String word, TokenKind kind) {
+        KEYWORD_KINDS[KEYWORDS.intern(word)] = kind;
+    }
+
+    private final CharSequence input;
+    private final int end; // Offset the lexer stops at
+    private final TokenStream tokens;
+    private int[] matchingBrace;
     private int position = 0;
     private int line = 1;
     private int column = 1;
+    private int segmentStart; // Offset of the text of the string literal part being read
+    private boolean escaped; // Whether the string literal part being read has an escape
+    private boolean done; // Whether the end of file has been added
+
+    public Lexer(CharSequence input) {
+        this(input, 0, 1, 1);
+    }
+
+    /**
+     * Creates a lexer that starts reading at an offset of the input, such as the start of a statement
+     * that has to be read again after an edit.
+     *
+     * @param input  The input.
+     * @param start  The offset to start reading at, which must not be inside a token or comment.
+     * @param line   The line number of the offset.
+     * @param column The column number of the offset.
+     */
+    public Lexer(CharSequence input, int start, int line, int column) {
+        this.input = input;
+        this.end = input.length();
+        this.position = start;
+        this.line = line;
+        this.column = column;
+        this.tokens = new TokenStream(input, this::next);
+    }
 
-    public Lexer(String input) {
+    /**
+     * Creates a lexer for a chunk of the input, which starts at the beginning of a line.
+     * Its line numbers count from the start of the chunk.
+     */
+    private Lexer(CharSequence input, int start, int end) {
         this.input = input;
+        this.position = start;
+        this.end = end;
+        this.tokens = new TokenStream(input);
     }
 
+    /**
+     * Reads the tokens into a list of token objects.
+     *
+     * @return The tokens.
+     */
     public List<Token> tokenize() throws ParseException {
-        while (position < input.length()) {
-            char current = input.charAt(position);
-
-            if (Character.isDigit(current)) {
-                tokenizeNumber();
-            } else if (current == '\"' || current == '\'') {
-                tokenizeStringLiteral(current);
-            } else if (Character.isLetter(current) || current == '_') {
-                tokenizeIdentifierOrKeyword();
-            } else if (current == '\n' || current == '\r') {
-                handleNewline();
-            }
-            else {
-                tokenizeSymbol(current);
+        return scan().toList();
+    }
+
+    /**
+     * Reads all the tokens into a compact token stream, whose texts are read from the input when needed.
+     *
+     * @return The tokens.
+     */
+    public TokenStream scan() throws ParseException {
+        while (next()) {
+            // Read until the end of file
+        }
+        matchingBrace = tokens.matchBraces();
+        return tokens;
+    }
+
+    /**
+     * Reads all the tokens like {@link #scan()}, but splits the input into chunks that are read in parallel
+     * on the common fork-join pool, then joined in order.
+     *
+     * @return The tokens.
+     */
+    public TokenStream scanParallel() throws ParseException {
+        return scanParallel(PARALLEL_CHUNK_SIZE);
+    }
+
+    /**
+     * Reads all the tokens in parallel, in chunks of roughly the given size.
+     */
+    TokenStream scanParallel(int chunkSize) throws ParseException {
+        int[] bounds = splitPoints(input, chunkSize);
+        Lexer[] chunks = IntStream.range(0, bounds.length - 1).parallel()
+                .mapToObj(i -> {
+                    Lexer chunk = new Lexer(input, bounds[i], bounds[i + 1]);
+                    while (chunk.position < chunk.end) {
+                        chunk.readToken();
+                    }
+                    return chunk;
+                })
+                .toArray(Lexer[]::new);
+
+        for (Lexer chunk : chunks) {
+            tokens.addAll(chunk.tokens, line - 1);
+            line += chunk.line - 1;
+            column = chunk.column;
+        }
+        position = input.length();
+        tokens.add(TokenKind.EOF, input.length(), 0, line, column);
+        done = true;
+        matchingBrace = tokens.matchBraces();
+        return tokens;
+    }
+
+    /**
+     * Finds where the input can be split into chunks that are read on their own: after a line break that
+     * is outside string literals and comments, where no token can continue into the next line.
+     * Follows the lexer's rules for where literals and comments end.
+     *
+     * @param input     The input.
+     * @param chunkSize The size the chunks should roughly have.
+     * @return The offsets of the chunks, starting with 0 and ending with the length of the input.
+     */
+    static int[] splitPoints(CharSequence input, int chunkSize) {
+        int length = input.length();
+        int[] bounds = new int[length / chunkSize + 2];
+        int count = 1;
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c == '\"' || c == '\'') {
+                // A string literal, which a variable can leave open until its '}'
+                i++;
+                while (i < length && input.charAt(i) != c) {
+                    if (input.charAt(i) == '\\') {
+                        i += 2;
+                    } else if (input.charAt(i) == '$' && i + 1 < length && input.charAt(i + 1) == '{') {
+                        i += 2;
+                        while (i < length && input.charAt(i) != '}') i++;
+                        i++;
+                    } else {
+                        i++;
+                    }
+                }
+                i++;
+            } else if (c == '/' && i + 1 < length && input.charAt(i + 1) == '*') {
+                i += 2;
+                while (i < length && !(input.charAt(i) == '*' && i + 1 < length && input.charAt(i + 1) == '/')) i++;
+                i += 2;
+            } else if (c == '/' && i + 1 < length && input.charAt(i + 1) == '/') {
+                while (i < length && input.charAt(i) != '\n' && input.charAt(i) != '\r') i++;
+            } else {
+                i++;
+                // A line break before 'if' may end an 'else' that the lexer reads as 'else if'
+                if (c == '\n' && i - bounds[count - 1] >= chunkSize && i < length && input.charAt(i) != 'i') {
+                    if (count == bounds.length - 1) bounds = Arrays.copyOf(bounds, count * 2);
+                    bounds[count++] = i;
+                }
             }
         }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
 
-        tokens.add(new Token(Token.EOF, null, line, column));
+    /**
+     * Gets the offset the lexer has read the input up to. It may have looked at the two characters after it
+     * to tell what the last token was.
+     *
+     * @return The offset.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets a token stream that reads the tokens as the parser asks for them, instead of all at once.
+     *
+     * @return The tokens.
+     */
+    public TokenStream stream() {
         return tokens;
     }
 
+    /**
+     * Reads tokens until at least one has been added to the stream.
+     *
+     * @return False once the end of file has been added.
+     */
+    private boolean next() {
+        if (done) return false;
+        int read = tokens.size();
+        while (position < end) {
+            readToken();
+            if (tokens.size() > read) return true;
+        }
+
+        tokens.add(TokenKind.EOF, input.length(), 0, line, column);
+        done = true;
+        return false;
+    }
+
+    /**
+     * Reads the token, line break or comment at the current position.
+     */
+    private void readToken() {
+        char current = input.charAt(position);
+
+        if (isDigit(current)) {
+            tokenizeNumber();
+        } else if (current == '\"' || current == '\'') {
+            tokenizeStringLiteral(current);
+        } else if (isLetter(current) || current == '_') {
+            tokenizeIdentifierOrKeyword();
+        } else if (current == '\n' || current == '\r') {
+            handleNewline();
+        } else if (current == '/' && peek(1) == '/') {
+            tokenizeSingleLineComment();
+        } else if (current == '/' && peek(1) == '*') {
+            tokenizeBlockComment();
+        }
+        else {
+            tokenizeSymbol(current);
+        }
+    }
+
+    // The Character tests, with a fast path for ASCII, which nearly all source code is
+
+    private static boolean isDigit(char c) {
+        return c < 128 ? c >= '0' && c <= '9' : Character.isDigit(c);
+    }
+
+    private static boolean isLetter(char c) {
+        return c < 128 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') : Character.isLetter(c);
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return c < 128 ? isLetter(c) || isDigit(c) : Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Gets the matching-brace table of the tokens, built once by {@link #scan()}.
+     *
+     * @return The table, as described in {@link TokenStream#matchBraces()}.
+     */
+    public int[] getMatchingBraces() {
+        return matchingBrace;
+    }
+
     private void tokenizeNumber() {
-        StringBuilder numberLiteral = new StringBuilder();
+        int start = position;
         int startColumn = column;
         boolean hasDecimalPoint = false;
 
@@ -50,43 +292,65 @@ public class Lexer {
             if (currentChar == '.' && !hasDecimalPoint) {
                 if (peek(1) == '.') break;
                 hasDecimalPoint = true;
-            } else if (!Character.isDigit(currentChar)) {
+            } else if (!isDigit(currentChar)) {
                 break;
             }
 
-            numberLiteral.append(currentChar);
             position++;
             column++;
         }
 
-        tokens.add(new Token(Token.NUMBER_LITERAL, numberLiteral.toString(), line, startColumn));
+        tokens.add(TokenKind.NUMBER_LITERAL, start, position - start, line, startColumn);
     }
 
 
-    private void tokenizeStringLiteral(char quote) throws ParseException {
+    private void tokenizeStringLiteral(char quote) {
         StringBuilder stringLiteral = new StringBuilder();
+        int startLine = line;
         int startColumn = column;
         position++; // skip starting quote
         column++;
+        segmentStart = position;
+        escaped = false;
 
         while (position < input.length() && input.charAt(position) != quote) {
             if (input.charAt(position) == '\\') {
+                escaped = true;
                 handleEscapeCharacter(stringLiteral);
             } else if (input.charAt(position) == '$' && peek(1) == '{') {
-                handleVariableInString(stringLiteral, startColumn);
+                handleVariableInString(stringLiteral, startLine, startColumn);
             } else {
+                // A line break in a literal is counted, so that line numbers after it match the input
+                if (isLineBreak()) {
+                    line++;
+                    column = 0;
+                }
                 stringLiteral.append(input.charAt(position));
                 position++;
                 column++;
             }
         }
+        if (quote == '\'') {
+            addSegment(TokenKind.CHAR_LITERAL, stringLiteral, startLine, startColumn);
+        } else if (quote == '\"') {
+            addSegment(TokenKind.STRING_LITERAL, stringLiteral, startLine, startColumn);
+        }
         position++; // skip ending quote
         column++;
+    }
 
-        if (quote == '\'') {
-            tokens.add(new Token(Token.CHAR_LITERAL, stringLiteral.toString(), line, startColumn));
-        } else if (quote == '\"') {
-            tokens.add(new Token(Token.STRING_LITERAL, stringLiteral.toString(), line, startColumn));
+    /**
+     * Adds the text read since the start of the literal or the last variable in it, keeping the text
+     * only if an escape made it differ from the input.
+     */
+    private void addSegment(TokenKind kind, StringBuilder literal, int startLine, int startColumn) {
+        if (escaped) {
+            tokens.add(kind, segmentStart, literal.toString(), startLine, startColumn);
+        } else {
+            // An unclosed ${ skips past the end of the input
+            int stop = Math.min(position, input.length());
+            int start = Math.min(segmentStart, stop);
+            tokens.add(kind, start, stop - start, startLine, startColumn);
         }
     }
 
@@ -100,64 +364,68 @@ public class Lexer {
         }
     }
 
-    private void handleVariableInString(StringBuilder stringLiteral, int startColumn) {
+    private void handleVariableInString(StringBuilder stringLiteral, int startLine, int startColumn) {
         if (!stringLiteral.isEmpty()) {
-            tokens.add(new Token(Token.STRING_LITERAL, stringLiteral.toString(), line, startColumn));
+            addSegment(TokenKind.STRING_LITERAL, stringLiteral, startLine, startColumn);
             stringLiteral.setLength(0);
         }
         position += 2; // skip ${
         column += 2;
         tokenizeVariableLiteral();
+        segmentStart = position;
+        escaped = false;
     }
 
     private void tokenizeVariableLiteral() {
+        int start = position;
+        int startLine = line;
         int startColumn = column;
-        StringBuilder variableName = new StringBuilder();
         while (position < input.length() && input.charAt(position) != '}') {
-            variableName.append(input.charAt(position));
+            if (isLineBreak()) {
+                line++;
+                column = 0;
+            }
             position++;
             column++;
         }
+        tokens.add(TokenKind.VARIABLE_LITERAL, start, position - start, startLine, startColumn);
         position++; // skip ending }
         column++;
-        tokens.add(new Token(Token.VARIABLE_LITERAL, variableName.toString(), line, startColumn));
     }
 
     private void tokenizeIdentifierOrKeyword() {
-        StringBuilder sb = new StringBuilder();
+        int start = position;
         int startColumn = column;
-        while (position < input.length() && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
-            sb.append(input.charAt(position++));
+        while (position < input.length() && (isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
+            position++;
             column++;
         }
-        String word = sb.toString();
+        int wordEnd = position;
 
         int arrayDimension = checkArrayDimension();
 
         if (arrayDimension > 0) {
-            word += " array".repeat(arrayDimension);
-            tokens.add(new Token(word.toLowerCase(), word, line, startColumn));
+            String word = input.subSequence(start, wordEnd).toString();
+            tokens.add(TokenKind.TYPE, start, word + " array".repeat(arrayDimension), line, startColumn);
             return;
         }
 
-        switch (word) {
-            case "number", "char", "string", "boolean", "null", "void" -> tokens.add(new Token(word.toLowerCase(), word, line, startColumn));
-            case "true", "false" -> tokens.add(new Token(Token.BOOLEAN_LITERAL, word, line, startColumn));
-            case "println" -> tokens.add(new Token(Token.PRINTLN, word, line, startColumn));
-            case "print" -> tokens.add(new Token(Token.PRINT, word, line, startColumn));
-            case "if" -> tokens.add(new Token(Token.IF, word, line, startColumn));
-            case "else" -> handleElseToken(word, startColumn);
-            case "is" -> tokens.add(new Token(Token.IS, word, line, startColumn));
-            case "for" -> tokens.add(new Token(Token.FOR, word, line, startColumn));
-            case "func" -> tokens.add(new Token(Token.FUNC, word, line, startColumn));
-            case "return" -> tokens.add(new Token(Token.RETURN, word, line, startColumn));
-            case "in" -> tokens.add(new Token(Token.IN, word, line, startColumn));
-            case "array" -> tokens.add(new Token(Token.ARRAY, word, line, startColumn));
-            case "break" -> tokens.add(new Token(Token.BREAK, word, line, startColumn));
-            case "continue" -> tokens.add(new Token(Token.CONTINUE, word, line, startColumn));
-            case "while" -> tokens.add(new Token(Token.WHILE, word, line, startColumn));
-            case "as" -> tokens.add(new Token(Token.AS, word, line, startColumn));
-            default -> tokens.add(new Token(Token.IDENTIFIER, word, line, startColumn));
+        int keyword = KEYWORDS.find(input, start, position);
+        TokenKind kind = keyword < 0 ? TokenKind.IDENTIFIER : KEYWORD_KINDS[keyword];
+        if (kind == TokenKind.ELSE && peek(1) == 'i' && peek(2) == 'f') {
+            kind = TokenKind.ELSE_IF;
+        }
+        tokens.add(kind, start, position - start, line, startColumn);
+        if (kind == TokenKind.ELSE_IF) {
+            // Skip the separator and 'if', counting the line break of an 'else' and 'if' on separate lines
+            if (input.charAt(position) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+            position += 3;
+            column += 2;
         }
     }
 
@@ -185,16 +453,6 @@ public class Lexer {
     }
 
 
-    private void handleElseToken(String word, int startColumn) {
-        if (peek(1) == 'i' && peek(2) == 'f') {
-            tokens.add(new Token(Token.ELSE_IF, word, line, startColumn));
-            position += 3;
-            column += 3;
-        } else {
-            tokens.add(new Token(Token.ELSE, word, line, startColumn));
-        }
-    }
-
     private void tokenizeSymbol(char current) {
         switch (current) {
             case '+' -> handlePlus();
@@ -208,25 +466,27 @@ public class Lexer {
             case '>' -> handleGreaterThan();
             case '&' -> handleAmpersand();
             case '|' -> handlePipe();
-            case '(' -> tokens.add(new Token(Token.LEFT_PAREN, null, line, column));
-            case ')' -> tokens.add(new Token(Token.RIGHT_PAREN, null, line, column));
-            case '{' -> tokens.add(new Token(Token.LEFT_BRACE, null, line, column));
-            case '}' -> tokens.add(new Token(Token.RIGHT_BRACE, null, line, column));
-            case ';' -> tokens.add(new Token(Token.SEMICOLON, null, line, column));
-            case ',' -> tokens.add(new Token(Token.COMMA, null, line, column));
+            case '^' -> addSymbol(TokenKind.BITWISE_XOR);
+            case '~' -> addSymbol(TokenKind.BITWISE_NOT);
+            case '(' -> addSymbol(TokenKind.LEFT_PAREN);
+            case ')' -> addSymbol(TokenKind.RIGHT_PAREN);
+            case '{' -> addSymbol(TokenKind.LEFT_BRACE);
+            case '}' -> addSymbol(TokenKind.RIGHT_BRACE);
+            case ';' -> addSymbol(TokenKind.SEMICOLON);
+            case ',' -> addSymbol(TokenKind.COMMA);
             case '.' -> {
                 if (peek(1) == '.') { // 다음 문자도 '.'인지 확인
-                    tokens.add(new Token(Token.DOT_DOT, null, line, column)); // .. 토큰 추가
+                    addSymbol(TokenKind.DOT_DOT); // .. 토큰 추가
                     position++; // 다음 문자 ('.' )도 스킵
                     column++;
                 } else {
-                    tokens.add(new Token(Token.DOT, null, line, column));
+                    addSymbol(TokenKind.DOT);
                 }
             }
-            case ':' -> tokens.add(new Token(Token.COLON, null, line, column));
-            case '[' -> tokens.add(new Token(Token.LEFT_BRACKET, null, line, column));
-            case ']' -> tokens.add(new Token(Token.RIGHT_BRACKET, null, line, column));
-            case '$' -> tokens.add(new Token(Token.DOLLAR, null, line, column));
+            case ':' -> addSymbol(TokenKind.COLON);
+            case '[' -> addSymbol(TokenKind.LEFT_BRACKET);
+            case ']' -> addSymbol(TokenKind.RIGHT_BRACKET);
+            case '$' -> addSymbol(TokenKind.DOLLAR);
         }
         position++;
         column++;
@@ -234,132 +494,151 @@ public class Lexer {
 
     private void handlePlus() {
         if (peek(1) == '+') {
-            tokens.add(new Token(Token.PLUS_PLUS, null, line, column));
+            addSymbol(TokenKind.PLUS_PLUS);
             position++;
             column++;
         } else if (peek(1) == '=') {
-            tokens.add(new Token(Token.PLUS_EQUAL, null, line, column));
+            addSymbol(TokenKind.PLUS_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.PLUS, null, line, column));
+            addSymbol(TokenKind.PLUS);
         }
     }
 
     private void handleMinus() {
         if (peek(1) == '-') {
-            tokens.add(new Token(Token.MINUS_MINUS, null, line, column));
+            addSymbol(TokenKind.MINUS_MINUS);
             position++;
             column++;
         } else if (peek(1) == '=') {
-            tokens.add(new Token(Token.MINUS_EQUAL, null, line, column));
+            addSymbol(TokenKind.MINUS_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.MINUS, null, line, column));
+            addSymbol(TokenKind.MINUS);
         }
     }
 
     private void handleAsterisk() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.ASTERISK_EQUAL, null, line, column));
+            addSymbol(TokenKind.ASTERISK_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.ASTERISK, null, line, column));
+            addSymbol(TokenKind.ASTERISK);
         }
     }
 
     private void handleSlash() {
-        if (peek(1) == '/') {
-            tokenizeSingleLineComment();
-        } else if (peek(1) == '*') {
-            tokenizeBlockComment();
-        } else if (peek(1) == '=') {
-            tokens.add(new Token(Token.SLASH_EQUAL, null, line, column));
+        if (peek(1) == '=') {
+            addSymbol(TokenKind.SLASH_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.SLASH, null, line, column));
+            addSymbol(TokenKind.SLASH);
         }
     }
 
     private void handlePercent() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.PERCENT_EQUAL, null, line, column));
+            addSymbol(TokenKind.PERCENT_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.PERCENT, null, line, column));
+            addSymbol(TokenKind.PERCENT);
         }
     }
 
     private void handleEqual() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.EQUAL_EQUAL, null, line, column));
+            addSymbol(TokenKind.EQUAL_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.EQUAL, null, line, column));
+            addSymbol(TokenKind.EQUAL);
         }
     }
 
     private void handleBang() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.NOT_EQUAL, null, line, column));
+            addSymbol(TokenKind.NOT_EQUAL);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.BANG, null, line, column));
+            addSymbol(TokenKind.BANG);
         }
     }
 
     private void handleLessThan() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.LESS_THAN_OR_EQUAL, null, line, column));
+            addSymbol(TokenKind.LESS_THAN_OR_EQUAL);
+            position++;
+            column++;
+        } else if (peek(1) == '<') {
+            addSymbol(TokenKind.LEFT_SHIFT);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.LESS_THAN, null, line, column));
+            addSymbol(TokenKind.LESS_THAN);
         }
     }
 
     private void handleGreaterThan() {
         if (peek(1) == '=') {
-            tokens.add(new Token(Token.GREATER_THAN_OR_EQUAL, null, line, column));
+            addSymbol(TokenKind.GREATER_THAN_OR_EQUAL);
+            position++;
+            column++;
+        } else if (peek(1) == '>') {
+            addSymbol(TokenKind.RIGHT_SHIFT);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.GREATER_THAN, null, line, column));
+            addSymbol(TokenKind.GREATER_THAN);
         }
     }
 
     private void handleAmpersand() {
         if (peek(1) == '&') {
-            tokens.add(new Token(Token.AND, null, line, column));
+            addSymbol(TokenKind.AND);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.BITWISE_AND, null, line, column));
+            addSymbol(TokenKind.BITWISE_AND);
         }
     }
 
     private void handlePipe() {
         if (peek(1) == '|') {
-            tokens.add(new Token(Token.OR, null, line, column));
+            addSymbol(TokenKind.OR);
             position++;
             column++;
         } else {
-            tokens.add(new Token(Token.BITWISE_OR, null, line, column));
+            addSymbol(TokenKind.BITWISE_OR);
         }
     }
 
+    private void addSymbol(TokenKind kind) {
+        tokens.add(kind, position, 0, line, column);
+    }
+
     private void handleNewline() {
+        if (input.charAt(position) == '\r' && peek(1) == '\n') {
+            position++; // \r\n is a single line break
+        }
         line++;
         position++;
         column = 1;
     }
 
+    /**
+     * Checks if the character at the current position ends a line, counting \r\n as one line break at its \n.
+     */
+    private boolean isLineBreak() {
+        char c = input.charAt(position);
+        return c == '\n' || (c == '\r' && peek(1) != '\n');
+    }
+
     private char getEscapedCharacter(char escaped) {
         return switch (escaped) {
             case '\\' -> '\\';
@@ -377,20 +656,18 @@ public class Lexer {
     private void tokenizeSingleLineComment() {
         position += 2; // skip //
         column += 2;
-        while (position < input.length() && input.charAt(position) != '\n') {
+        while (position < input.length() && !isLineBreak()) {
             position++;
             column++;
         }
-
-        line++;
-        column = 1;
+        // The line break is left to handleNewline, so that it is counted once
     }
 
     private void tokenizeBlockComment() {
         position += 2; // skip /*
         column += 2;
         while (position < input.length() && !(input.charAt(position) == '*' && peek(1) == '/')) {
-            if (input.charAt(position) == '\n') {
+            if (isLineBreak()) {
                 line++;
                 column = 1;
             } else {
@@ -398,9 +675,8 @@ public class Lexer {
             }
             position++;
         }
-        line++;
         position += 2; // skip */
-        column = 1;
+        column += 2;
     }
 
     private char peek(int offset) {
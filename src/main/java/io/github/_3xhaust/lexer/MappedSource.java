@@ -0,0 +1,66 @@
+package io.github._3xhaust.lexer;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The text of a source file read through a memory mapping, so that the file is not copied onto the heap.
+ * Only ASCII files are read this way, as each of their bytes is a char; other files are decoded into a string.
+ */
+public final class MappedSource implements CharSequence {
+    private final ByteBuffer bytes;
+
+    private MappedSource(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads the text of a UTF-8 source file.
+     *
+     * @param fileName The path to the file.
+     * @return The text, a mapped source if the file is ASCII.
+     * @throws IOException If the file cannot be read.
+     */
+    public static CharSequence read(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            for (int i = 0; i < bytes.limit(); i++) {
+                if (bytes.get(i) < 0) {
+                    return StandardCharsets.UTF_8.decode(bytes).toString();
+                }
+            }
+            return new MappedSource(bytes);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(fileName + " (No such file or directory)");
+        }
+    }
+
+    @Override
+    public int length() {
+        return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(index);
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        byte[] chars = new byte[end - start];
+        bytes.get(start, chars);
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length());
+    }
+}
@@ -0,0 +1,250 @@
+package io.github._3xhaust.parser;
+
+import io.github._3xhaust.ast.Stmt;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.lexer.Lexer;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.SymbolTable;
+import io.github._3xhaust.token.TokenKind;
+import io.github._3xhaust.token.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A source file open in an editor, whose syntax errors are kept up to date as it is edited.
+ * <p>
+ * The text is kept as a list of top-level statements, each parsed on its own. An edit reads the tokens
+ * and parses the statements again from the first statement whose parse read the edited text, up to the first
+ * statement after the edit that starts where it did before, and keeps the syntax trees and errors of every
+ * other statement, only moving those after the edit. A statement with a syntax error is skipped up to the next line
+ * outside its curly braces, so that the statements after it are still checked.
+ * <p>
+ * Only syntax errors are found; the errors the resolver finds need the whole program.
+ */
+public class Document {
+    private final String fileName;
+    private final NumericMode numericMode;
+    private final StringBuilder text;
+    private final List<Unit> units = new ArrayList<>(); // The top-level statements, in order
+    private final SymbolTable symbols = new SymbolTable(); // Names of all the statements, so that their ids agree
+
+    /**
+     * A top-level statement, or the tokens skipped after a syntax error.
+     */
+    private static final class Unit {
+        int start; // Offset the statement is read from: its first token, or 0 for the first statement
+        final boolean restartable; // Whether a lexer can start at the start, which is not in a literal
+        int end; // Offset of the last character the lexer looked at while this or an earlier statement was parsed
+        int line; // Line number of the start
+        int column; // Column number of the start
+        final int parsedLine; // Line number of the start when the statement was parsed
+        final int parsedColumn; // Column number of the start when the statement was parsed
+        final Stmt statement; // The syntax tree, or null if the statement has an error
+        final ParseException error; // The error, with the lines of when the statement was parsed
+
+        Unit(int start, boolean restartable, int end, int line, int column, Stmt statement, ParseException error) {
+            this.start = start;
+            this.restartable = restartable;
+            this.end = end;
+            this.line = line;
+            this.column = column;
+            this.parsedLine = line;
+            this.parsedColumn = column;
+            this.statement = statement;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Creates a document and parses its text.
+     *
+     * @param fileName    The name of the file, used in error messages.
+     * @param text        The text of the file.
+     * @param numericMode The numeric mode the program will run in.
+     */
+    public Document(String fileName, CharSequence text, NumericMode numericMode) {
+        this.fileName = fileName;
+        this.numericMode = numericMode;
+        this.text = new StringBuilder(text);
+        parse(0, 0, 1, 1, 0, 0);
+    }
+
+    /**
+     * Replaces a range of the text and parses the statements the change can affect again.
+     *
+     * @param offset      The offset of the range.
+     * @param length      The length of the range.
+     * @param replacement The text to put in its place.
+     */
+    public void edit(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0 || offset + length > text.length()) {
+            throw new IndexOutOfBoundsException("Edit out of range: " + offset + "+" + length);
+        }
+        text.replace(offset, offset + length, replacement);
+
+        // A statement before the one the edit is in may have read ahead into it, such as one with an error.
+        // Reading starts where a statement starts before the edit, where the text has not moved.
+        int from = Math.max(Math.min(firstUnitReaching(offset), units.size() - 1), 0);
+        while (from > 0 && (units.get(from).start > offset || !units.get(from).restartable)) {
+            from--;
+        }
+        int start = 0, line = 1, column = 1;
+        if (from < units.size()) {
+            Unit unit = units.get(from);
+            start = unit.start;
+            line = unit.line;
+            column = unit.column;
+        }
+        parse(from, start, line, column, offset + length, replacement.length() - length);
+    }
+
+    /**
+     * Finds the first statement whose parse looked at the character at an offset or after it.
+     *
+     * @return Its index, or the number of statements if there is none, as the text after the last statement
+     *         may only be semicolons and comments.
+     */
+    private int firstUnitReaching(int offset) {
+        int low = 0, high = units.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (units.get(mid).end < offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Parses statements from a statement on until the end of file, or until a statement starts where
+     * a statement after the edited range started before, and replaces the statements up to there.
+     * The statements from there on are kept, moved by the edit.
+     *
+     * @param from    The index of the first statement to parse.
+     * @param start   The offset to start reading at.
+     * @param line    The line number of the offset.
+     * @param column  The column number of the offset.
+     * @param editEnd The offset of the end of the edited range, before the edit.
+     * @param delta   The change in length of the text.
+     */
+    private void parse(int from, int start, int line, int column, int editEnd, int delta) {
+        Lexer lexer = new Lexer(text, start, line, column);
+        TokenStream tokens = lexer.stream();
+        Parser parser = new Parser(tokens, new SourceFile(fileName, text, start - column + 1, line), symbols, numericMode);
+        List<Unit> parsed = new ArrayList<>();
+        int next = from + 1; // The first statement that may be kept
+        int kept = units.size();
+        int reach = from > 0 ? units.get(from - 1).end : 0;
+        boolean restartable = true;
+
+        while (true) {
+            int first = parser.getPosition();
+            if (first > 0) {
+                if (tokens.kind(first) == TokenKind.EOF) break;
+                start = tokens.lexerOffset(first);
+                restartable = start >= 0;
+                if (!restartable) start = tokens.start(first);
+                line = tokens.line(first);
+                column = tokens.column(first);
+
+                while (next < units.size()
+                        && (units.get(next).start < editEnd || units.get(next).start + delta < start)) {
+                    next++;
+                }
+                if (restartable && next < units.size() && units.get(next).start + delta == start
+                        && units.get(next).restartable) {
+                    kept = next;
+                    move(kept, delta, line, column);
+                    for (int i = kept; i < units.size() && units.get(i).end < reach; i++) {
+                        units.get(i).end = reach;
+                    }
+                    break;
+                }
+            }
+
+            try {
+                Stmt statement = parser.parseStatement();
+                if (statement == null) break;
+                reach = Math.max(reach, lexer.getPosition() + 2);
+                parsed.add(new Unit(start, restartable, reach, line, column, statement, null));
+            } catch (ParseException e) {
+                // Where the statement is skipped to depends on the tokens read to find it too
+                parser.recover(first);
+                reach = Math.max(reach, lexer.getPosition() + 2);
+                parsed.add(new Unit(start, restartable, reach, line, column, null, e));
+            }
+        }
+        units.subList(Math.min(from, kept), kept).clear();
+        units.addAll(from, parsed);
+    }
+
+    /**
+     * Moves the statements from an index on to where an edit before them put them.
+     *
+     * @param index  The index of the first statement to move.
+     * @param delta  The change in length of the text.
+     * @param line   The new line number of the first statement.
+     * @param column The new column number of the first statement.
+     */
+    private void move(int index, int delta, int line, int column) {
+        Unit first = units.get(index);
+        int lineDelta = line - first.line;
+        int columnDelta = column - first.column;
+        int firstLine = first.line;
+        for (int i = index; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            // Only the statements on the line of the first one move sideways
+            if (unit.line == firstLine) unit.column += columnDelta;
+            unit.line += lineDelta;
+            unit.start += delta;
+            unit.end += delta;
+        }
+    }
+
+    /**
+     * Gets the text of the document.
+     *
+     * @return The text.
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Gets the syntax errors of the document, at most one per top-level statement.
+     *
+     * @return The errors, in the order of their statements.
+     */
+    public List<ParseException> getDiagnostics() {
+        List<ParseException> diagnostics = new ArrayList<>();
+        for (Unit unit : units) {
+            ParseException error = unit.error;
+            if (error == null) continue;
+            // The line of the error is read again, as an edit after the statement may have changed it
+            int line = error.getLine() + unit.line - unit.parsedLine;
+            int column = error.getColumn();
+            if (error.getLine() == unit.parsedLine) column += unit.column - unit.parsedColumn;
+            SourceFile source = new SourceFile(fileName, text, unit.start - unit.column + 1, unit.line);
+            diagnostics.add(new ParseException(fileName, error.getErrorMessage(), line, column, source.getLine(line)));
+        }
+        return diagnostics;
+    }
+
+    /**
+     * Gets the syntax trees of the top-level statements that have no error. The tokens in a tree keep
+     * the line numbers of when it was parsed, which edits before it do not update.
+     *
+     * @return The statements, in the order of the text.
+     */
+    public List<Stmt> getStatements() {
+        List<Stmt> statements = new ArrayList<>();
+        for (Unit unit : units) {
+            if (unit.statement != null) statements.add(unit.statement);
+        }
+        return statements;
+    }
+}
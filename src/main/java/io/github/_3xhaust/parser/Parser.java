@@ -1,1983 +1,1079 @@
 package io.github._3xhaust.parser;
 
+import io.github._3xhaust.ast.Expr;
+import io.github._3xhaust.ast.Program;
+import io.github._3xhaust.ast.Stmt;
 import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.SymbolTable;
 import io.github._3xhaust.token.Token;
+import io.github._3xhaust.token.TokenKind;
+import io.github._3xhaust.token.TokenStream;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
 import java.util.*;
 
 /**
  * This class is responsible for parsing a list of tokens into an Abstract Syntax Tree (AST).
  * It handles variable declarations, assignments, function calls, control flow statements, and expressions.
+ * The resulting {@link Program} is executed separately, so every token is parsed exactly once.
  * It also provides error handling by throwing ParseException if any syntax error occurs.
  */
 public class Parser {
-    // Set of valid data types in the language
+    // Set of valid base data types in the language
     private static final Set<String> VALID_TYPES = new HashSet<>(Arrays.asList(
-            Token.NUMBER, Token.CHAR, Token.STRING, Token.BOOLEAN,
-            "number array", "char array", "string array", "boolean array", "null array",
-            Token.ARRAY, Token.NULL
+            Token.NUMBER, Token.CHAR, Token.STRING, Token.BOOLEAN, Token.ARRAY, Token.NULL
     ));
+    // Types a memoized function may take and return: values that cannot change while they are cached
+    private static final Set<String> MEMOIZABLE_TYPES = Set.of(Token.NUMBER, Token.CHAR, Token.STRING, Token.BOOLEAN);
 
-    // Set of valid return types for functions (including void)
+    // Set of valid base return types for functions (including void)
     private static final Set<String> VALID_RETURN_TYPES = new HashSet<>(VALID_TYPES);
 
     static {
         VALID_RETURN_TYPES.add(Token.VOID);
     }
 
-    /**
-     * Represents a built-in function.
-     */
-    interface BuiltinFunction {
-        /**
-         * Executes the built-in function with the given context and arguments.
-         *
-         * @param context    The context of the function call, or null if not applicable.
-         * @param arguments The list of arguments passed to the function.
-         * @return The result of the function execution.
-         * @throws ParseException If an error occurs during function execution.
-         */
-        Object execute(Object context, List<Object> arguments) throws ParseException;
-    }
-
-    /**
-     * Represents a user-defined function.
-     */
-    private static class Function {
-        String name; // Function name
-        List<Parameter> parameters; // List of parameters
-        String returnType; // Return type of the function
-        int bodyStart; // Starting position of the function body in the token list
-        int bodyEnd; // Ending position of the function body in the token list
-
-        Function(String name, List<Parameter> parameters, String returnType, int bodyStart, int bodyEnd) {
-            this.name = name;
-            this.parameters = parameters;
-            this.returnType = returnType;
-            this.bodyStart = bodyStart;
-            this.bodyEnd = bodyEnd;
-        }
-    }
-
-    /**
-     * Represents a function parameter.
-     */
-    private static class Parameter {
-        String name; // Parameter name
-        String type; // Parameter type
-
-        Parameter(String name, String type) {
-            this.name = name;
-            this.type = type;
-        }
-    }
-
-    private final List<Token> tokens; // List of tokens generated by the lexer
+    private final TokenStream tokens; // Tokens generated by the lexer
     private final String fileName; // Name of the file being parsed
-    private final String[] lines; // Lines of the input code for error reporting
+    private final SourceFile source; // Lines of the input code for error reporting
+    private final NumericMode numericMode; // Representation of number literals
+    private final SymbolTable symbols; // Names of variables, functions and methods, by id
+    // Number literals decoded so far, by the id of their text, so that each distinct literal is parsed once
+    private final SymbolTable numberTexts = new SymbolTable();
+    private Object[] numberValues = new Object[16];
     private int position = 0; // Current position in the token list
-    boolean breakFlag = false;
-    boolean continueFlag = false;
-
-    // Stack of scopes for variable resolution
-    private final Deque<Map<String, Object>> scopes = new LinkedList<>();
-    // Map to store variable types
-    private final Map<String, String> variableTypes = new HashMap<>();
-    // Map to store user-defined functions
-    private final Map<String, Function> functions = new HashMap<>();
-    // Set to store constant variable names
-    private final Set<String> constants = new HashSet<>();
-    // Map to store built-in functions for different context types
-    private final Map<String, Map<Class<?>, BuiltinFunction>> builtinFunctions = new HashMap<>();
+
+    // User-defined functions in order of declaration, hoisted so they can be called before their declaration
+    private final List<Stmt.Function> functions = new ArrayList<>();
+    // Name and return type of the function whose body is currently being parsed, or null at the top level
+    private String currentFunctionName;
+    private String currentReturnType;
+    // Number of loops enclosing the statement currently being parsed
+    private int loopDepth = 0;
 
     /**
      * Constructor for the Parser class.
      *
      * @param tokens   The list of tokens to be parsed.
      * @param fileName The name of the file being parsed.
-     * @param input   The input code as a single string.
-     * @throws ParseException If there's an error during initialization.
+     * @param input    The input code as a single string.
      */
-    public Parser(List<Token> tokens, String fileName, String input) throws ParseException {
-        this.fileName = fileName;
-        this.lines = input.split("\n");
-        this.tokens = tokens;
-        //tokens.forEach(token -> System.out.println(token.getToken()));
-        // Initialize the global scope
-        scopes.push(new HashMap<>());
-        // Register built-in functions
-        initializeBuiltinFunctions();
-        // Pre-parse function declarations for later calls
-        preParseFunctions();
-
-        //tokens.forEach(token -> System.out.println(token.getToken()));
+    public Parser(List<Token> tokens, String fileName, CharSequence input) {
+        this(tokens, fileName, input, NumericMode.EXACT);
     }
 
     /**
-     * Pre-parses function declarations to allow function calls before their definitions.
+     * Constructor for the Parser class.
      *
-     * @throws ParseException If an error occurs during function declaration parsing.
+     * @param tokens      The list of tokens to be parsed.
+     * @param fileName    The name of the file being parsed.
+     * @param input       The input code as a single string.
+     * @param numericMode The numeric mode the program will run in.
      */
-    private void preParseFunctions() throws ParseException {
-        int savedPosition = position;
-        while (!isAtEnd()) {
-            if (currentPosition().getToken().equals(Token.FUNC)) {
-                functionDeclaration();
-            } else {
-                position++;
-            }
-        }
-        position = savedPosition;
+    public Parser(List<Token> tokens, String fileName, CharSequence input, NumericMode numericMode) {
+        this(TokenStream.of(tokens), fileName, input, numericMode);
     }
 
     /**
-     * Initializes the map of built-in functions.
+     * Constructor for the Parser class. The tokens of each top-level statement are released from the
+     * stream once it has been parsed, so the stream may read them as they are asked for.
+     *
+     * @param tokens      The tokens to be parsed.
+     * @param fileName    The name of the file being parsed.
+     * @param input       The input code.
+     * @param numericMode The numeric mode the program will run in.
      */
-    private void initializeBuiltinFunctions() {
-        // Register the 'length' function for ArrayLists
-        registerBuiltinFunction("length", ArrayList.class, (context, args) ->
-                new BigDecimal(((List<?>) context).size()));
-
-        // Register the 'repeat' function for Strings
-        registerBuiltinFunction("repeat", String.class, (context, args) -> {
-            validateArguments("repeat", args, 1, BigDecimal.class);
-            int count = ((BigDecimal) args.get(0)).intValue();
-            return ((String) context).repeat(count);
-        });
-
-        // Register the 'add' function for ArrayLists
-        registerBuiltinFunction("add", ArrayList.class, (context, args) -> {
-            validateArguments("add", args, 1, Object.class);
-            ((List<Object>) context).add(args.get(0));
-            return null;
-        });
-
-        // Register the 'get' function for ArrayLists
-        registerBuiltinFunction("get", ArrayList.class, (context, args) -> {
-            validateArguments("get", args, 1, BigDecimal.class);
-            List<Object> list = (List<Object>) context;
-            int index = ((BigDecimal) args.get(0)).intValue();
-            if (index < 0 || index >= list.size())
-                throw new ParseException(fileName, "Index out of bounds",
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            return list.get(index);
-        });
-
-        // Register the 'set' function for ArrayLists
-        registerBuiltinFunction("set", ArrayList.class, (context, args) -> {
-            validateArguments("set", args, 2, BigDecimal.class, BigDecimal.class);
-            List<Object> list = (List<Object>) context;
-            int index = ((BigDecimal) args.get(0)).intValue();
-            if (index < 0 || index >= list.size())
-                throw new ParseException(fileName, "Index out of bounds",
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            list.set(index, args.get(1));
-            return null;
-        });
-
-        // Register the 'remove' function for ArrayLists
-        registerBuiltinFunction("remove", ArrayList.class, (context, args) -> {
-            validateArguments("remove", args, 1, BigDecimal.class);
-            List<Object> list = (List<Object>) context;
-            int index = ((BigDecimal) args.get(0)).intValue();
-            if (index < 0 || index >= list.size())
-                throw new ParseException(fileName, "Index out of bounds",
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            return list.remove(index);
-        });
-
-        // Register the 'clear' function for ArrayLists
-        registerBuiltinFunction("clear", ArrayList.class, (context, args) -> {
-            validateArguments("clear", args, 0);
-            ((List<Object>) context).clear();
-            return null;
-        });
-
-        // Register the 'addAll' function for ArrayLists
-        registerBuiltinFunction("addAll", ArrayList.class, (context, args) -> {
-            validateArguments("addAll", args, 1, List.class);
-            return ((List<Object>) context).addAll((List<Object>) args.get(0));
-        });
-
-//        // Register the 'forEach' function for ArrayLists
-//        registerBuiltinFunction("forEach", ArrayList.class, (context, args) -> {
-//            validateArguments("forEach", args, 2, List.class, Function.class);
-//            List<Object> list = (List<Object>) args.get(0);
-//            Function function = (Function) args.get(1);
-//            for (Object item : list) {
-//                List<Object> arguments = new ArrayList<>();
-//                arguments.add(item);
-//                function.execute(null, arguments);
-//            }
-//            return null;
-//        });
-
-        // Register the 'contains' function for ArrayLists
-        registerBuiltinFunction("contains", ArrayList.class, (context, args) -> {
-            validateArguments("contains", args, 1, Object.class);
-            return ((List<Object>) context).contains(args.get(0));
-        });
-
-        // Register the 'indexOf' function for ArrayLists
-        registerBuiltinFunction("indexOf", ArrayList.class, (context, args) -> {
-            validateArguments("indexOf", args, 1, Object.class);
-            return ((List<Object>) context).indexOf(args.get(0));
-        });
-
-        // Register the 'isEmpty' function for ArrayLists
-        registerBuiltinFunction("isEmpty", ArrayList.class, (context, args) ->
-                ((List<Object>) context).isEmpty());
-
-        // Register the 'removeAll' function for ArrayLists
-        registerBuiltinFunction("removeAll", ArrayList.class, (context, args) -> {
-            validateArguments("removeAll", args, 1, List.class);
-            return ((List<Object>) context).removeAll((List<Object>) args.get(0));
-        });
-
-        // Register the 'containsAll' function for ArrayLists
-        registerBuiltinFunction("containsAll", ArrayList.class, (context, args) -> {
-            validateArguments("containsAll", args, 1, List.class);
-            return ((List<Object>) context).containsAll((List<Object>) args.get(0));
-        });
-
-        // Register the 'sort' function for Objects
-        registerBuiltinFunction("sort", ArrayList.class, (context, args) -> {
-            validateArguments("sort", args, 0);
-            List<Object> list = (List<Object>) context;
-            Collections.sort(list, (o1, o2) -> {
-                if (o1 instanceof Comparable<?> && o2 instanceof Comparable<?>) {
-                    return ((Comparable<Object>) o1).compareTo(o2);
-                }
-                return 0;
-            });
-            return list;
-        });
+    public Parser(TokenStream tokens, String fileName, CharSequence input, NumericMode numericMode) {
+        this(tokens, new SourceFile(fileName, input), new SymbolTable(), numericMode);
     }
 
     /**
-     * Validates the arguments passed to a built-in function.
+     * Constructor for the Parser class, for tokens of part of a source file.
      *
-     * @param functionName    The name of the function being called.
-     * @param args           The list of arguments passed to the function.
-     * @param expectedCount  The expected number of arguments.
-     * @param expectedTypes The expected types of arguments.
-     * @throws ParseException If the arguments are invalid.
+     * @param tokens      The tokens to be parsed.
+     * @param source      The source file, which needs to know the lines of the tokens.
+     * @param symbols     The symbol table to intern names into, shared by the parsers of the parts of a file.
+     * @param numericMode The numeric mode the program will run in.
      */
-    private void validateArguments(String functionName, List<Object> args, int expectedCount, Class<?>... expectedTypes) throws ParseException {
-        if (args.size() != expectedCount) {
-            throw new ParseException(fileName, functionName + "() expects " + (expectedCount)+
-                    " argument" + (expectedCount > 1 ? "s" : "") + ", but got " + (args.size()),
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-        for (int i = 0; i < expectedCount; i++) {
-            if (!(expectedTypes[i].isInstance(args.get(i)))) {
-                throw new ParseException(fileName, functionName + "() argument " + (i + 1) +
-                        " should be " + expectedTypes[i].getSimpleName() + ", but got " +
-                        args.get(i).getClass().getSimpleName(),
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            }
-        }
+    public Parser(TokenStream tokens, SourceFile source, SymbolTable symbols, NumericMode numericMode) {
+        this.fileName = source.getFileName();
+        this.source = source;
+        this.tokens = tokens;
+        this.symbols = symbols;
+        this.numericMode = numericMode;
     }
 
     /**
-     * Parses the list of tokens and executes statements.
+     * Parses the list of tokens into a program.
+     *
+     * @return The parsed program.
+     * @throws ParseException If a syntax error is encountered.
      */
-    public void parse() {
-        try {
-            while (!isAtEnd()) {
-                statement();
-            }
-        } catch (ParseException e) {
-            System.err.println(e.getFormattedMessage());
+    public Program parse() throws ParseException {
+        List<Stmt> statements = new ArrayList<>();
+        Stmt statement;
+        while ((statement = parseStatement()) != null) {
+            statements.add(statement);
+            tokens.release(position);
         }
+        return new Program(statements, functions, symbols, numericMode);
     }
 
     /**
-     * Parses a single statement.
+     * Parses the next top-level statement, skipping the semicolons before it.
      *
+     * @return The parsed statement, or null at the end of file.
      * @throws ParseException If a syntax error is encountered.
      */
-    private void statement() throws ParseException {
-        // Determine the type of statement based on the current token
-        switch (currentPosition().getToken()) {
-            case Token.BREAK -> {
-                consume(Token.BREAK);
-                breakFlag = true;
-            }
-            case Token.CONTINUE -> {
-                consume(Token.CONTINUE);
-                continueFlag = true;
-            }
-            case Token.PRINT, Token.PRINTLN -> printStatement();
-            case Token.FOR -> forStatement();
-            case Token.WHILE -> whileStatement();
-            case Token.IF -> ifStatement();
-            case Token.FUNC -> functionDeclaration();
-            case Token.IDENTIFIER, Token.DOLLAR -> {
-                switch (peek(1).getToken()) {
-                    // Handle method calls with '.'
-                    case Token.DOT -> dotStatement();
-                    // Handle function calls with '('
-                    case Token.LEFT_PAREN -> functionCall(consume(Token.IDENTIFIER).getValue());
-                    // Handle variable assignments with '=' or array assignments with '['
-                    case Token.EQUAL, Token.LEFT_BRACKET -> variableAssignment();
-                    // Handle variable declarations
-                    default -> variableDeclaration();
-                }
-            }
-            default -> throw unexpectedTokenException("Invalid start of statement");
-
+    public Stmt parseStatement() throws ParseException {
+        while (match(TokenKind.SEMICOLON)) {
+            // Empty statement
         }
+        if (isAtEnd()) return null;
+        return statement();
     }
 
-    private void whileStatement() throws ParseException {
-        consume(Token.WHILE);
-        consume(Token.LEFT_PAREN);
-        int conditionPosition = position;
-
-        while (evaluateCondition()) {
-            consume(Token.RIGHT_PAREN);
-            enterScope();
-            executeConditionalBlock();
-            if (breakFlag) break;
-
-            if (continueFlag) {
-                continueFlag = false;
-                position = conditionPosition;
-                continue;
-            }
-            exitScope();
-
-            position = conditionPosition;
-        }
-
-        breakFlag = false;
-    }
-
-
-
     /**
-     * Parses and handles method calls using the '.' operator.
+     * Gets the index in the token stream of the next token to be parsed.
      *
-     * @throws ParseException If an error occurs during method call parsing.
+     * @return The index.
      */
-    private void dotStatement() throws ParseException {
-        String identifier = consume(Token.IDENTIFIER).getValue();
-        consume(Token.DOT);
-        String methodName = consume(Token.IDENTIFIER).getValue();
-        Object object = getVariableValue(identifier);
-
-        List<Object> args = new ArrayList<>();
-        if (currentPosition().getToken().equals(Token.LEFT_PAREN)) {
-            args.addAll(parseArguments());
-        }
-
-        handleMethodCall(object, methodName, args);
+    public int getPosition() {
+        return position;
     }
 
     /**
-     * Parses a function declaration and stores it in the 'functions' map.
+     * Recovers from a syntax error in a top-level statement, so that parsing can go on with the next one:
+     * skips to the first token after the start of the statement that begins a line outside any curly braces
+     * the statement opened.
      *
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @param from The index of the first token of the statement.
      */
-    private void functionDeclaration() throws ParseException {
-        consume(Token.FUNC);
-        String functionName = consume(Token.IDENTIFIER).getValue();
-        consume(Token.LEFT_PAREN);
-
-        List<Parameter> parameters = new ArrayList<>();
-        while (!currentPosition().getToken().equals(Token.RIGHT_PAREN)) {
-            String paramName = consume(Token.IDENTIFIER).getValue();
-            consume(Token.COLON);
-            String paramType = consume(currentPosition().getToken()).getToken();
+    public void recover(int from) {
+        currentFunctionName = null;
+        currentReturnType = null;
+        loopDepth = 0;
 
-            validateType(paramType);
-
-            parameters.add(new Parameter(paramName, paramType));
-
-            if (currentPosition().getToken().equals(Token.COMMA)) {
-                consume(Token.COMMA);
+        int depth = 0;
+        position = from;
+        do {
+            TokenKind kind = tokens.kind(position);
+            if (kind == TokenKind.LEFT_BRACE) {
+                depth++;
+            } else if (kind == TokenKind.RIGHT_BRACE && depth > 0) {
+                depth--;
             }
-        }
-        consume(Token.RIGHT_PAREN);
-
-        String returnType = peek(1).getToken();
-        if (currentPosition().getToken().equals(Token.COLON)) {
-            consume(Token.COLON);
-            returnType = consume(currentPosition().getToken()).getValue();
-            validateReturnType(returnType);
-        }
-
-        consume(Token.LEFT_BRACE);
-        int functionBodyStart = position;
-        int braceCount = 1;
-
-        while (braceCount > 0 && !isAtEnd()) {
-            if (currentPosition().getToken().equals(Token.LEFT_BRACE)) {
-                braceCount++;
-            } else if (currentPosition().getToken().equals(Token.RIGHT_BRACE)) {
-                braceCount--;
-            }
-
             position++;
-        }
-
-        if (braceCount > 0) {
-            throw new ParseException(fileName, "Unclosed function body",
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-
-        int functionBodyEnd = position - 1;
-
-        functions.put(functionName, new Function(functionName, parameters, returnType, functionBodyStart, functionBodyEnd));
-    }
-
-    /**
-     * Parses and executes a function call.
-     *
-     * @param functionName The name of the function to call.
-     * @return The return value of the function, or null if it doesn't return a value.
-     * @throws ParseException If an error occurs during function call parsing or execution.
-     */
-    private Object functionCall(String functionName) throws ParseException {
-        consume(Token.LEFT_PAREN);
-        List<Object> arguments = new ArrayList<>();
-        if (!currentPosition().getToken().equals(Token.RIGHT_PAREN)) {
-            do {
-                arguments.add(expression());
-                if (currentPosition().getToken().equals(Token.COMMA)) {
-                    consume(Token.COMMA);
-                } else break;
-            } while (true);
-        }
-
-        consume(Token.RIGHT_PAREN);
-
-        // Check if it's a user-defined function
-        if (functions.containsKey(functionName)) {
-            return executeUserDefinedFunction(functionName, arguments);
-        }
-        // Check if it's a built-in function
-        else if (builtinFunctions.containsKey(functionName)) {
-            return handleMethodCall(null, functionName, arguments);
-        }
-        // Function not found
-        else {
-            throw new ParseException(fileName, "Undefined function: " + functionName,
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
+        } while (!isAtEnd() && (depth > 0 || tokens.line(position) == tokens.line(position - 1)));
     }
 
     /**
-     * Executes a user-defined function.
+     * Parses a single statement.
      *
-     * @param functionName The name of the function to execute.
-     * @param arguments   The list of arguments passed to the function.
-     * @return The return value of the function, or null if it doesn't return a value.
-     * @throws ParseException If an error occurs during function execution.
+     * @return The parsed statement.
+     * @throws ParseException If a syntax error is encountered.
      */
-    private Object executeUserDefinedFunction(String functionName, List<Object> arguments) throws ParseException {
-        Function function = functions.get(functionName);
-        if (arguments.size() != function.parameters.size()) {
-            throw new ParseException(fileName,
-                    "Function " + functionName + " expects " + function.parameters.size() +
-                            " arguments, but got " + arguments.size(),
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-
-        // Create a new scope for the function
-        enterScope();
-        for (int i = 0; i < function.parameters.size(); i++) {
-            Parameter param = function.parameters.get(i);
-            getCurrentScope().put(param.name, arguments.get(i));
-        }
-
-        // Execute the function body
-        int savedPosition = position;
-        position = function.bodyStart;
-
-        Object returnValue = null;
-        boolean returned = false;
-
-        while (position < function.bodyEnd) {
-            if (currentPosition().getToken().equals(Token.RETURN)) {
-                consume(Token.RETURN);
-
-                // Check if a void function is trying to return a value
-                if (function.returnType.equals(Token.VOID)) {
-                    throw new ParseException(fileName, "Void function should not return a value",
-                            currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
+    private Stmt statement() throws ParseException {
+        // Determine the type of statement based on the current token
+        return switch (currentKind()) {
+            case BREAK -> {
+                if (loopDepth == 0) throw unexpectedTokenException("'break' outside of loop");
+                yield new Stmt.Break(consume(TokenKind.BREAK));
+            }
+            case CONTINUE -> {
+                if (loopDepth == 0) throw unexpectedTokenException("'continue' outside of loop");
+                yield new Stmt.Continue(consume(TokenKind.CONTINUE));
+            }
+            case PRINT, PRINTLN -> printStatement();
+            case FOR -> forStatement();
+            case WHILE -> whileStatement();
+            case IF -> ifStatement();
+            case FUNC -> functionDeclaration();
+            case RETURN -> returnStatement();
+            case IDENTIFIER, DOLLAR -> {
+                if (isMemoModifier()) {
+                    yield functionDeclaration();
                 }
-
-                returnValue = expression();
-                returned = true;
-
-                // Type check the returned value
-                checkType(returnValue, function.returnType);
-
-                break;
+                if (isVariableDeclaration()) {
+                    yield variableDeclaration();
+                }
+                yield expressionStatement();
             }
-            statement();
-        }
-
-        // Check for missing return statement in non-void functions
-        if (!function.returnType.equals(Token.VOID) && !returned) {
-            throw new ParseException(fileName, "Missing return statement in function '" + function.name + "'",
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-
-        exitScope();
-        position = savedPosition;
-
-        return returnValue;
+            case RIGHT_BRACE -> throw unexpectedTokenException("Unmatched '}'");
+            default -> throw unexpectedTokenException("Invalid start of statement");
+        };
     }
 
-
     /**
-     * Parses the arguments passed to a function call.
+     * Checks if the current token is the 'memo' modifier, which is only a keyword right before 'func',
+     * so that programs can still use memo as a name.
      *
-     * @return A list of parsed argument values.
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @return True if 'memo func' follows.
      */
-    private List<Object> parseArguments() throws ParseException {
-        consume(Token.LEFT_PAREN);
-        List<Object> arguments = new ArrayList<>();
-        while (!currentPosition().getToken().equals(Token.RIGHT_PAREN)) {
-            arguments.add(expression());
-            if (currentPosition().getToken().equals(Token.COMMA)) {
-                consume(Token.COMMA);
-            } else break;
-        }
-        consume(Token.RIGHT_PAREN);
-        return arguments;
+    private boolean isMemoModifier() {
+        return check(TokenKind.IDENTIFIER) && peekKind(1) == TokenKind.FUNC
+                && tokens.text(position).equals(Token.MEMO);
     }
 
     /**
-     * Parses a variable declaration statement.
+     * Checks if the tokens at the current position start a variable declaration ('name:' or '$name:').
      *
-     * @throws ParseException If a syntax error is encountered or if the variable is already declared in the current scope.
+     * @return True if a variable declaration follows.
      */
-    private void variableDeclaration() throws ParseException {
-        boolean isConstant = currentPosition().getToken().equals(Token.DOLLAR);
-        if (isConstant) consume(Token.DOLLAR);
-
-        String variableName = consume(Token.IDENTIFIER).getValue();
-        ensureVariableNotDeclaredLocal(variableName);
-
-        consume(Token.COLON);
-        String type = parseType();
-
-        consume(Token.EQUAL);
-
-        if (type.endsWith("array")) {
-            declareArrayVariable(variableName, type, isConstant);
-        } else {
-            declareVariable(variableName, type, isConstant);
+    private boolean isVariableDeclaration() {
+        if (check(TokenKind.DOLLAR)) {
+            return peekKind(1) == TokenKind.IDENTIFIER && peekKind(2) == TokenKind.COLON;
         }
-
-        variableTypes.put(variableName, type);
+        return peekKind(1) == TokenKind.COLON;
     }
 
     /**
-     * Parses the type of a variable, including array dimensions.
+     * Parses a statement that starts with an expression: a function call, a method call,
+     * or an assignment to a variable or array element, which may be compound (+=, -=, *=, /=, %=, ++, --).
      *
-     * @return The parsed type string.
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @return The parsed statement.
+     * @throws ParseException If the expression is not a valid statement.
      */
-    private String parseType() throws ParseException {
-        String baseType = consume(currentPosition().getToken()).getToken();
-        StringBuilder fullType = new StringBuilder(baseType);
+    private Stmt expressionStatement() throws ParseException {
+        Token start = currentPosition();
+        Expr target = postfix();
 
-        while (currentPosition().getToken().equals(Token.LEFT_BRACKET)) {
-            consume(Token.LEFT_BRACKET);
-            consume(Token.RIGHT_BRACKET);
-            fullType.append(" array");
+        if (isAssignmentOperator(currentKind())) {
+            Token equal = advance();
+            String operator = switch (equal.getKind()) {
+                case PLUS_EQUAL, PLUS_PLUS -> Token.PLUS;
+                case MINUS_EQUAL, MINUS_MINUS -> Token.MINUS;
+                case ASTERISK_EQUAL -> Token.ASTERISK;
+                case SLASH_EQUAL -> Token.SLASH;
+                case PERCENT_EQUAL -> Token.PERCENT;
+                default -> null;
+            };
+            // x++ and x-- add or subtract one
+            Expr value = equal.getKind() == TokenKind.PLUS_PLUS || equal.getKind() == TokenKind.MINUS_MINUS
+                    ? new Expr.Literal(equal, numericMode.valueOf(1))
+                    : expression();
+            if (target instanceof Expr.Variable variable) {
+                return new Stmt.Assign(equal, variable.name, variable.symbol, operator, value);
+            } else if (target instanceof Expr.Index index) {
+                return new Stmt.IndexAssign(equal, index, operator, value);
+            }
+            throw new ParseException(fileName, "Invalid assignment target",
+                    equal.getLine(), equal.getColumn(), getLine(equal.getLine()));
         }
 
-        return fullType.toString();
+        if (target instanceof Expr.Call || target instanceof Expr.MethodCall) {
+            return new Stmt.Expression(start, target);
+        }
+        throw new ParseException(fileName, "Invalid start of statement",
+                start.getLine(), start.getColumn(), getLine(start.getLine()));
     }
 
-    /**
-     * Declares a variable with the specified name, type, and initial value.
-     *
-     * @param variableName  The name of the variable to declare.
-     * @param type         The type of the variable.
-     * @param isConstant  Indicates if the variable is a constant.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private void declareVariable(String variableName, String type, boolean isConstant) throws ParseException {
-        Object value = getTypedValue(type);
-
-        if (isConstant) constants.add(variableName);
-
-        getCurrentScope().put(variableName, value);
+    private boolean isAssignmentOperator(TokenKind token) {
+        return switch (token) {
+            case EQUAL, PLUS_EQUAL, MINUS_EQUAL, ASTERISK_EQUAL, SLASH_EQUAL, PERCENT_EQUAL,
+                    PLUS_PLUS, MINUS_MINUS -> true;
+            default -> false;
+        };
     }
 
     /**
-     * Declares an array variable with the specified name, type, and initial values.
+     * Parses a print statement (either 'print' or 'println').
      *
-     * @param variableName  The name of the array variable to declare.
-     * @param type         The type of the array.
-     * @param isConstant  Indicates if the variable is a constant.
+     * @return The parsed statement.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void declareArrayVariable(String variableName, String type, boolean isConstant) throws ParseException {
-        consume(Token.LEFT_BRACKET);
-
-        List<Object> array = parseMultiDimensionalArray(type);
+    private Stmt printStatement() throws ParseException {
+        boolean ln = check(TokenKind.PRINTLN);
+        Token keyword = consume(ln ? TokenKind.PRINTLN : TokenKind.PRINT);
 
-        consume(Token.RIGHT_BRACKET);
+        expect(TokenKind.LEFT_PAREN);
 
-        if (isConstant) {
-            constants.add(variableName);
+        List<Expr> printArgs = new ArrayList<>();
+        while (!check(TokenKind.RIGHT_PAREN) && !isAtEnd()) {
+            printArgs.add(expression());
+            match(TokenKind.COMMA);
         }
-        getCurrentScope().put(variableName, array);
+
+        expect(TokenKind.RIGHT_PAREN);
+        return new Stmt.Print(keyword, ln, printArgs);
     }
 
     /**
-     * Parses a multi-dimensional array declaration.
+     * Parses a for loop statement, over either a range or an array.
      *
-     * @param type The type of the array.
-     * @return A List representing the parsed multi-dimensional array.
+     * @return The parsed statement.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private List<Object> parseMultiDimensionalArray(String type) throws ParseException {
-        List<Object> array = new ArrayList<>();
-        while (!currentPosition().getToken().equals(Token.RIGHT_BRACKET)) {
-            if (currentPosition().getToken().equals(Token.LEFT_BRACKET)) {
-                consume(Token.LEFT_BRACKET);
-                array.add(parseMultiDimensionalArray(type.replace(" array", "")));
-                consume(Token.RIGHT_BRACKET);
-            } else {
-                array.add(parseArrayElement(type.replace(" array", "")));
-            }
-            if (currentPosition().getToken().equals(Token.COMMA)) {
-                consume(Token.COMMA);
+    private Stmt forStatement() throws ParseException {
+        Token keyword = consume(TokenKind.FOR);
+        expect(TokenKind.LEFT_PAREN);
+
+        int symbol = consumeSymbol();
+        String variable = symbols.name(symbol);
+        expect(TokenKind.COLON);
+        String type = parseType();
+        validateType(type);
+        expect(TokenKind.IN);
+
+        Expr first = expression();
+        if (match(TokenKind.DOT_DOT)) {
+            Expr end = expression();
+            Expr step = null;
+            if (match(TokenKind.DOT_DOT)) {
+                step = expression();
             }
+            expect(TokenKind.RIGHT_PAREN);
+            return new Stmt.ForRange(keyword, variable, symbol, type, first, end, step, loopBody());
         }
-        return array;
+
+        expect(TokenKind.RIGHT_PAREN);
+        return new Stmt.ForEach(keyword, variable, symbol, type, first, loopBody());
     }
 
     /**
-     * Parses a single array element based on the array type.
+     * Parses a while loop statement.
      *
-     * @param arrayType The type of the array.
-     * @return The parsed array element.
+     * @return The parsed statement.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object parseArrayElement(String arrayType) throws ParseException {
-        String elementType = arrayType.replace(" array", "");
-        return getTypedValue(elementType);
+    private Stmt whileStatement() throws ParseException {
+        Token keyword = consume(TokenKind.WHILE);
+        expect(TokenKind.LEFT_PAREN);
+        Expr condition = expression();
+        expect(TokenKind.RIGHT_PAREN);
+        return new Stmt.While(keyword, condition, loopBody());
     }
 
     /**
-     * Ensures that a variable with the given name is not already declared in the current scope.
+     * Parses the body of a loop, tracking the loop depth for 'break' and 'continue'.
      *
-     * @param variableName The name of the variable to check.
-     * @throws ParseException If the variable is already declared in the current scope.
+     * @return The parsed loop body.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void ensureVariableNotDeclaredLocal(String variableName) throws ParseException {
-        if (getCurrentScope().containsKey(variableName)) {
-            throw new ParseException(fileName, "Variable '" + variableName + "' already declared in this scope",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+    private Stmt loopBody() throws ParseException {
+        loopDepth++;
+        try {
+            return branch();
+        } finally {
+            loopDepth--;
         }
     }
 
     /**
-     * Gets a typed value based on the provided type string.
+     * Parses an if statement, including else if and else blocks.
+     * The same method parses the 'else if' part of a chain, which becomes a nested if.
      *
-     * @param type The expected type of the value.
-     * @return The parsed value.
-     * @throws ParseException If a parsing error occurs or the type is not supported.
+     * @return The parsed statement.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object getTypedValue(String type) throws ParseException {
-        String currentTokenType = currentPosition().getToken();
-
-        if (currentTokenType.equals(getTokenLiteralByType(type))) {
-            return switch (type) {
-                case Token.NUMBER -> expressionNumber();
-                case Token.STRING -> expressionString();
-                case Token.BOOLEAN -> expressionBoolean();
-                case Token.CHAR -> expressionChar();
-                case Token.NULL -> expressionNull();
-                default -> throw new ParseException(fileName, "Unsupported type: " + type.toLowerCase(),
-                        currentPosition().getLine(),
-                        currentPosition().getColumn(),
-                        getCurrentLine());
-            };
-        } else {
-            Object result = expression();
-
-            if ((type.equals(Token.NUMBER) && !(result instanceof BigDecimal)) ||
-                    (type.equals(Token.STRING) && !(result instanceof String)) ||
-                    (type.equals(Token.BOOLEAN) && !(result instanceof Boolean)) ||
-                    (type.equals(Token.CHAR) && !(result instanceof Character)) ||
-                    (type.equals(Token.NULL) && result != null)) {
-                throw new ParseException(fileName, "Type mismatch: Expected " + type.toLowerCase() + ", found " + result.getClass().getSimpleName(),
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            }
+    private Stmt ifStatement() throws ParseException {
+        Token keyword = consume(check(TokenKind.ELSE_IF) ? TokenKind.ELSE_IF : TokenKind.IF);
+        expect(TokenKind.LEFT_PAREN);
+        Expr condition = expression();
+        expect(TokenKind.RIGHT_PAREN);
 
-            return result;
+        Stmt thenBranch = branch();
+        Stmt elseBranch = null;
+        if (check(TokenKind.ELSE_IF)) {
+            elseBranch = ifStatement();
+        } else if (match(TokenKind.ELSE)) {
+            elseBranch = branch();
         }
+        return new Stmt.If(keyword, condition, thenBranch, elseBranch);
     }
 
     /**
-     * Gets the corresponding token literal for a given type.
+     * Parses the body of an if, else or loop: either a block in curly braces or a single statement.
+     * A single statement is wrapped in a block so that it gets its own scope.
      *
-     * @param type The type to get the literal for.
-     * @return The token literal string.
-     */
-    private String getTokenLiteralByType(String type) {
-        return switch (type) {
-            case Token.NUMBER -> Token.NUMBER_LITERAL;
-            case Token.STRING -> Token.STRING_LITERAL;
-            case Token.BOOLEAN -> Token.BOOLEAN_LITERAL;
-            case Token.CHAR -> Token.CHAR_LITERAL;
-            case Token.NULL -> Token.NULL;
-            default -> "";
-        };
-    }
-
-    /**
-     * Parses a variable assignment statement.
-     *
-     * @throws ParseException If a syntax error is encountered or if the variable is not declared or is a constant.
+     * @return The parsed block.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void variableAssignment() throws ParseException {
-        if (currentPosition().getToken().equals(Token.IDENTIFIER) &&
-                peek(1).getToken().equals(Token.LEFT_BRACKET)) {
-            assignToArrayElement();
-        } else {
-            assignToVariable();
+    private Stmt.Block branch() throws ParseException {
+        if (check(TokenKind.LEFT_BRACE)) {
+            return block();
         }
+        Token start = currentPosition();
+        return new Stmt.Block(start, List.of(statement()));
     }
 
     /**
-     * Parses and handles array element assignment.
+     * Parses a block of code enclosed in curly braces.
      *
-     * @throws ParseException If a syntax error is encountered or if the array index is out of bounds.
+     * @return The parsed block.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void assignToArrayElement() throws ParseException {
-        String arrayName = consume(Token.IDENTIFIER).getValue();
-        List<Integer> indices = new ArrayList<>();
-
-        while (currentPosition().getToken().equals(Token.LEFT_BRACKET)) {
-            consume(Token.LEFT_BRACKET);
-            indices.add(((BigDecimal) expression()).intValue());
-            consume(Token.RIGHT_BRACKET);
+    private Stmt.Block block() throws ParseException {
+        int end = closingBrace();
+        Token brace = consume(TokenKind.LEFT_BRACE);
+        if (end < 0) {
+            throw new ParseException(fileName, "Unclosed '{'",
+                    brace.getLine(), brace.getColumn(), getLine(brace.getLine()));
         }
-
-        consume(Token.EQUAL);
-
-        Object value = expression();
-        assignValueAtIndices(arrayName, indices, value);
+        List<Stmt> statements = new ArrayList<>();
+        while (position < end) {
+            if (match(TokenKind.SEMICOLON)) continue;
+            statements.add(statement());
+        }
+        expect(TokenKind.RIGHT_BRACE);
+        return new Stmt.Block(brace, statements);
     }
 
     /**
-     * Assigns a value to an array element at the specified indices.
+     * Parses a function declaration and adds it to the 'functions' list.
+     * A function declared with 'memo' caches its results, so it may only take and return values
+     * that cannot change, which rules out arrays.
      *
-     * @param arrayName The name of the array variable.
-     * @param indices   The list of indices to access the array element.
-     * @param value     The value to assign.
-     * @throws ParseException If a syntax error is encountered or if the array index is out of bounds.
+     * @return The parsed declaration.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void assignValueAtIndices(String arrayName, List<Integer> indices, Object value) throws ParseException {
-        Object array = getVariableValue(arrayName);
-        setValueAtIndices(array, indices, 0, value);
-    }
+    private Stmt functionDeclaration() throws ParseException {
+        boolean memoized = isMemoModifier();
+        if (memoized) advance();
+        expect(TokenKind.FUNC);
+        Token nameToken = currentPosition();
+        int symbol = consumeSymbol();
+        String functionName = symbols.name(symbol);
+        expect(TokenKind.LEFT_PAREN);
+
+        List<Stmt.Parameter> parameters = new ArrayList<>();
+        while (!check(TokenKind.RIGHT_PAREN) && !isAtEnd()) {
+            int paramSymbol = consumeSymbol();
+            expect(TokenKind.COLON);
+            Token typeToken = currentPosition();
+            String paramType = parseType();
 
-    /**
-     * Recursively sets a value at the specified indices of a multi-dimensional array.
-     *
-     * @param array  The current level of the array (or sub-array).
-     * @param indices The list of indices to access the array element.
-     * @param depth   The current depth of recursion in the multi-dimensional array.
-     * @param value   The value to assign.
-     * @throws ParseException If a syntax error is encountered or if the array index is out of bounds.
-     */
-    private void setValueAtIndices(Object array, List<Integer> indices, int depth, Object value) throws ParseException {
-        if (!(array instanceof List)) {
-            throw new ParseException(fileName, "Trying to access non-array element as array",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        }
+            validateType(paramType);
+            if (memoized && !MEMOIZABLE_TYPES.contains(paramType)) {
+                throw new ParseException(fileName, "Memoized function parameters must be number, string, boolean or char",
+                        typeToken.getLine(), typeToken.getColumn(), getLine(typeToken.getLine()));
+            }
 
-        List<Object> list = (List<Object>) array;
-        int index = indices.get(depth);
+            parameters.add(new Stmt.Parameter(symbols.name(paramSymbol), paramSymbol, paramType));
 
-        if (index < 0 || index >= list.size()) {
-            throw new ParseException(fileName, "Array index out of bounds: " + index,
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+            match(TokenKind.COMMA);
         }
+        expect(TokenKind.RIGHT_PAREN);
 
-        if (depth == indices.size() - 1) {
-            list.set(index, value);
-        } else {
-            setValueAtIndices(list.get(index), indices, depth + 1, value);
+        String returnType = Token.VOID;
+        Token returnTypeToken = currentPosition();
+        if (match(TokenKind.COLON)) {
+            returnTypeToken = currentPosition();
+            returnType = parseType();
+            validateReturnType(returnType);
         }
-    }
-
-    /**
-     * Parses and handles variable assignments.
-     *
-     * @throws ParseException If a syntax error is encountered or if the variable is not declared or is a constant.
-     */
-    private void assignToVariable() throws ParseException {
-        String variableName = consume(Token.IDENTIFIER).getValue();
-
-        consume(Token.EQUAL);
-
-        if (isConstantDeclared(variableName)) {
-            throw new ParseException(fileName, "Cannot reassign constant variable: " + variableName,
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+        if (memoized && !MEMOIZABLE_TYPES.contains(returnType)) {
+            throw new ParseException(fileName, "Memoized functions must return number, string, boolean or char",
+                    returnTypeToken.getLine(), returnTypeToken.getColumn(), getLine(returnTypeToken.getLine()));
         }
 
-        Object value = expression();
-        if (!assignVariableIfDeclared(variableName, value)) {
-            throw new ParseException(fileName, "Undefined variable: " + variableName,
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        }
-    }
+        String savedFunctionName = currentFunctionName;
+        String savedReturnType = currentReturnType;
+        int savedLoopDepth = loopDepth;
+        currentFunctionName = functionName;
+        currentReturnType = returnType;
+        loopDepth = 0;
 
-    /**
-     * Assigns a value to an array element at the specified index.
-     *
-     * @param arrayName The name of the array variable.
-     * @param index    The index of the element to assign.
-     * @param value     The value to assign.
-     * @throws ParseException If the array index is out of bounds or if a type mismatch occurs.
-     */
-    private void assignValueAtIndex(String arrayName, int index, Object value) throws ParseException {
-        Object array = getVariableValue(arrayName);
-
-        if (array instanceof List<?> arrayList) {
-            if (index < 0 || index >= arrayList.size()) {
-                throw new ParseException(fileName, "Array index out of bounds: " + index,
-                        currentPosition().getLine(),
-                        currentPosition().getColumn(),
-                        getCurrentLine());
+        List<Stmt> body = new ArrayList<>();
+        try {
+            int end = closingBrace();
+            expect(TokenKind.LEFT_BRACE);
+            if (end < 0) {
+                throw new ParseException(fileName, "Unclosed function body",
+                        nameToken.getLine(), nameToken.getColumn(), getLine(nameToken.getLine()));
             }
-
-            String arrayType = getVariableType(arrayName).replace(" array", "");
-            if (!checkElementType(arrayType, value)) {
-                throw new ParseException(fileName,
-                        "Type mismatch: Cannot assign " + value.getClass().getSimpleName() + " to " + arrayType,
-                        currentPosition().getLine(),
-                        currentPosition().getColumn(),
-                        getCurrentLine());
+            while (position < end) {
+                if (match(TokenKind.SEMICOLON)) continue;
+                body.add(statement());
             }
-
-            ((List) arrayList).set(index, value);
-        } else {
-            throw new ParseException(fileName, "Variable '" + arrayName + "' is not an array",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+            expect(TokenKind.RIGHT_BRACE);
+        } finally {
+            currentFunctionName = savedFunctionName;
+            currentReturnType = savedReturnType;
+            loopDepth = savedLoopDepth;
         }
-    }
 
-    /**
-     * Checks if the provided element is of the correct type for the given array type.
-     *
-     * @param arrayType   The type of the array.
-     * @param element  The element to check.
-     * @return True if the element type matches the array type, otherwise false.
-     */
-    private boolean checkElementType(String arrayType, Object element) {
-        String elementType = arrayType.replace(" array", "");
-        return switch (elementType) {
-            case Token.NUMBER -> element instanceof BigDecimal;
-            case Token.STRING -> element instanceof String;
-            case Token.BOOLEAN -> element instanceof Boolean;
-            case Token.CHAR -> element instanceof Character;
-            case Token.NULL -> element == null;
-            default -> false;
-        };
+        Stmt.Function function = new Stmt.Function(nameToken, functionName, symbol, parameters, returnType, memoized,
+                body);
+        functions.add(function);
+        return function;
     }
 
     /**
-     * Gets the type of a declared variable.
+     * Parses a return statement inside a function body.
      *
-     * @param variableName The name of the variable.
-     * @return The type of the variable.
-     * @throws ParseException If the variable is not declared.
+     * @return The parsed statement.
+     * @throws ParseException If the return is outside a function or does not match the return type.
      */
-    private String getVariableType(String variableName) throws ParseException {
-        if (!isVariableDeclared(variableName)) {
-            throw new ParseException(fileName, "Undefined variable: " + variableName,
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+    private Stmt returnStatement() throws ParseException {
+        if (currentFunctionName == null) {
+            throw unexpectedTokenException("Return statement outside of function");
         }
+        Token keyword = consume(TokenKind.RETURN);
 
-        return variableTypes.get(variableName);
-    }
-
-    /**
-     * Parses a for loop statement.
-     *
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private void forStatement() throws ParseException {
-        consume(Token.FOR);
-        consume(Token.LEFT_PAREN);
-
-        String variable = consume(Token.IDENTIFIER).getValue();
-        consume(Token.COLON);
-        String type = consume(currentPosition().getToken()).getToken();
-        consume(Token.IN);
-
-        // Determine if iterating over an array or a range
-        if (currentPosition().getToken().equals(Token.IDENTIFIER)) {
-            iterateOverArray(variable);
-        } else if (currentPosition().getToken().equals(Token.NUMBER_LITERAL)) {
-            iterateOverRange(variable, type);
-        } else {
-            throw unexpectedTokenException("Expected identifier or number literal after 'in'");
+        Expr value = null;
+        if (!check(TokenKind.RIGHT_BRACE) && !isAtEnd()) {
+            // Check if a void function is trying to return a value
+            if (currentReturnType.equals(Token.VOID)) {
+                throw unexpectedTokenException("Void function should not return a value");
+            }
+            value = expression();
+        } else if (!currentReturnType.equals(Token.VOID)) {
+            throw new ParseException(fileName, "Missing return value in function '" + currentFunctionName + "'",
+                    keyword.getLine(), keyword.getColumn(), getLine(keyword.getLine()));
         }
+        return new Stmt.Return(keyword, value);
     }
 
     /**
-     * Iterates over an array in a for loop.
+     * Parses a variable declaration statement.
      *
-     * @param variable       The name of the loop variable.
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @return The parsed statement.
+     * @throws ParseException If a syntax error is encountered.
      */
-    private void iterateOverArray(String variable) throws ParseException {
-        String arrayVariable = consume(Token.IDENTIFIER).getValue();
-        consume(Token.RIGHT_PAREN);
-
-        Object arrayObject = getVariableValue(arrayVariable);
-        if (!(arrayObject instanceof List<?> array)) {
-            throw new ParseException(fileName, "Variable '" + arrayVariable + "' is not an array",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        }
-
-        enterScope();
-
-        int forLoopStartPosition = position;
-        for (Object element : array) {
-            position = forLoopStartPosition;
+    private Stmt variableDeclaration() throws ParseException {
+        boolean isConstant = match(TokenKind.DOLLAR);
 
-            getCurrentScope().put(variable, element);
-            executeForLoopBody();
+        Token nameToken = currentPosition();
+        int symbol = consumeSymbol();
 
-            if (breakFlag) break;
-
-            if (continueFlag) {
-                continueFlag = false;
-                continue;
-            }
-        }
+        expect(TokenKind.COLON);
+        String type = parseType();
+        validateType(type);
 
-        exitScope();
+        expect(TokenKind.EQUAL);
+        Expr initializer = expression();
 
-        breakFlag = false;
+        return new Stmt.VarDecl(nameToken, symbols.name(symbol), symbol, type, isConstant, initializer);
     }
 
     /**
-     * Iterates over a range of values in a for loop.
+     * Parses the type of a variable, including array dimensions.
      *
-     * @param variable The name of the loop variable.
-     * @param type    The type of the loop variable.
+     * @return The parsed type string.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void iterateOverRange(String variable, String type) throws ParseException {
-        BigDecimal start = getRangeStart();
-        consume(Token.DOT_DOT);
-        BigDecimal end = expressionNumber();
-        BigDecimal step = BigDecimal.ONE;
-
-        if (currentPosition().getToken().equals(Token.DOT_DOT)) {
-            consume(Token.DOT_DOT);
-            step = expressionNumber();
-        }
-        consume(Token.RIGHT_PAREN);
-
-        if (step.compareTo(BigDecimal.ZERO) == 0) {
-            throw new ParseException(fileName, "Step cannot be zero",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+    private String parseType() throws ParseException {
+        Token typeToken = currentPosition();
+        if (!isTypeToken(typeToken)) {
+            throw unexpectedTokenException("Expected a type, found '" + typeToken.getValue() + "'");
         }
+        position++;
+        StringBuilder fullType = new StringBuilder(typeToken.getToken());
 
-        enterScope();
-
-        int forLoopStartPosition = position;
-        if (step.compareTo(BigDecimal.ZERO) > 0) {
-            for (BigDecimal i = start; i.compareTo(end) <= 0; i = i.add(step)) {
-                position = forLoopStartPosition;
-                checkType(i, type);
-                getCurrentScope().put(variable, i);
-                executeForLoopBody();
-
-                if (breakFlag) break;
-                if (continueFlag) continueFlag = false;
-            }
-        } else {
-            for (BigDecimal i = start; i.compareTo(end) >= 0; i = i.add(step)) {
-                position = forLoopStartPosition;
-                checkType(i, type);
-                getCurrentScope().put(variable, i);
-
-                executeForLoopBody();
-
-                if (breakFlag) break;
-                if (continueFlag) continueFlag = false;
-            }
+        while (check(TokenKind.LEFT_BRACKET) &&
+                peekKind(1) == TokenKind.RIGHT_BRACKET) {
+            expect(TokenKind.LEFT_BRACKET);
+            expect(TokenKind.RIGHT_BRACKET);
+            fullType.append(" array");
         }
 
-        exitScope();
-
-        breakFlag = false;
-    }
-
-    /**
-     * Gets the start value for a for loop range.
-     *
-     * @return The start value as a BigDecimal.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private BigDecimal getRangeStart() throws ParseException {
-        return expressionNumber();
+        return fullType.toString();
     }
 
     /**
-     * Checks if the provided value matches the expected type.
+     * Checks if a token is a type keyword, such as 'number' or 'string[]'.
      *
-     * @param value The value to check.
-     * @param type  The expected type.
-     * @throws ParseException If the value's type does not match the expected type.
+     * @param token The token to check.
+     * @return True if the token names a type.
      */
-    private void checkType(Object value, String type) throws ParseException {
-        if (type.endsWith(" array")) {
-            if (!(value instanceof List<?>)) {
-                throw new ParseException(fileName, "Type mismatch: Expected " + type + ", found " + value.getClass().getSimpleName(),
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            }
-
-            String elementType = type.substring(0, type.length() - " array".length());
-            for (Object element : (List<?>) value) {
-                checkType(element, elementType);
-            }
-        } else {
-            boolean isValidType = switch (type) {
-                case Token.NUMBER -> value instanceof BigDecimal;
-                case Token.STRING -> value instanceof String;
-                case Token.BOOLEAN -> value instanceof Boolean;
-                case Token.CHAR -> value instanceof Character;
-                case Token.NULL -> value == null;
-                default -> false;
-            };
-
-            if (!isValidType) {
-                throw new ParseException(fileName, "Type mismatch: Expected " + type + ", found " + value.getClass().getSimpleName(),
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            }
-        }
+    private boolean isTypeToken(Token token) {
+        if (token.getKind() != TokenKind.TYPE && token.getKind() != TokenKind.NULL) return false;
+        String baseType = token.getToken().replace(" array", "");
+        return VALID_RETURN_TYPES.contains(baseType);
     }
 
     /**
-     * Executes the body of a for loop.
+     * Parses a general expression: operands joined by '&&' and '||', which bind less tightly
+     * than every other operator, and '&&' more tightly than '||'.
      *
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void executeForLoopBody() throws ParseException {
-        if (currentPosition().getToken().equals(Token.LEFT_BRACE)) {
-            consume(Token.LEFT_BRACE);
-            block();
-            consume(Token.RIGHT_BRACE);
-        } else {
-            statement();
+    private Expr expression() throws ParseException {
+        Expr left = logicalAnd();
+
+        while (check(TokenKind.OR)) {
+            Token operator = advance();
+            Expr right = logicalAnd();
+            left = new Expr.Logical(operator, left, right);
         }
+        return left;
     }
 
     /**
-     * Parses and executes a print statement (either 'print' or 'println').
+     * Parses bitwise expressions joined by '&&'.
      *
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void printStatement() throws ParseException {
-        boolean ln = currentPosition().getToken().equals(Token.PRINTLN);
-        consume(ln ? Token.PRINTLN : Token.PRINT);
-
-        consume(Token.LEFT_PAREN);
-
-        List<Object> printArgs = new ArrayList<>();
-        while (!currentPosition().getToken().equals(Token.RIGHT_PAREN)) {
-            printArgs.add(expression());
-        }
-
-        consume(Token.RIGHT_PAREN);
-
-        for (Object arg : printArgs) {
-            String output = (arg instanceof String) ? (String) arg : String.valueOf(arg);
-            System.out.print(output);
-        }
+    private Expr logicalAnd() throws ParseException {
+        Expr left = bitwiseOr();
 
-        if (ln) {
-            System.out.println();
+        while (check(TokenKind.AND)) {
+            Token operator = advance();
+            Expr right = bitwiseOr();
+            left = new Expr.Logical(operator, left, right);
         }
+        return left;
     }
 
     /**
-     * Parses and executes an if statement, including else if and else blocks.
+     * Parses a bitwise or expression (|). As in C, '&', '^' and '|' bind less tightly than comparisons,
+     * in that order.
      *
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void ifStatement() throws ParseException {
-        consume(Token.IF);
-        consume(Token.LEFT_PAREN);
-        boolean condition = evaluateCondition();
-        consume(Token.RIGHT_PAREN);
-
-        if (condition) {
-            enterScope();
-            executeConditionalBlock();
-            exitScope();
-        } else {
-            skipConditionalBlock();
-        }
+    private Expr bitwiseOr() throws ParseException {
+        Expr left = bitwiseXor();
 
-        handleElseIf(condition);
-        handleElse(condition);
-    }
-
-    /**
-     * Handles else if blocks in an if statement.
-     *
-     * @param previousConditionMet Indicates if any previous condition in the if-else if chain has been met.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private void handleElseIf(boolean previousConditionMet) throws ParseException {
-        while (currentPosition().getToken().equals(Token.ELSE_IF)) {
-            consume(Token.ELSE_IF);
-            consume(Token.LEFT_PAREN);
-            boolean condition = evaluateCondition();
-            consume(Token.RIGHT_PAREN);
-
-            if (!previousConditionMet && condition) {
-                enterScope();
-                executeConditionalBlock();
-                exitScope();
-                previousConditionMet = true;
-            } else {
-                skipConditionalBlock();
-            }
+        while (check(TokenKind.BITWISE_OR)) {
+            Token operator = advance();
+            Expr right = bitwiseXor();
+            left = new Expr.Binary(operator, left, right);
         }
+        return left;
     }
 
     /**
-     * Handles the else block in an if statement.
+     * Parses a bitwise exclusive or expression (^).
      *
-     * @param previousConditionMet Indicates if any previous condition in the if-else if chain has been met.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void handleElse(boolean previousConditionMet) throws ParseException {
-        if (currentPosition().getToken().equals(Token.ELSE)) {
-            consume(Token.ELSE);
-
-            if (!previousConditionMet) {
-                enterScope();
-                executeConditionalBlock();
-                exitScope();
-            } else {
-                skipConditionalBlock();
-            }
-        }
-    }
+    private Expr bitwiseXor() throws ParseException {
+        Expr left = bitwiseAnd();
 
-
-    /**
-     * Evaluates the condition of an if statement or else if statement.
-     *
-     * @return True if the condition evaluates to true, otherwise false.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private boolean evaluateCondition() throws ParseException {
-        if (currentPosition().getToken().equals(Token.BOOLEAN_LITERAL)) {
-            return Boolean.parseBoolean(consume(Token.BOOLEAN_LITERAL).getValue());
-        } else {
-            return evaluateExpression();
+        while (check(TokenKind.BITWISE_XOR)) {
+            Token operator = advance();
+            Expr right = bitwiseAnd();
+            left = new Expr.Binary(operator, left, right);
         }
+        return left;
     }
 
     /**
-     * Executes the code block within an if, else if, or else block.
+     * Parses a bitwise and expression (&).
      *
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void executeConditionalBlock() throws ParseException {
-        if (currentPosition().getToken().equals(Token.LEFT_BRACE)) {
-            consume(Token.LEFT_BRACE);
-            block();
-            consume(Token.RIGHT_BRACE);
-        } else {
-            statement();
-        }
-    }
+    private Expr bitwiseAnd() throws ParseException {
+        Expr left = comparison();
 
-    /**
-     * Skips over the code block within an if, else if, or else block if the condition is not met.
-     */
-    private void skipConditionalBlock() {
-        if (currentPosition().getToken().equals(Token.LEFT_BRACE)) {
-            int braceCount = 1;
-            position++;
-            while (braceCount > 0 && !isAtEnd()) {
-                if (currentPosition().getToken().equals(Token.LEFT_BRACE)) {
-                    braceCount++;
-                } else if (currentPosition().getToken().equals(Token.RIGHT_BRACE)) {
-                    braceCount--;
-                }
-                position++;
-            }
-        } else {
-            skipStatement();
-        }
-    }
-
-    /**
-     * Skips over a single statement.
-     */
-    private void skipStatement() {
-        while (!isAtEnd()) {
-            position++;
-        }
-        if (!isAtEnd()) {
-            position++;
+        while (check(TokenKind.BITWISE_AND)) {
+            Token operator = advance();
+            Expr right = comparison();
+            left = new Expr.Binary(operator, left, right);
         }
+        return left;
     }
 
     /**
-     * Parses and executes a block of code enclosed in curly braces.
+     * Parses a comparison, handling comparison, 'is' and 'as' operators.
      *
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private void block() throws ParseException {
-        enterScope();
-        while (!currentPosition().getToken().equals(Token.RIGHT_BRACE) && !isAtEnd()) {
-            statement();
-        }
-        exitScope();
-    }
+    private Expr comparison() throws ParseException {
+        Expr left = shift();
 
-    /**
-     * Enters a new scope for variable resolution.
-     */
-    private void enterScope() {
-        scopes.push(new HashMap<>());
-    }
+        while (isExpressionOperator(currentKind()) ||
+                check(TokenKind.IS) ||
+                check(TokenKind.AS)) {
 
-    /**
-     * Exits the current scope and returns to the previous one.
-     */
-    private void exitScope() {
-        scopes.pop();
-    }
+            Token operator = advance();
 
-    /**
-     * Checks if the parser has reached the end of the token list.
-     *
-     * @return True if the end of the token list has been reached, otherwise false.
-     */
-    private boolean isAtEnd() {
-        return position >= tokens.size() || currentPosition().getToken().equals(Token.EOF);
-    }
-
-    /**
-     * Parses a number literal expression.
-     *
-     * @return The parsed number as a BigDecimal.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private BigDecimal expressionNumber() throws ParseException {
-        return logicalOrExpression();
+            if (operator.getKind() == TokenKind.IS) {
+                left = new Expr.TypeCheck(operator, left, parseType());
+            } else if (operator.getKind() == TokenKind.AS) {
+                left = new Expr.Cast(operator, left, parseType());
+            } else {
+                Expr right = shift();
+                left = new Expr.Binary(operator, left, right);
+            }
+        }
+        return left;
     }
 
     /**
-     * Parses a string literal expression.
+     * Checks if the given token is a valid operator for a comparison.
      *
-     * @return The parsed string.
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @param token The token to check.
+     * @return True if the token is a valid comparison operator, otherwise false.
      */
-    private String expressionString() throws ParseException {
-        return consume(Token.STRING_LITERAL).getValue();
+    private boolean isExpressionOperator(TokenKind token) {
+        return switch (token) {
+            case PLUS, MINUS, EQUAL_EQUAL, NOT_EQUAL, GREATER_THAN, LESS_THAN,
+                    GREATER_THAN_OR_EQUAL, LESS_THAN_OR_EQUAL -> true;
+            default -> false;
+        };
     }
 
     /**
-     * Parses a boolean literal expression.
+     * Parses a shift expression (<< or >>), which binds less tightly than + and -.
      *
-     * @return The parsed boolean value.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Boolean expressionBoolean() throws ParseException {
-        return Boolean.parseBoolean(consume(Token.BOOLEAN_LITERAL).getValue());
-    }
+    private Expr shift() throws ParseException {
+        Expr left = arithmeticExpression();
 
-    /**
-     * Parses a char literal expression.
-     *
-     * @return The parsed char value.
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private Character expressionChar() throws ParseException {
-        String charValue = consume(Token.CHAR_LITERAL).getValue();
-        if (charValue.length() != 1) {
-            throw new ParseException(fileName, "Invalid char literal: " + charValue,
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
+        while (check(TokenKind.LEFT_SHIFT) ||
+                check(TokenKind.RIGHT_SHIFT)) {
+            Token operator = advance();
+            Expr right = arithmeticExpression();
+            left = new Expr.Binary(operator, left, right);
         }
-        return charValue.charAt(0);
+        return left;
     }
 
     /**
-     * Parses a null literal expression.
+     * Parses an arithmetic expression (+ or -).
      *
-     * @return Null.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object expressionNull() throws ParseException {
-        if (!currentPosition().getToken().equals(Token.NULL)) {
-            throw unexpectedTokenException("Type mismatch: Expected null");
-        }
+    private Expr arithmeticExpression() throws ParseException {
+        Expr left = term();
 
-        consume(Token.NULL);
-        return null;
-    }
-
-    /**
-     * Parses a logical OR expression.
-     *
-     * @return The result of the logical OR operation as a BigDecimal (1 for true, 0 for false).
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private BigDecimal logicalOrExpression() throws ParseException {
-        BigDecimal left = logicalAndExpression();
-        while (currentPosition().getToken().equals(Token.OR)) {
-            position++;
-            BigDecimal right = logicalAndExpression();
-            left = (left.compareTo(BigDecimal.ZERO) != 0 || right.compareTo(BigDecimal.ZERO) != 0) ? BigDecimal.ONE : BigDecimal.ZERO;
+        while (check(TokenKind.PLUS) ||
+                check(TokenKind.MINUS)) {
+            Token operator = advance();
+            Expr right = term();
+            left = new Expr.Binary(operator, left, right);
         }
         return left;
     }
 
     /**
-     * Parses a logical AND expression.
+     * Parses a term expression (*, /, or %).
      *
-     * @return The result of the logical AND operation as a BigDecimal (1 for true, 0 for false).
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private BigDecimal logicalAndExpression() throws ParseException {
-        BigDecimal left = equalityExpression();
-        while (currentPosition().getToken().equals(Token.AND)) {
-            position++;
-            BigDecimal right = equalityExpression();
-            left = (left.compareTo(BigDecimal.ZERO) != 0 && right.compareTo(BigDecimal.ZERO) != 0) ? BigDecimal.ONE : BigDecimal.ZERO;
-        }
-        return left;
-    }
+    private Expr term() throws ParseException {
+        Expr left = unary();
 
-    /**
-     * Parses an equality expression (== or !=).
-     *
-     * @return The result of the equality comparison as a BigDecimal (1 for true, 0 for false).
-     * @throws ParseException If a syntax error is encountered during parsing.
-     */
-    private BigDecimal equalityExpression() throws ParseException {
-        BigDecimal left = (BigDecimal) arithmeticExpression();
-        if (isComparisonOperator(currentPosition().getToken())) {
-            String operator = currentPosition().getToken();
-            position++;
-            BigDecimal right = (BigDecimal) arithmeticExpression();
-            return evaluateComparison(left, right, operator);
+        while (check(TokenKind.ASTERISK) ||
+                check(TokenKind.SLASH) ||
+                check(TokenKind.PERCENT)) {
+            Token operator = advance();
+            Expr right = unary();
+            left = new Expr.Binary(operator, left, right);
         }
         return left;
     }
 
     /**
-     * Checks if the given token is a comparison operator.
-     *
-     * @param token The token to check.
-     * @return True if the token is a comparison operator, otherwise false.
-     */
-    private boolean isComparisonOperator(String token) {
-        return token.equals(Token.EQUAL_EQUAL) ||
-                token.equals(Token.NOT_EQUAL) ||
-                token.equals(Token.LESS_THAN) ||
-                token.equals(Token.GREATER_THAN) ||
-                token.equals(Token.LESS_THAN_OR_EQUAL) ||
-                token.equals(Token.GREATER_THAN_OR_EQUAL);
-    }
-
-    /**
-     * Evaluates a comparison expression.
+     * Parses a unary expression ('!' or '~').
      *
-     * @param left     The left-hand side operand of the comparison.
-     * @param right    The right-hand side operand of the comparison.
-     * @param operator The comparison operator.
-     * @return The result of the comparison as a BigDecimal (1 for true, 0 for false).
-     */
-    private BigDecimal evaluateComparison(BigDecimal left, BigDecimal right, String operator) {
-        return switch (operator) {
-            case Token.EQUAL_EQUAL -> left.compareTo(right) == 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            case Token.NOT_EQUAL -> left.compareTo(right) != 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            case Token.LESS_THAN -> left.compareTo(right) < 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            case Token.GREATER_THAN -> left.compareTo(right) > 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            case Token.LESS_THAN_OR_EQUAL -> left.compareTo(right) <= 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            case Token.GREATER_THAN_OR_EQUAL -> left.compareTo(right) >= 0 ? BigDecimal.ONE : BigDecimal.ZERO;
-            default -> BigDecimal.ZERO;
-        };
-    }
-
-    /**
-     * Parses an arithmetic expression (+ or -).
-     *
-     * @return The result of the arithmetic expression.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object arithmeticExpression() throws ParseException {
-        Object left = term();
-
-        while (currentPosition().getToken().equals(Token.PLUS) ||
-                currentPosition().getToken().equals(Token.MINUS)) {
-            String operator = currentPosition().getToken();
-            consume(operator);
-            Object right = term();
-            left = applyOperator(left, operator, right);
+    private Expr unary() throws ParseException {
+        if (check(TokenKind.BANG) || check(TokenKind.BITWISE_NOT)) {
+            Token operator = advance();
+            return new Expr.Unary(operator, unary());
         }
-        return left;
+        return postfix();
     }
 
     /**
-     * Parses a term expression (*, /, or %).
+     * Parses a factor followed by any number of array indexings and method calls.
      *
-     * @return The result of the term expression.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object term() throws ParseException {
-        Object left = factor();
-
-        while (currentPosition().getToken().equals(Token.ASTERISK) ||
-                currentPosition().getToken().equals(Token.SLASH) ||
-                currentPosition().getToken().equals(Token.PERCENT)) {
-            String operator = currentPosition().getToken();
-            consume(operator);
-            Object right = factor();
-            left = applyOperator(left, operator, right);
+    private Expr postfix() throws ParseException {
+        Expr expr = factor();
+
+        while (true) {
+            if (check(TokenKind.LEFT_BRACKET)) {
+                // Handle array indexing, collecting all consecutive indices
+                Token bracket = currentPosition();
+                List<Expr> indices = new ArrayList<>();
+                while (match(TokenKind.LEFT_BRACKET)) {
+                    indices.add(expression());
+                    expect(TokenKind.RIGHT_BRACKET);
+                }
+                expr = new Expr.Index(bracket, expr, indices);
+            } else if (check(TokenKind.DOT)) {
+                // Handle method calls on objects
+                expect(TokenKind.DOT);
+                Token methodName = currentPosition();
+                int symbol = consumeSymbol();
+                List<Expr> args = check(TokenKind.LEFT_PAREN)
+                        ? parseArguments() : List.of();
+                expr = new Expr.MethodCall(methodName, expr, symbols.name(symbol), symbol, args);
+            } else {
+                return expr;
+            }
         }
-        return left;
     }
 
     /**
-     * Parses a factor expression (numbers, variables, parenthesized expressions, function calls).
+     * Parses a factor expression (literals, variables, parenthesized expressions, function calls).
      *
-     * @return The result of the factor expression.
+     * @return The parsed expression.
      * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object factor() throws ParseException {
-        Token current = currentPosition();
-
-        return switch (current.getToken()) {
-            case Token.NUMBER_LITERAL -> new BigDecimal(consume(Token.NUMBER_LITERAL).getValue());
-            case Token.VARIABLE_LITERAL -> getVariableValue(consume(Token.VARIABLE_LITERAL).getValue());
-            case Token.BOOLEAN_LITERAL -> Boolean.parseBoolean(consume(Token.BOOLEAN_LITERAL).getValue());
-            case Token.STRING_LITERAL -> {
-                String literal = consume(Token.STRING_LITERAL).getValue();
-                // Handle method calls on string literals
-                if (currentPosition().getToken().equals(Token.DOT)) {
-                    consume(Token.DOT);
-                    String methodName = consume(Token.IDENTIFIER).getValue();
-                    List<Object> args = parseArguments();
-
-                    yield handleMethodCall(literal, methodName, args);
-                } else {
-                    yield literal;
-                }
+    private Expr factor() throws ParseException {
+        return switch (currentKind()) {
+            case NUMBER_LITERAL -> {
+                Token current = advance();
+                yield new Expr.Literal(current, numberValue(current));
+            }
+            case STRING_LITERAL, VARIABLE_LITERAL -> stringLiteral();
+            case CHAR_LITERAL -> expressionChar();
+            case BOOLEAN_LITERAL -> {
+                Token current = advance();
+                yield new Expr.Literal(current, Boolean.parseBoolean(current.getValue()));
             }
-            //case Token.CHAR_LITERAL ->
-            case Token.LEFT_PAREN -> {
-                consume(Token.LEFT_PAREN);
-                Object result = expression();
-                consume(Token.RIGHT_PAREN);
+            case NULL -> new Expr.Literal(advance(), null);
+            case LEFT_PAREN -> {
+                expect(TokenKind.LEFT_PAREN);
+                Expr result = expression();
+                expect(TokenKind.RIGHT_PAREN);
                 yield result;
             }
-            case Token.IDENTIFIER, Token.DOLLAR -> {
-                String identifier = consumeVariableName(current);
-
-                if (currentPosition().getToken().equals(Token.LEFT_PAREN)) {
-                    yield functionCall(identifier);
-                }
-                // Handle array indexing
-                else if (currentPosition().getToken().equals(Token.LEFT_BRACKET)) {
-                    List<Integer> indices = new ArrayList<>();
-                    while (currentPosition().getToken().equals(Token.LEFT_BRACKET)) {
-                        consume(Token.LEFT_BRACKET);
-                        indices.add(((BigDecimal) expression()).intValue());
-                        consume(Token.RIGHT_BRACKET);
-                    }
-                    yield getVariableValueAtIndex(identifier, indices);
-                }
-                // Handle method calls on objects
-                else if (currentPosition().getToken().equals(Token.DOT)) {
-                    Object value = getVariableValue(identifier);
-
-                    consume(Token.DOT);
-                    String methodName = consume(Token.IDENTIFIER).getValue();
-                    List<Object> args = parseArguments();
-
-                    yield handleMethodCall(value, methodName, args);
-                } else {
-                    for (Map<String, Object> scope : scopes) {
-                        if (scope.containsKey(identifier)) {
-                            yield scope.get(identifier);
-                        }
-                    }
-
-                    yield getVariableValue(identifier);
+            case LEFT_BRACKET -> arrayLiteral();
+            case IDENTIFIER, DOLLAR -> {
+                Token current = currentPosition();
+                int symbol = consumeVariableName();
+                String identifier = symbols.name(symbol);
+
+                if (check(TokenKind.LEFT_PAREN)) {
+                    yield new Expr.Call(current, identifier, symbol, parseArguments());
                 }
+                yield new Expr.Variable(current, identifier, symbol);
             }
             default -> throw unexpectedTokenException("Unexpected token in factor");
         };
     }
 
     /**
-     * Handles method calls on objects.
+     * Gets the value of a number literal that was just consumed, decoding its text only the first time it is seen.
      *
-     * @param context     The object on which the method is being called (can be null for static methods).
-     * @param methodName The name of the method being called.
-     * @param args       The list of arguments passed to the method.
-     * @return The result of the method call.
-     * @throws ParseException If an error occurs during method call resolution or execution.
+     * @param token The literal.
+     * @return The value in the program's numeric mode.
+     * @throws ParseException If the literal is not a valid number.
      */
-    private Object handleMethodCall(Object context, String methodName, List<Object> args) throws ParseException {
-        if (context == null && args.size() > 0) {
-            context = args.remove(0);
-        }
-
-        Map<Class<?>, BuiltinFunction> functions = builtinFunctions.get(methodName);
-        if (functions == null) {
-            throw new ParseException(fileName, "Undefined method: " + methodName,
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-
-        BuiltinFunction function = functions.get(context.getClass());
-        if (function == null) {
-            throw new ParseException(fileName, "Method " + methodName + " is not applicable for " + context.getClass().getSimpleName(),
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
-        return function.execute(context, args);
-    }
-
-    /**
-     * Applies an arithmetic operator to two operands.
-     *
-     * @param left     The left-hand side operand.
-     * @param operator The operator to apply.
-     * @param right    The right-hand side operand.
-     * @return The result of the operation.
-     * @throws ParseException If the operation is not supported for the given operand types.
-     */
-    private Object applyOperator(Object left, String operator, Object right) throws ParseException {
-        if (left instanceof BigDecimal && right instanceof BigDecimal) {
-            return switch (operator) {
-                case Token.PLUS -> ((BigDecimal) left).add((BigDecimal) right);
-                case Token.MINUS -> ((BigDecimal) left).subtract((BigDecimal) right);
-                case Token.ASTERISK -> ((BigDecimal) left).multiply((BigDecimal) right);
-                case Token.PERCENT -> ((BigDecimal) left).remainder((BigDecimal) right);
-                case Token.SLASH -> {
-                    if (((BigDecimal) right).compareTo(BigDecimal.ZERO) == 0) {
-                        throw new ParseException(fileName, "Division by zero",
-                                currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-                    }
-                    yield ((BigDecimal) left).divide((BigDecimal) right, MathContext.DECIMAL128);
-                }
-                default -> throw new ParseException(fileName, "Unsupported operator: " + operator,
-                        currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-            };
-        } else if (operator.equals(Token.PLUS) && (left instanceof String || right instanceof String)) {
-            return left.toString() + right.toString();
-        } else {
-            throw new ParseException(fileName, "Invalid operation between types",
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
+    private Object numberValue(Token token) throws ParseException {
+        int id = tokens.intern(position - 1, numberTexts);
+        if (id >= numberValues.length) numberValues = Arrays.copyOf(numberValues, id * 2);
+        if (numberValues[id] == null) {
+            try {
+                numberValues[id] = numericMode.parse(numberTexts.name(id));
+            } catch (NumberFormatException e) {
+                throw new ParseException(fileName, "Unexpected token in factor",
+                        token.getLine(), token.getColumn(), getLine(token.getLine()));
+            }
         }
+        return numberValues[id];
     }
 
     /**
-     * Gets the value of a variable at the specified indices in an array (or nested arrays).
+     * Parses a string literal. The lexer splits a string containing ${variable} parts into a run of
+     * string and variable tokens, which is combined into a single interpolation here.
      *
-     * @param variableName The name of the array variable.
-     * @param indices   The list of indices to access the array element.
-     * @return The value of the array element.
-     * @throws ParseException If the variable is not found, or if an invalid array access is attempted.
-     */
-    private Object getVariableValueAtIndex(String variableName, List<Integer> indices) throws ParseException {
-        Object variable = getVariableValue(variableName);
-        return getValueAtIndices(variable, indices, 0);
-    }
-
-    /**
-     * Recursively gets the value at the specified indices in a potentially nested array.
-     *
-     * @param array   The current array or element being accessed.
-     * @param indices The list of indices to access the element.
-     * @param depth   The current depth of recursion in the array.
-     * @return The value of the element at the specified indices.
-     * @throws ParseException If an invalid array access is attempted (e.g., accessing a non-array element as an array).
+     * @return The parsed expression.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private Object getValueAtIndices(Object array, List<Integer> indices, int depth) throws ParseException {
-        if (depth == indices.size()) {
-            return array;
-        }
-        if (array instanceof List<?>) {
-            List<?> list = (List<?>) array;
-            int index = indices.get(depth);
-            if (index < 0 || index >= list.size()) {
-                throw new ParseException(fileName, "Array index out of bounds: " + index,
-                        currentPosition().getLine(),
-                        currentPosition().getColumn(),
-                        getCurrentLine());
+    private Expr stringLiteral() throws ParseException {
+        Token start = currentPosition();
+        List<Expr> parts = new ArrayList<>();
+        while (check(TokenKind.STRING_LITERAL) ||
+                check(TokenKind.VARIABLE_LITERAL)) {
+            Token part = advance();
+            if (part.getKind() == TokenKind.VARIABLE_LITERAL) {
+                int symbol = tokens.intern(position - 1, symbols);
+                parts.add(new Expr.Variable(part, symbols.name(symbol), symbol));
+            } else {
+                parts.add(new Expr.Literal(part, part.getValue()));
             }
-            return getValueAtIndices(list.get(index), indices, depth + 1);
-        } else {
-            throw new ParseException(fileName, "Trying to access non-array element as array",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
         }
-    }
 
-    /**
-     * Consumes a variable name token, handling both regular variables and constants (prefixed with '$').
-     *
-     * @param current The current token being processed.
-     * @return The variable name.
-     * @throws ParseException If an expected identifier token is not found.
-     */
-    private String consumeVariableName(Token current) throws ParseException {
-        if (current.getToken().equals(Token.DOLLAR)) {
-            position++;
-            return consume(Token.IDENTIFIER).getValue();
-        } else {
-            position++;
-            return current.getValue();
+        if (parts.size() == 1 && parts.get(0) instanceof Expr.Literal) {
+            return parts.get(0);
         }
+        return new Expr.Interpolation(start, parts);
     }
 
     /**
-     * Gets the value of a variable from the current scope or any enclosing scope.
+     * Parses a char literal expression.
      *
-     * @param variableName The name of the variable to retrieve.
-     * @return The value of the variable.
-     * @throws ParseException If the variable is not found in the current scope or any enclosing scope.
+     * @return The parsed expression.
+     * @throws ParseException If the literal is not a single character.
      */
-    private Object getVariableValue(String variableName) throws ParseException {
-        Iterator<Map<String, Object>> iterator = scopes.descendingIterator();
-
-        while (iterator.hasNext()) {
-            Map<String, Object> scope = iterator.next();
-
-            if (scope.containsKey(variableName)) {
-                return scope.get(variableName);
-            }
+    private Expr expressionChar() throws ParseException {
+        Token token = consume(TokenKind.CHAR_LITERAL);
+        String charValue = token.getValue();
+        if (charValue.length() != 1) {
+            throw new ParseException(fileName, "Invalid char literal: " + charValue,
+                    token.getLine(), token.getColumn(), getLine(token.getLine()));
         }
-
-        throw new ParseException(fileName, "Undefined variable: " + variableName,
-                currentPosition().getLine(),
-                currentPosition().getColumn(),
-                getCurrentLine());
+        return new Expr.Literal(token, charValue.charAt(0));
     }
 
     /**
-     * Checks if a variable with the given name is declared in the current scope or any enclosing scope.
+     * Parses an array literal, e.g. [1, 2, 3] or [[1, 2], [3, 4]].
      *
-     * @param variableName The name of the variable to check.
-     * @return True if the variable is declared, otherwise false.
+     * @return The parsed expression.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private boolean isVariableDeclared(String variableName) {
-        for (Map<String, Object> scope : scopes) {
-            if (scope.containsKey(variableName)) {
-                return true;
-            }
+    private Expr arrayLiteral() throws ParseException {
+        Token bracket = consume(TokenKind.LEFT_BRACKET);
+        List<Expr> elements = new ArrayList<>();
+        while (!check(TokenKind.RIGHT_BRACKET) && !isAtEnd()) {
+            elements.add(expression());
+            match(TokenKind.COMMA);
         }
-        return false;
+        expect(TokenKind.RIGHT_BRACKET);
+        return new Expr.ArrayLiteral(bracket, elements);
     }
 
     /**
-     * Checks if a variable with the given name is declared as a constant.
+     * Parses the arguments passed to a function call.
      *
-     * @param variableName The name of the variable to check.
-     * @return True if the variable is declared as a constant, otherwise false.
+     * @return A list of parsed argument expressions.
+     * @throws ParseException If a syntax error is encountered during parsing.
      */
-    private boolean isConstantDeclared(String variableName) {
-        return constants.contains(variableName);
+    private List<Expr> parseArguments() throws ParseException {
+        expect(TokenKind.LEFT_PAREN);
+        List<Expr> arguments = new ArrayList<>();
+        while (!check(TokenKind.RIGHT_PAREN) && !isAtEnd()) {
+            arguments.add(expression());
+            if (!match(TokenKind.COMMA)) break;
+        }
+        expect(TokenKind.RIGHT_PAREN);
+        return arguments;
     }
 
     /**
-     * Assigns a value to a variable if it's declared in the current scope or any enclosing scope.
+     * Consumes a variable name token, handling both regular variables and constants (prefixed with '$').
      *
-     * @param variableName The name of the variable to assign the value to.
-     * @param value        The value to assign.
-     * @return True if the variable was found and assigned the value, otherwise false.
+     * @return The id of the variable name.
+     * @throws ParseException If an expected identifier token is not found.
      */
-    private boolean assignVariableIfDeclared(String variableName, Object value) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Map<String, Object> scope = scopes.getLast();
-            if (scope.containsKey(variableName)) {
-                scope.put(variableName, value);
-                return true;
-            }
-        }
-        return false;
+    private int consumeVariableName() throws ParseException {
+        match(TokenKind.DOLLAR);
+        return consumeSymbol();
     }
 
     /**
-     * Evaluates an expression that should result in a boolean value.
+     * Consumes an identifier and interns its name, without creating a string for it if it has been seen before.
      *
-     * @return The boolean result of the expression.
-     * @throws ParseException If the expression does not result in a boolean value.
+     * @return The id of the name in the symbol table.
+     * @throws ParseException If the current token is not an identifier.
      */
-    private boolean evaluateExpression() throws ParseException {
-        Object result = expression();
-        if (result instanceof Boolean) {
-            return (Boolean) result;
-        } else {
-            throw new ParseException(fileName, "Expected a boolean expression",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        }
+    private int consumeSymbol() throws ParseException {
+        expect(TokenKind.IDENTIFIER);
+        return tokens.intern(position - 1, symbols);
     }
 
     /**
-     * Evaluates an 'is' expression, checking if a value is of a particular type.
+     * Checks if the parser has reached the end of the token list.
      *
-     * @param left  The left-hand side operand (the value being checked).
-     * @param type The type to check against.
-     * @return True if the value is of the specified type, otherwise false.
-     * @throws ParseException If an unsupported type is encountered.
+     * @return True if the end of the token list has been reached, otherwise false.
      */
-    private boolean evaluateIs(Object left, String type) throws ParseException {
-        return switch (type) {
-            case Token.NUMBER -> left instanceof BigDecimal;
-            case Token.STRING -> left instanceof String;
-            case Token.BOOLEAN -> left instanceof Boolean;
-            case Token.CHAR -> left instanceof Character;
-            case Token.ARRAY -> left instanceof List;
-            case Token.NULL -> left == null;
-            default -> throw new ParseException(fileName, "Unsupported type: " + type.toLowerCase(),
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        };
+    private boolean isAtEnd() {
+        return check(TokenKind.EOF);
     }
 
     /**
-     * Parses a general expression, handling various operators and types.
+     * Gets the token at the current position in the token list.
      *
-     * @return The result of the expression.
-     * @throws ParseException If a syntax error is encountered during parsing.
+     * @return The current token.
      */
-    private Object expression() throws ParseException {
-        Object left = arithmeticExpression();
-
-        while (isExpressionOperator(currentPosition().getToken()) ||
-                currentPosition().getToken().equals(Token.IS) ||
-                currentPosition().getToken().equals(Token.AS)) {
-
-            Token operator = currentPosition();
-            consume(operator.getToken());
-
-            if (operator.getToken().equals(Token.IS)) {
-                String type = consume(currentPosition().getToken()).getToken();
-                left = evaluateIs(left, type);
-            } else if(operator.getToken().equals(Token.AS)) {
-                String type = consume(currentPosition().getToken()).getToken();
-                left = evaluateAs(left, type);
-            } else {
-                Object right = arithmeticExpression();
-                left = evaluateExpressionOperation(left, right, operator.getToken());
-            }
-        }
-        return left;
-    }
-
-    private Object evaluateAs(Object value, String targetType) throws ParseException {
-        try {
-            return switch (targetType) {
-                case Token.NUMBER -> {
-                    if (value instanceof String) {
-                        yield new BigDecimal((String) value);
-                    } else if (value instanceof Character) {
-                        yield new BigDecimal((Character) value);
-                    } else {
-                        throw new IllegalArgumentException("Cannot convert to number");
-                    }
-                }
-                case Token.STRING -> String.valueOf(value);
-                case Token.BOOLEAN -> {
-                    if (value instanceof String) {
-                        yield Boolean.parseBoolean((String) value);
-                    } else {
-                        throw new IllegalArgumentException("Cannot convert to boolean");
-                    }
-                }
-                case Token.CHAR -> {
-                    if (value instanceof String && ((String) value).length() == 1) {
-                        yield ((String) value).charAt(0);
-                    } else {
-                        throw new IllegalArgumentException("Cannot convert to char");
-                    }
-                }
-                default -> throw new IllegalArgumentException("Unsupported target type: " + targetType);
-            };
-        } catch (IllegalArgumentException e) {
-            throw new ParseException(fileName, "Type conversion error: " + e.getMessage(),
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
-        }
+    private Token currentPosition() {
+        return tokens.token(position);
     }
 
     /**
-     * Checks if the given token is a valid operator for an expression.
+     * Gets the kind of the token at the current position, without creating its token object.
      *
-     * @param token The token to check.
-     * @return True if the token is a valid expression operator, otherwise false.
+     * @return The kind of the current token.
      */
-    private boolean isExpressionOperator(String token) {
-        return token.equals(Token.PLUS) ||
-                token.equals(Token.MINUS) ||
-                token.equals(Token.EQUAL_EQUAL) ||
-                token.equals(Token.NOT_EQUAL) ||
-                token.equals(Token.GREATER_THAN) ||
-                token.equals(Token.LESS_THAN) ||
-                token.equals(Token.GREATER_THAN_OR_EQUAL) ||
-                token.equals(Token.LESS_THAN_OR_EQUAL) ||
-                token.equals(Token.AND) ||
-                token.equals(Token.OR);
+    private TokenKind currentKind() {
+        return tokens.kind(position);
     }
 
     /**
-     * Evaluates an operation within an expression, handling different operand types.
+     * Checks if the current token is of the given kind.
      *
-     * @param left     The left-hand side operand.
-     * @param right    The right-hand side operand.
-     * @param operator The operator to apply.
-     * @return The result of the operation.
-     * @throws ParseException If an invalid operation is attempted for the given operand types.
+     * @param kind The kind to check for.
+     * @return True if the current token is of the kind.
      */
-    private Object evaluateExpressionOperation(Object left, Object right, String operator) throws ParseException {
-        if (left instanceof BigDecimal && right instanceof BigDecimal) {
-            return evaluateArithmeticOperation((BigDecimal) left, (BigDecimal) right, operator);
-        } else if (left instanceof String && right instanceof String) {
-            return evaluateStringOperation((String) left, (String) right, operator);
-        } else if (left instanceof Boolean && right instanceof Boolean) {
-            return evaluateBooleanOperation((Boolean) left, (Boolean) right, operator);
-        } else {
-            throw new ParseException(fileName, "Invalid operation between types",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
-        }
+    private boolean check(TokenKind kind) {
+        return currentKind() == kind;
     }
 
     /**
-     * Evaluates a boolean operation (==, !=, &&, ||) between two boolean operands.
+     * Looks up the end of the block that starts at the current position in the matching-brace table.
      *
-     * @param left     The left-hand side operand.
-     * @param right    The right-hand side operand.
-     * @param operator The boolean operator.
-     * @return The result of the boolean operation.
-     * @throws IllegalArgumentException If an unsupported operator is encountered.
+     * @return The index of the closing brace, or -1 if the current token is not a '{' or is never closed.
      */
-    private Object evaluateBooleanOperation(Boolean left, Boolean right, String operator) {
-        return switch (operator) {
-            case Token.EQUAL_EQUAL -> left == right;
-            case Token.NOT_EQUAL -> left != right;
-            case Token.AND -> left && right;
-            case Token.OR -> left || right;
-            default -> throw new IllegalArgumentException("Unsupported operator for boolean: " + operator);
-        };
+    private int closingBrace() {
+        if (!check(TokenKind.LEFT_BRACE)) return -1;
+        return tokens.matchingBrace(position);
     }
 
     /**
-     * Evaluates an arithmetic or comparison operation between two BigDecimal operands.
+     * Consumes the current token if it matches the expected token kind.
      *
-     * @param left     The left-hand side operand.
-     * @param right    The right-hand side operand.
-     * @param operator The operator to apply.
-     * @return The result of the operation (either a BigDecimal or a Boolean).
+     * @param expectedToken The expected token kind.
+     * @return The consumed token.
+     * @throws ParseException If the current token does not match the expected token kind.
      */
-    private Object evaluateArithmeticOperation(BigDecimal left, BigDecimal right, String operator) {
-        return switch (operator) {
-            case Token.EQUAL_EQUAL -> left.compareTo(right) == 0;
-            case Token.NOT_EQUAL -> left.compareTo(right) != 0;
-            case Token.GREATER_THAN -> left.compareTo(right) > 0;
-            case Token.LESS_THAN -> left.compareTo(right) < 0;
-            case Token.GREATER_THAN_OR_EQUAL -> left.compareTo(right) >= 0;
-            case Token.LESS_THAN_OR_EQUAL -> left.compareTo(right) <= 0;
-            default -> left;
-        };
+    private Token consume(TokenKind expectedToken) throws ParseException {
+        expect(expectedToken);
+        return tokens.token(position - 1);
     }
 
     /**
-     * Evaluates an operation between two String operands.
+     * Skips the current token if it matches the expected token kind, for tokens the syntax tree does not keep.
      *
-     * @param left     The left-hand side operand.
-     * @param right    The right-hand side operand.
-     * @param operator The operator to apply.
-     * @return The result of the operation.
+     * @param expectedToken The expected token kind.
+     * @throws ParseException If the current token does not match the expected token kind.
      */
-    private Object evaluateStringOperation(String left, String right, String operator) {
-        return switch (operator) {
-            case Token.PLUS -> left + right;
-            case Token.EQUAL_EQUAL -> left.equals(right);
-            case Token.NOT_EQUAL -> !left.equals(right);
-            default -> left;
-        };
+    private void expect(TokenKind expectedToken) throws ParseException {
+        if (check(expectedToken)) {
+            position++;
+        } else {
+            Token current = currentPosition();
+            throw new ParseException(fileName, "Expected '" + expectedToken.getType() + "', found '" + current.getToken() + "'",
+                    current.getLine(),
+                    current.getColumn(),
+                    getCurrentLine());
+        }
     }
 
     /**
-     * Gets the token at the current position in the token list.
+     * Consumes the current token, whatever its kind.
      *
-     * @return The current token.
+     * @return The consumed token.
      */
-    private Token currentPosition() {
-        if (position >= tokens.size()) {
-            return new Token(Token.EOF, null, tokens.get(tokens.size() - 1).getLine(), tokens.get(tokens.size() - 1).getColumn());
-        }
-        return tokens.get(position);
+    private Token advance() {
+        Token current = currentPosition();
+        position++;
+        return current;
     }
 
     /**
-     * Consumes the current token if it matches the expected token type.
+     * Consumes the current token if it matches the given token kind.
      *
-     * @param expectedToken The expected token type.
-     * @return The consumed token.
-     * @throws ParseException If the current token does not match the expected token type.
+     * @param token The token kind to match.
+     * @return True if the token was consumed.
      */
-    private Token consume(String expectedToken) throws ParseException {
-        Token current = currentPosition();
-        if (current.getToken().equals(expectedToken)) {
+    private boolean match(TokenKind token) {
+        if (check(token)) {
             position++;
-            return current;
-        } else {
-            throw new ParseException(fileName, "Expected '" + expectedToken + "', found '" + current.getToken() + "'",
-                    currentPosition().getLine(),
-                    currentPosition().getColumn(),
-                    getCurrentLine());
+            return true;
         }
+        return false;
     }
 
     /**
@@ -1986,28 +1082,27 @@ public class Parser {
      * @return The current line of code.
      */
     private String getCurrentLine() {
-        return lines[currentPosition().getLine() - 1];
+        return getLine(currentPosition().getLine());
     }
 
     /**
-     * Gets the current scope for variable resolution.
+     * Gets a line of code by its 1-based line number.
      *
-     * @return The current scope as a Map.
+     * @param line The line number.
+     * @return The line of code, or an empty string if the line does not exist.
      */
-    private Map<String, Object> getCurrentScope() {
-        return scopes.peek();
+    private String getLine(int line) {
+        return source.getLine(line);
     }
 
     /**
      * Peeks ahead in the token list by the specified offset.
      *
      * @param offset The offset to peek ahead.
-     * @return The token at the peeked position.
+     * @return The kind of the token at the peeked position.
      */
-    private Token peek(int offset) {
-        if (position + offset >= tokens.size())
-            return new Token(Token.EOF, null, currentPosition().getLine(), currentPosition().getColumn());
-        return tokens.get(position + offset);
+    private TokenKind peekKind(int offset) {
+        return tokens.kind(position + offset);
     }
 
     /**
@@ -2023,17 +1118,6 @@ public class Parser {
                 getCurrentLine());
     }
 
-    /**
-     * Registers a built-in function with the parser.
-     *
-     * @param name         The name of the function.
-     * @param contextType The type of the context object required for the function (or null if no context is needed).
-     * @param function    The function implementation.
-     */
-    private void registerBuiltinFunction(String name, Class<?> contextType, BuiltinFunction function) {
-        builtinFunctions.computeIfAbsent(name, k -> new HashMap<>()).put(contextType, function);
-    }
-
     /**
      * Validates if the given type string is a valid data type in the language.
      *
@@ -2041,9 +1125,8 @@ public class Parser {
      * @throws ParseException If the type is not valid.
      */
     private void validateType(String type) throws ParseException {
-        if (!VALID_TYPES.contains(type)) {
-            throw new ParseException(fileName, "Invalid parameter type: " + type,
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
+        if (!VALID_TYPES.contains(type.replace(" array", ""))) {
+            throw unexpectedTokenException("Invalid type: " + type);
         }
     }
 
@@ -2054,9 +1137,8 @@ public class Parser {
      * @throws ParseException If the return type is not valid.
      */
     private void validateReturnType(String returnType) throws ParseException {
-        if (!VALID_RETURN_TYPES.contains(returnType)) {
-            throw new ParseException(fileName, "Invalid return type: " + returnType,
-                    currentPosition().getLine(), currentPosition().getColumn(), getCurrentLine());
+        if (!returnType.equals(Token.VOID) && !VALID_TYPES.contains(returnType.replace(" array", ""))) {
+            throw unexpectedTokenException("Invalid return type: " + returnType);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,646 @@
+package io.github._3xhaust.resolver;
+
+import io.github._3xhaust.ast.Expr;
+import io.github._3xhaust.ast.Program;
+import io.github._3xhaust.ast.Stmt;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.SymbolTable;
+import io.github._3xhaust.token.Token;
+
+import java.util.*;
+
+/**
+ * Assigns every variable a (depth, slot) address before the program runs, so that the execution
+ * engines can keep variables in plain arrays instead of looking them up by name.
+ * <p>
+ * Depth {@link #LOCAL} addresses the frame of the enclosing function, or of the top-level program,
+ * which holds parameters and the variables of every block. Blocks do not get frames of their own:
+ * a block's variables use the slots after those of its enclosing blocks, and the slots are reused
+ * once the block ends. Depth {@link #GLOBAL} addresses the global variables, which are the
+ * variables declared directly at the top level.
+ * <p>
+ * The resolver also proves which array accesses of a range loop over the indices of an array,
+ * such as {@code arr[i]} in {@code for (i: number in 0..arr.length() - 1)}, stay within bounds,
+ * so that the engines can skip their bounds checks.
+ */
+public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+    public static final int LOCAL = 0;
+    public static final int GLOBAL = 1;
+
+    private final SourceFile source;
+
+    // The tables below are indexed by the symbol id of a name
+    private SymbolTable symbols;
+    private final List<String> globalNames = new ArrayList<>();
+    private int[] globalIndices = new int[0]; // Slot of each global, or -1
+    // Names declared as constants anywhere in the program
+    private final BitSet constantNames = new BitSet();
+
+    // The local variable each name is bound to: its slot, or -1, and the depth of the scope that declares it
+    private int[] localSlots = new int[0];
+    private int[] localScopes = new int[0];
+    // The bindings that declarations hid, as (symbol, slot, scope) triples, to be restored when their scope ends
+    private int[] shadowed = new int[48];
+    private int shadowedCount;
+    // Per open scope, the number of hidden bindings and of local slots when it began; no scopes at the top level
+    private int[] scopeMarks = new int[32];
+    private int scopeDepth;
+    private int localCount;
+    private int maxLocals;
+
+    // The function being resolved, or null at the top level
+    private Stmt.Function currentFunction;
+    // Per function, the first use of a global variable that is not a constant, and the user functions it calls
+    private final Map<Stmt.Function, GlobalUse> globalUses = new HashMap<>();
+    private final Map<Stmt.Function, List<Expr.Call>> calls = new HashMap<>();
+    private Program program;
+
+    // Names of the built-ins that change the length of an array
+    private static final Set<String> RESIZING_BUILTINS = Set.of("add", "remove", "clear", "addAll", "removeAll");
+    // The range loops over the indices of an array whose bodies are being resolved, innermost last
+    private final List<BoundsProof> openProofs = new ArrayList<>();
+    // The proofs that hold if the user functions their loops call keep arrays and the array variable as they are
+    private final List<BoundsProof> pendingProofs = new ArrayList<>();
+    // The functions that call a resizing built-in, and the global variables each function assigns, by slot
+    private final Set<Stmt.Function> resizingFunctions = new HashSet<>();
+    private final Map<Stmt.Function, BitSet> assignedGlobals = new HashMap<>();
+
+    /**
+     * A use of a global variable inside a function.
+     */
+    private static final class GlobalUse {
+        final String name;
+        final Token at;
+
+        GlobalUse(String name, Token at) {
+            this.name = name;
+            this.at = at;
+        }
+    }
+
+    /**
+     * A range loop from a non-negative integer to {@code arr.length() - k}, k >= 1, with a positive
+     * integer step. Its counter stays within the bounds of the array the loop starts with, so indexing
+     * the array by the counter needs no bounds check as long as neither variable is assigned and no
+     * array is resized while the loop runs; any array, as other variables may refer to the same one.
+     */
+    private static final class BoundsProof {
+        final int counterSlot;
+        final int arrayDepth;
+        final int arraySlot;
+        final List<Expr.Index> accesses = new ArrayList<>(); // The accesses of the array by the counter
+        final List<Expr.Call> calls = new ArrayList<>(); // The calls of user functions in the body
+        boolean broken;
+
+        BoundsProof(int counterSlot, int arrayDepth, int arraySlot) {
+            this.counterSlot = counterSlot;
+            this.arrayDepth = arrayDepth;
+            this.arraySlot = arraySlot;
+        }
+    }
+
+    /**
+     * Constructor for the Resolver class.
+     *
+     * @param fileName The name of the file being resolved.
+     * @param input    The input code as a single string, used for error reporting.
+     */
+    public Resolver(String fileName, CharSequence input) {
+        this.source = new SourceFile(fileName, input);
+    }
+
+    /**
+     * Resolves every variable of the program and records the frame sizes.
+     *
+     * @param program The program to resolve.
+     * @throws ParseException If a variable is declared twice in a scope, a constant is reassigned,
+     *                        or a memoized function uses global variables.
+     */
+    public void resolve(Program program) throws ParseException {
+        this.program = program;
+        symbols = program.getSymbols();
+        int symbolCount = symbols.size();
+        globalIndices = new int[symbolCount];
+        localSlots = new int[symbolCount];
+        localScopes = new int[symbolCount];
+        Arrays.fill(globalIndices, -1);
+        Arrays.fill(localSlots, -1);
+        collectConstants(program.getStatements());
+
+        for (Stmt.Function function : program.getFunctions()) {
+            beginFrame();
+            beginScope();
+            currentFunction = function;
+            for (Stmt.Parameter parameter : function.parameters) {
+                declareLocal(parameter.name, parameter.symbol, function.token);
+            }
+            resolve(function.body);
+            function.localCount = maxLocals;
+        }
+        currentFunction = null;
+        for (Stmt.Function function : program.getFunctions()) {
+            if (function.memoized) checkMemoized(function);
+        }
+
+        beginFrame();
+        resolve(program.getStatements());
+        for (BoundsProof proof : pendingProofs) {
+            if (calleesKeepBounds(proof)) markInBounds(proof);
+        }
+        program.setLocalCount(maxLocals);
+        program.setGlobalNames(globalNames);
+    }
+
+    /**
+     * Checks that a memoized function does not depend on or change global state, directly or through
+     * the functions it calls, as its cached results would then go stale. Constants may be read.
+     * Its arguments and result cannot be arrays, so any array it changes is one it made itself.
+     */
+    private void checkMemoized(Stmt.Function function) throws ParseException {
+        GlobalUse use = globalUses.get(function);
+        if (use != null) {
+            throw source.error("Memoized function '" + function.name + "' cannot use global variable '" +
+                    use.name + "'", use.at);
+        }
+        Set<Stmt.Function> visited = new HashSet<>();
+        visited.add(function);
+        for (Expr.Call call : calls.getOrDefault(function, List.of())) {
+            GlobalUse indirect = findGlobalUse(program.getFunction(call.symbol), visited);
+            if (indirect != null) {
+                throw source.error("Memoized function '" + function.name + "' calls '" + call.name +
+                        "', which uses global variable '" + indirect.name + "'", call.token);
+            }
+        }
+    }
+
+    private GlobalUse findGlobalUse(Stmt.Function function, Set<Stmt.Function> visited) {
+        if (!visited.add(function)) return null;
+        GlobalUse use = globalUses.get(function);
+        if (use != null) return use;
+        for (Expr.Call call : calls.getOrDefault(function, List.of())) {
+            use = findGlobalUse(program.getFunction(call.symbol), visited);
+            if (use != null) return use;
+        }
+        return null;
+    }
+
+    /**
+     * Starts a bounds proof for a range loop whose counter has been declared, if the loop runs over
+     * the indices of an array.
+     *
+     * @return The proof, or null if the loop does not have the form of one.
+     */
+    private BoundsProof boundsProof(Stmt.ForRange stmt) {
+        if (!isIntegerLiteral(stmt.start, 0) || stmt.step != null && !isIntegerLiteral(stmt.step, 1)) {
+            return null;
+        }
+        if (stmt.end instanceof Expr.Binary end && end.operator.equals(Token.MINUS) && isIntegerLiteral(end.right, 1)
+                && end.left instanceof Expr.MethodCall length && length.arguments.isEmpty()
+                && symbols.name(length.symbol).equals("length")
+                && length.receiver instanceof Expr.Variable array) {
+            return new BoundsProof(stmt.slot, array.depth, array.slot);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether an expression is an integer literal of at least the given value. Only integers
+     * of the exact numeric modes are recognized, as the engines only skip checks for long indices.
+     */
+    private static boolean isIntegerLiteral(Expr expr, long min) {
+        return expr instanceof Expr.Literal literal && literal.value instanceof Long value && value >= min;
+    }
+
+    /**
+     * Concludes the bounds proof of a loop whose body has been resolved.
+     */
+    private void finishProof(BoundsProof proof) {
+        if (proof.broken || proof.accesses.isEmpty()) return;
+        if (proof.calls.isEmpty()) {
+            markInBounds(proof);
+        } else {
+            // The functions called may not all be resolved yet
+            pendingProofs.add(proof);
+        }
+    }
+
+    private static void markInBounds(BoundsProof proof) {
+        for (Expr.Index access : proof.accesses) {
+            access.inBounds = true;
+        }
+    }
+
+    /**
+     * Checks that no function a loop calls, directly or indirectly, resizes an array or assigns
+     * the global variable holding the loop's array.
+     */
+    private boolean calleesKeepBounds(BoundsProof proof) {
+        Set<Stmt.Function> visited = new HashSet<>();
+        Deque<Expr.Call> pending = new ArrayDeque<>(proof.calls);
+        while (!pending.isEmpty()) {
+            Stmt.Function function = program.getFunction(pending.pop().symbol);
+            if (!visited.add(function)) continue;
+            if (resizingFunctions.contains(function)) return false;
+            BitSet assigned = assignedGlobals.get(function);
+            if (proof.arrayDepth == GLOBAL && assigned != null && assigned.get(proof.arraySlot)) return false;
+            pending.addAll(calls.getOrDefault(function, List.of()));
+        }
+        return true;
+    }
+
+    /**
+     * Records an assignment to a variable, which breaks the bounds proofs of loops over it.
+     */
+    private void recordAssignment(int depth, int slot) {
+        for (BoundsProof proof : openProofs) {
+            if (depth == LOCAL && slot == proof.counterSlot || depth == proof.arrayDepth && slot == proof.arraySlot) {
+                proof.broken = true;
+            }
+        }
+        if (currentFunction != null && depth == GLOBAL) {
+            assignedGlobals.computeIfAbsent(currentFunction, key -> new BitSet()).set(slot);
+        }
+    }
+
+    /**
+     * Records a call of a built-in, which breaks every open bounds proof if it may resize an array.
+     */
+    private void recordBuiltinCall(int symbol) {
+        if (!RESIZING_BUILTINS.contains(symbols.name(symbol))) return;
+        for (BoundsProof proof : openProofs) {
+            proof.broken = true;
+        }
+        if (currentFunction != null) {
+            resizingFunctions.add(currentFunction);
+        }
+    }
+
+    private void recordGlobalUse(int symbol, Token at) {
+        if (currentFunction != null && !constantNames.get(symbol)) {
+            globalUses.putIfAbsent(currentFunction, new GlobalUse(symbols.name(symbol), at));
+        }
+    }
+
+    private void resolve(List<Stmt> statements) throws ParseException {
+        for (Stmt statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    /**
+     * Collects the names of all constants, including those declared inside functions and blocks.
+     */
+    private void collectConstants(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Stmt.VarDecl declaration && declaration.constant) {
+                constantNames.set(declaration.symbol);
+            } else if (statement instanceof Stmt.Block block) {
+                collectConstants(block.statements);
+            } else if (statement instanceof Stmt.If ifStmt) {
+                collectConstants(List.of(ifStmt.thenBranch));
+                if (ifStmt.elseBranch != null) collectConstants(List.of(ifStmt.elseBranch));
+            } else if (statement instanceof Stmt.While whileStmt) {
+                collectConstants(List.of(whileStmt.body));
+            } else if (statement instanceof Stmt.ForEach forEach) {
+                collectConstants(List.of(forEach.body));
+            } else if (statement instanceof Stmt.ForRange forRange) {
+                collectConstants(List.of(forRange.body));
+            } else if (statement instanceof Stmt.Function function) {
+                collectConstants(function.body);
+            }
+        }
+    }
+
+    // ----- Statements -----
+
+    @Override
+    public Void visitPrint(Stmt.Print stmt) throws ParseException {
+        for (Expr argument : stmt.arguments) {
+            argument.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpression(Stmt.Expression stmt) throws ParseException {
+        stmt.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDecl(Stmt.VarDecl stmt) throws ParseException {
+        stmt.initializer.accept(this);
+        if (scopeDepth == 0) {
+            // Redeclaring a global is reported when the declaration runs
+            stmt.depth = GLOBAL;
+            stmt.slot = globalIndex(stmt.symbol);
+        } else {
+            stmt.depth = LOCAL;
+            stmt.slot = declareLocal(stmt.name, stmt.symbol, stmt.token);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(Stmt.Assign stmt) throws ParseException {
+        if (constantNames.get(stmt.symbol)) {
+            throw source.error("Cannot reassign constant variable: " + stmt.name, stmt.token);
+        }
+        stmt.value.accept(this);
+
+        int slot = localSlots[stmt.symbol];
+        stmt.depth = slot >= 0 ? LOCAL : GLOBAL;
+        stmt.slot = slot >= 0 ? slot : globalIndex(stmt.symbol);
+        if (slot < 0) recordGlobalUse(stmt.symbol, stmt.token);
+        recordAssignment(stmt.depth, stmt.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexAssign(Stmt.IndexAssign stmt) throws ParseException {
+        stmt.target.accept(this);
+        stmt.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Stmt.Block stmt) throws ParseException {
+        beginScope();
+        resolve(stmt.statements);
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitIf(Stmt.If stmt) throws ParseException {
+        stmt.condition.accept(this);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) {
+            stmt.elseBranch.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(Stmt.While stmt) throws ParseException {
+        stmt.condition.accept(this);
+        stmt.body.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitForEach(Stmt.ForEach stmt) throws ParseException {
+        stmt.iterable.accept(this);
+        beginScope();
+        stmt.stateSlot = declareHidden(2);
+        stmt.slot = declareLocal(stmt.variable, stmt.symbol, stmt.token);
+        stmt.body.accept(this);
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitForRange(Stmt.ForRange stmt) throws ParseException {
+        stmt.start.accept(this);
+        stmt.end.accept(this);
+        if (stmt.step != null) {
+            stmt.step.accept(this);
+        }
+        beginScope();
+        stmt.stateSlot = declareHidden(3);
+        stmt.slot = declareLocal(stmt.variable, stmt.symbol, stmt.token);
+        BoundsProof proof = boundsProof(stmt);
+        if (proof != null) openProofs.add(proof);
+        stmt.body.accept(this);
+        if (proof != null) {
+            openProofs.remove(openProofs.size() - 1);
+            finishProof(proof);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Stmt.Function stmt) {
+        // Functions are resolved separately, each with a frame of its own
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Stmt.Return stmt) throws ParseException {
+        if (stmt.value != null) {
+            stmt.value.accept(this);
+        }
+        if (currentFunction != null && stmt.value instanceof Expr.Call call) {
+            stmt.tailCall = tailCallee(call);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the function a call in tail position of the current function can hand its frame over to.
+     * Calls that must come back to the caller are left alone: those whose result the caller checks
+     * against a different return type, those that will fail the arity check, and calls from or to
+     * a memoized function, which has its result cached when its own frame returns.
+     *
+     * @return The function called, or null if the call is not a proper tail call.
+     */
+    private Stmt.Function tailCallee(Expr.Call call) {
+        Stmt.Function callee = program.getFunction(call.symbol);
+        if (callee == null || callee.memoized || currentFunction.memoized
+                || callee.parameters.size() != call.arguments.size()
+                || !callee.returnType.equals(currentFunction.returnType)) {
+            return null;
+        }
+        return callee;
+    }
+
+    @Override
+    public Void visitBreak(Stmt.Break stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(Stmt.Continue stmt) {
+        return null;
+    }
+
+    // ----- Expressions -----
+
+    @Override
+    public Void visitLiteral(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitInterpolation(Expr.Interpolation expr) throws ParseException {
+        for (Expr part : expr.parts) {
+            part.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Expr.Variable expr) {
+        int slot = localSlots[expr.symbol];
+        expr.depth = slot >= 0 ? LOCAL : GLOBAL;
+        expr.slot = slot >= 0 ? slot : globalIndex(expr.symbol);
+        if (slot < 0) recordGlobalUse(expr.symbol, expr.token);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(Expr.ArrayLiteral expr) throws ParseException {
+        for (Expr element : expr.elements) {
+            element.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIndex(Expr.Index expr) throws ParseException {
+        expr.target.accept(this);
+        for (Expr index : expr.indices) {
+            index.accept(this);
+        }
+        if (expr.target instanceof Expr.Variable array && expr.indices.size() == 1
+                && expr.indices.get(0) instanceof Expr.Variable counter && counter.depth == LOCAL) {
+            for (BoundsProof proof : openProofs) {
+                if (counter.slot == proof.counterSlot && array.depth == proof.arrayDepth && array.slot == proof.arraySlot) {
+                    proof.accesses.add(expr);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCall(Expr.Call expr) throws ParseException {
+        for (Expr argument : expr.arguments) {
+            argument.accept(this);
+        }
+        if (program.getFunction(expr.symbol) != null) {
+            if (currentFunction != null) {
+                calls.computeIfAbsent(currentFunction, key -> new ArrayList<>()).add(expr);
+            }
+            for (BoundsProof proof : openProofs) {
+                proof.calls.add(expr);
+            }
+        } else {
+            recordBuiltinCall(expr.symbol);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitMethodCall(Expr.MethodCall expr) throws ParseException {
+        expr.receiver.accept(this);
+        for (Expr argument : expr.arguments) {
+            argument.accept(this);
+        }
+        recordBuiltinCall(expr.symbol);
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(Expr.Binary expr) throws ParseException {
+        expr.left.accept(this);
+        expr.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLogical(Expr.Logical expr) throws ParseException {
+        expr.left.accept(this);
+        expr.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Expr.Unary expr) throws ParseException {
+        expr.operand.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCheck(Expr.TypeCheck expr) throws ParseException {
+        expr.value.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitCast(Expr.Cast expr) throws ParseException {
+        expr.value.accept(this);
+        return null;
+    }
+
+    // ----- Scopes and slots -----
+
+    private void beginFrame() {
+        while (scopeDepth > 0) {
+            endScope();
+        }
+        localCount = 0;
+        maxLocals = 0;
+    }
+
+    private void beginScope() {
+        if (scopeDepth * 2 == scopeMarks.length) scopeMarks = Arrays.copyOf(scopeMarks, scopeDepth * 4);
+        scopeMarks[scopeDepth * 2] = shadowedCount;
+        scopeMarks[scopeDepth * 2 + 1] = localCount;
+        scopeDepth++;
+    }
+
+    private void endScope() {
+        scopeDepth--;
+        int mark = scopeMarks[scopeDepth * 2];
+        while (shadowedCount > mark) {
+            shadowedCount -= 3;
+            int symbol = shadowed[shadowedCount];
+            localSlots[symbol] = shadowed[shadowedCount + 1];
+            localScopes[symbol] = shadowed[shadowedCount + 2];
+        }
+        // Slots of the scope's variables can be reused by the following code
+        localCount = scopeMarks[scopeDepth * 2 + 1];
+    }
+
+    private int declareLocal(String name, int symbol, Token at) throws ParseException {
+        if (localSlots[symbol] >= 0 && localScopes[symbol] == scopeDepth) {
+            throw source.error("Variable '" + name + "' already declared in this scope", at);
+        }
+        if (shadowedCount == shadowed.length) shadowed = Arrays.copyOf(shadowed, shadowedCount * 2);
+        shadowed[shadowedCount++] = symbol;
+        shadowed[shadowedCount++] = localSlots[symbol];
+        shadowed[shadowedCount++] = localScopes[symbol];
+        int slot = allocateSlots(1);
+        localSlots[symbol] = slot;
+        localScopes[symbol] = scopeDepth;
+        return slot;
+    }
+
+    /**
+     * Declares unnamed local slots in the current scope, such as the state of a for loop.
+     *
+     * @param count The number of slots.
+     * @return The first slot.
+     */
+    private int declareHidden(int count) {
+        return allocateSlots(count);
+    }
+
+    private int allocateSlots(int count) {
+        int slot = localCount;
+        localCount += count;
+        maxLocals = Math.max(maxLocals, localCount);
+        return slot;
+    }
+
+    private int globalIndex(int symbol) {
+        if (globalIndices[symbol] < 0) {
+            globalIndices[symbol] = globalNames.size();
+            globalNames.add(symbols.name(symbol));
+        }
+        return globalIndices[symbol];
+    }
+}
@@ -0,0 +1,22 @@
+package io.github._3xhaust.runtime;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.token.Token;
+
+import java.util.List;
+
+/**
+ * Represents a built-in function.
+ */
+public interface BuiltinFunction {
+    /**
+     * Executes the built-in function with the given context and arguments.
+     *
+     * @param context   The context of the function call (the receiver of the method).
+     * @param arguments The list of arguments passed to the function.
+     * @param at        The token of the call, used for error reporting.
+     * @return The result of the function execution.
+     * @throws ParseException If an error occurs during function execution.
+     */
+    Object execute(Object context, List<Object> arguments, Token at) throws ParseException;
+}
@@ -0,0 +1,265 @@
+package io.github._3xhaust.runtime;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.array.EzyArray;
+import io.github._3xhaust.token.SymbolTable;
+import io.github._3xhaust.token.Token;
+
+import java.util.*;
+
+/**
+ * Registry of the built-in methods available on arrays and strings.
+ * Built-ins can be called as methods (arr.add(1)) or as free functions (add(arr, 1)),
+ * in which case the first argument becomes the receiver. Calls name the built-in by the symbol id
+ * the parser gave its name, so finding it is an array lookup, and each call site keeps a
+ * {@link MethodCache} of the functions it resolved to, so repeated calls skip the lookup.
+ */
+public class Builtins {
+    private final SourceFile source;
+    private final NumericMode mode;
+    private final SymbolTable symbols;
+    // Map to store built-in functions for different context types
+    private final Map<String, Map<Class<?>, BuiltinFunction>> builtinFunctions = new HashMap<>();
+    // The built-in functions of each name the program uses, indexed by symbol id; null for other names
+    private final Map<Class<?>, BuiltinFunction>[] functionsBySymbol;
+
+    /**
+     * Creates the built-ins of a program.
+     *
+     * @param source  The source file, used for error reporting.
+     * @param mode    The numeric mode of the program.
+     * @param symbols The symbol table of the program's names.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Builtins(SourceFile source, NumericMode mode, SymbolTable symbols) {
+        this.source = source;
+        this.mode = mode;
+        this.symbols = symbols;
+        initializeBuiltinFunctions();
+
+        // Names the program never mentions cannot be called, so they are not interned
+        functionsBySymbol = new Map[symbols.size()];
+        for (Map.Entry<String, Map<Class<?>, BuiltinFunction>> entry : builtinFunctions.entrySet()) {
+            int symbol = symbols.find(entry.getKey(), 0, entry.getKey().length());
+            if (symbol >= 0) functionsBySymbol[symbol] = entry.getValue();
+        }
+    }
+
+    /**
+     * Initializes the map of built-in functions.
+     */
+    @SuppressWarnings("unchecked")
+    private void initializeBuiltinFunctions() {
+        // Register the 'length' function for arrays
+        registerBuiltinFunction("length", EzyArray.class, (context, args, at) ->
+                mode.valueOf(((List<?>) context).size()));
+
+        // Register the 'repeat' function for Strings
+        registerBuiltinFunction("repeat", String.class, (context, args, at) -> {
+            validateArguments("repeat", args, at, 1, Number.class);
+            int count = ((Number) args.get(0)).intValue();
+            return ((String) context).repeat(count);
+        });
+
+        // Register the 'add' function for arrays
+        registerBuiltinFunction("add", EzyArray.class, (context, args, at) -> {
+            validateArguments("add", args, at, 1, Object.class);
+            ((List<Object>) context).add(args.get(0));
+            return null;
+        });
+
+        // Register the 'get' function for arrays
+        registerBuiltinFunction("get", EzyArray.class, (context, args, at) -> {
+            validateArguments("get", args, at, 1, Number.class);
+            List<Object> list = (List<Object>) context;
+            return list.get(checkIndex(list, (Number) args.get(0), at));
+        });
+
+        // Register the 'set' function for arrays
+        registerBuiltinFunction("set", EzyArray.class, (context, args, at) -> {
+            validateArguments("set", args, at, 2, Number.class, Object.class);
+            List<Object> list = (List<Object>) context;
+            list.set(checkIndex(list, (Number) args.get(0), at), args.get(1));
+            return null;
+        });
+
+        // Register the 'remove' function for arrays
+        registerBuiltinFunction("remove", EzyArray.class, (context, args, at) -> {
+            validateArguments("remove", args, at, 1, Number.class);
+            List<Object> list = (List<Object>) context;
+            return list.remove(checkIndex(list, (Number) args.get(0), at));
+        });
+
+        // Register the 'clear' function for arrays
+        registerBuiltinFunction("clear", EzyArray.class, (context, args, at) -> {
+            validateArguments("clear", args, at, 0);
+            ((List<Object>) context).clear();
+            return null;
+        });
+
+        // Register the 'addAll' function for arrays
+        registerBuiltinFunction("addAll", EzyArray.class, (context, args, at) -> {
+            validateArguments("addAll", args, at, 1, List.class);
+            return ((List<Object>) context).addAll((List<Object>) args.get(0));
+        });
+
+        // Register the 'contains' function for arrays
+        registerBuiltinFunction("contains", EzyArray.class, (context, args, at) -> {
+            validateArguments("contains", args, at, 1, Object.class);
+            return ((List<Object>) context).contains(args.get(0));
+        });
+
+        // Register the 'indexOf' function for arrays
+        registerBuiltinFunction("indexOf", EzyArray.class, (context, args, at) -> {
+            validateArguments("indexOf", args, at, 1, Object.class);
+            return mode.valueOf(((List<Object>) context).indexOf(args.get(0)));
+        });
+
+        // Register the 'isEmpty' function for arrays
+        registerBuiltinFunction("isEmpty", EzyArray.class, (context, args, at) ->
+                ((List<Object>) context).isEmpty());
+
+        // Register the 'removeAll' function for arrays
+        registerBuiltinFunction("removeAll", EzyArray.class, (context, args, at) -> {
+            validateArguments("removeAll", args, at, 1, List.class);
+            return ((List<Object>) context).removeAll((List<Object>) args.get(0));
+        });
+
+        // Register the 'containsAll' function for arrays
+        registerBuiltinFunction("containsAll", EzyArray.class, (context, args, at) -> {
+            validateArguments("containsAll", args, at, 1, List.class);
+            return ((List<Object>) context).containsAll((List<Object>) args.get(0));
+        });
+
+        // Register the 'sort' function for arrays
+        registerBuiltinFunction("sort", EzyArray.class, (context, args, at) -> {
+            validateArguments("sort", args, at, 0);
+            List<Object> list = (List<Object>) context;
+            list.sort((o1, o2) -> {
+                if (Numbers.isNumber(o1) && Numbers.isNumber(o2)) {
+                    return mode.compare(o1, o2);
+                }
+                if (o1 instanceof Comparable<?> && o2 instanceof Comparable<?>) {
+                    return ((Comparable<Object>) o1).compareTo(o2);
+                }
+                return 0;
+            });
+            return list;
+        });
+    }
+
+    /**
+     * Checks if a built-in function with the given name exists.
+     *
+     * @param symbol The symbol id of the name of the function.
+     * @return True if a built-in function with this name is registered.
+     */
+    public boolean contains(int symbol) {
+        return functions(symbol) != null;
+    }
+
+    private Map<Class<?>, BuiltinFunction> functions(int symbol) {
+        return symbol < functionsBySymbol.length ? functionsBySymbol[symbol] : null;
+    }
+
+    /**
+     * Creates the inline cache of a call site of a built-in.
+     *
+     * @param symbol The symbol id of the name of the built-in.
+     * @return The empty cache.
+     */
+    public MethodCache cache(int symbol) {
+        return new MethodCache(this, symbol);
+    }
+
+    /**
+     * Calls a built-in function in free-function form, where the first argument is the receiver.
+     *
+     * @param cache     The inline cache of the call site, made by {@link #cache(int)}.
+     * @param arguments The arguments, starting with the receiver.
+     * @param at        The token of the call, used for error reporting.
+     * @return The result of the call.
+     * @throws ParseException If the function does not exist or cannot be applied.
+     */
+    public Object callFunction(MethodCache cache, List<Object> arguments, Token at) throws ParseException {
+        if (arguments.isEmpty()) {
+            throw source.error(symbols.name(cache.symbol) + "() expects a receiver as its first argument", at);
+        }
+        return callMethod(arguments.get(0), cache, arguments.subList(1, arguments.size()), at);
+    }
+
+    /**
+     * Handles method calls on objects.
+     *
+     * @param context    The object on which the method is being called.
+     * @param cache      The inline cache of the call site, made by {@link #cache(int)}.
+     * @param arguments  The list of arguments passed to the method.
+     * @param at         The token of the call, used for error reporting.
+     * @return The result of the method call.
+     * @throws ParseException If an error occurs during method call resolution or execution.
+     */
+    public Object callMethod(Object context, MethodCache cache, List<Object> arguments, Token at) throws ParseException {
+        BuiltinFunction function = context == null ? null : cache.lookup(context.getClass());
+        if (function == null) {
+            function = resolve(context, cache.symbol, at);
+            cache.record(context.getClass(), function);
+        }
+        return function.execute(context, arguments, at);
+    }
+
+    private BuiltinFunction resolve(Object context, int symbol, Token at) throws ParseException {
+        Map<Class<?>, BuiltinFunction> functions = functions(symbol);
+        if (functions == null) {
+            throw source.error("Undefined method: " + symbols.name(symbol), at);
+        }
+
+        BuiltinFunction function = context == null ? null : functions.get(context.getClass());
+        if (function == null) {
+            throw source.error("Method " + symbols.name(symbol) + " is not applicable for " + Numbers.typeName(context), at);
+        }
+        return function;
+    }
+
+    /**
+     * Validates the arguments passed to a built-in function.
+     *
+     * @param functionName  The name of the function being called.
+     * @param args          The list of arguments passed to the function.
+     * @param at            The token of the call, used for error reporting.
+     * @param expectedCount The expected number of arguments.
+     * @param expectedTypes The expected types of arguments.
+     * @throws ParseException If the arguments are invalid.
+     */
+    private void validateArguments(String functionName, List<Object> args, Token at, int expectedCount, Class<?>... expectedTypes) throws ParseException {
+        if (args.size() != expectedCount) {
+            throw source.error(functionName + "() expects " + expectedCount +
+                    " argument" + (expectedCount > 1 ? "s" : "") + ", but got " + args.size(), at);
+        }
+        for (int i = 0; i < expectedCount; i++) {
+            if (!expectedTypes[i].isInstance(args.get(i))) {
+                String expected = expectedTypes[i] == Number.class ? "BigDecimal" : expectedTypes[i].getSimpleName();
+                throw source.error(functionName + "() argument " + (i + 1) +
+                        " should be " + expected + ", but got " + Numbers.typeName(args.get(i)), at);
+            }
+        }
+    }
+
+    private int checkIndex(List<?> list, Number indexValue, Token at) throws ParseException {
+        int index = indexValue.intValue();
+        if (index < 0 || index >= list.size()) {
+            throw source.error("Index out of bounds", at);
+        }
+        return index;
+    }
+
+    /**
+     * Registers a built-in function.
+     *
+     * @param name        The name of the function.
+     * @param contextType The type of the context object required for the function.
+     * @param function    The function implementation.
+     */
+    private void registerBuiltinFunction(String name, Class<?> contextType, BuiltinFunction function) {
+        builtinFunctions.computeIfAbsent(name, k -> new HashMap<>()).put(contextType, function);
+    }
+}
@@ -0,0 +1,69 @@
+package io.github._3xhaust.runtime;
+
+/**
+ * The state of a range loop whose start, end and step are all integers, kept in primitive longs
+ * so that stepping costs an addition and a comparison instead of calls through the numeric mode.
+ * <p>
+ * The last value is computed up front and the loop stops on it rather than stepping past the end,
+ * so a range reaching {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE} cannot overflow.
+ */
+public final class LongRange {
+    private long next;
+    private final long last;
+    private final long step;
+    private boolean done;
+
+    /**
+     * Creates the state of a range.
+     *
+     * @param start The first value.
+     * @param end   The bound, which is the last value if the step reaches it exactly.
+     * @param step  The step, which must not be zero.
+     */
+    public LongRange(long start, long end, long step) {
+        this.next = start;
+        this.step = step;
+        this.done = step > 0 ? start > end : start < end;
+        // The distance is non-negative once the range is not empty, so it fits in an unsigned long
+        long steps = done ? 0 : step > 0
+                ? Long.divideUnsigned(end - start, step)
+                : Long.divideUnsigned(start - end, -step);
+        this.last = start + steps * step;
+    }
+
+    /**
+     * Gets the state of a range whose bounds and step are all integers.
+     *
+     * @return The state, or null if a bound or the step is not a long.
+     */
+    public static LongRange of(Object start, Object end, Object step) {
+        if (start instanceof Long first && end instanceof Long bound && step instanceof Long by) {
+            return new LongRange(first, bound, by);
+        }
+        return null;
+    }
+
+    public boolean hasNext() {
+        return !done;
+    }
+
+    /**
+     * Gets the next value without stepping; the range must not be done.
+     */
+    public long peek() {
+        return next;
+    }
+
+    /**
+     * Gets the next value and steps past it; the range must not be done.
+     */
+    public long next() {
+        long value = next;
+        if (value == last) {
+            done = true;
+        } else {
+            next = value + step;
+        }
+        return value;
+    }
+}
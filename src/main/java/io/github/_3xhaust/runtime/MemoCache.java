@@ -0,0 +1,83 @@
+package io.github._3xhaust.runtime;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a function declared with 'memo', keyed by its arguments. The cache holds a bounded
+ * number of results and evicts the least recently used one when it is full.
+ * <p>
+ * Arguments are compared with equals, so numbers only match in the same representation:
+ * {@code 1.50} and {@code 1.5} are different keys, as they print differently.
+ */
+public final class MemoCache {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final String name;
+    private final Map<Object, Object> results;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param name     The name of the function, for reporting.
+     * @param capacity The largest number of results kept.
+     */
+    public MemoCache(String name, int capacity) {
+        this.name = name;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Makes the key of a call from its arguments.
+     *
+     * @param arguments The array holding the arguments.
+     * @param from      The index of the first argument.
+     * @param count     The number of arguments.
+     * @return The key, which does not share the array.
+     */
+    public static Object key(Object[] arguments, int from, int count) {
+        return count == 1 ? arguments[from] : Arrays.asList(Arrays.copyOfRange(arguments, from, from + count));
+    }
+
+    /**
+     * Gets the result cached for a key, counting a hit or a miss.
+     *
+     * @return The result, or null if there is none; results are never null.
+     */
+    public Object get(Object key) {
+        Object result = results.get(key);
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    public void put(Object key, Object result) {
+        results.put(key, result);
+    }
+
+    /**
+     * Describes the use of the cache, e.g. "fib: 28 hits, 31 misses, 31 cached".
+     */
+    public String getStatistics() {
+        return name + ": " + hits + " hits, " + misses + " misses, " + results.size() + " cached";
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
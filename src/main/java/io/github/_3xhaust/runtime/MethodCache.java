@@ -0,0 +1,55 @@
+package io.github._3xhaust.runtime;
+
+/**
+ * The inline cache of a call site of a built-in: the functions the call resolved to for the last few
+ * receiver classes, so that calling it again costs a class comparison instead of two map lookups.
+ * A site that sees more receiver classes than the cache holds becomes megamorphic, and from then on
+ * always looks the function up in the {@link Builtins}.
+ */
+public final class MethodCache {
+    private static final int SIZE = 4; // Receiver classes remembered before the site becomes megamorphic
+
+    final Builtins builtins; // The built-ins the cached functions belong to
+    final int symbol; // Symbol id of the name of the built-in
+    private final Class<?>[] classes = new Class<?>[SIZE];
+    private final BuiltinFunction[] functions = new BuiltinFunction[SIZE];
+    private int size; // Number of cached receiver classes, or -1 once megamorphic
+
+    MethodCache(Builtins builtins, int symbol) {
+        this.builtins = builtins;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Checks if the cache was made by the given built-ins, which an engine reusing a cache must check.
+     */
+    public boolean isOf(Builtins builtins) {
+        return this.builtins == builtins;
+    }
+
+    /**
+     * Gets the cached function for a receiver class.
+     *
+     * @return The function, or null if the class has not been seen or the site is megamorphic.
+     */
+    BuiltinFunction lookup(Class<?> type) {
+        for (int i = 0; i < size; i++) {
+            if (classes[i] == type) return functions[i];
+        }
+        return null;
+    }
+
+    /**
+     * Remembers the function a receiver class resolved to.
+     */
+    void record(Class<?> type, BuiltinFunction function) {
+        if (size < 0) return;
+        if (size == SIZE) {
+            size = -1;
+            return;
+        }
+        classes[size] = type;
+        functions[size] = function;
+        size++;
+    }
+}
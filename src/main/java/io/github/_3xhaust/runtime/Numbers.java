@@ -0,0 +1,168 @@
+package io.github._3xhaust.runtime;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decimal arithmetic on values of the number type, used by the exact and decimal128 numeric modes.
+ * <p>
+ * A number is represented as a {@link Long} whenever it is an integer with a scale of zero that fits
+ * in 64 bits, and as a {@link BigDecimal} otherwise. Every operation keeps this representation
+ * canonical, so both forms print, compare and hash exactly like the BigDecimal they stand for,
+ * and integer arithmetic runs on primitive longs until it overflows.
+ * <p>
+ * The math context only applies once an operation falls back to BigDecimal; results of the long
+ * fast paths are always exact.
+ *
+ * @see NumericMode
+ */
+public final class Numbers {
+    private Numbers() {
+    }
+
+    /**
+     * Checks if a value is a number.
+     *
+     * @param value The value to check.
+     * @return True if the value is a Long, a BigDecimal, or a Double in the double numeric mode.
+     */
+    public static boolean isNumber(Object value) {
+        return value instanceof Long || value instanceof BigDecimal || value instanceof Double;
+    }
+
+    /**
+     * Parses a number literal.
+     *
+     * @param text The text of the literal.
+     * @return The number in its canonical representation.
+     * @throws NumberFormatException If the text is not a valid number.
+     */
+    public static Object parse(String text) {
+        return normalize(new BigDecimal(text));
+    }
+
+    /**
+     * Converts a BigDecimal to the canonical representation of its value.
+     *
+     * @param value The value to convert.
+     * @return A Long if the value is an integer with a scale of zero that fits in a long, otherwise the value itself.
+     */
+    public static Object normalize(BigDecimal value) {
+        if (value.scale() == 0 && value.unscaledValue().bitLength() < 64) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    /**
+     * Converts a number to a BigDecimal.
+     *
+     * @param value A Long or a BigDecimal.
+     * @return The value as a BigDecimal.
+     */
+    public static BigDecimal toBigDecimal(Object value) {
+        return value instanceof Long ? BigDecimal.valueOf((Long) value) : (BigDecimal) value;
+    }
+
+    public static Object add(Object left, Object right, MathContext context) {
+        if (left instanceof Long && right instanceof Long) {
+            long x = (Long) left;
+            long y = (Long) right;
+            long result = x + y;
+            // Overflow if both operands have the sign opposite to the result
+            if (((x ^ result) & (y ^ result)) >= 0) {
+                return result;
+            }
+        }
+        return normalize(toBigDecimal(left).add(toBigDecimal(right), context));
+    }
+
+    public static Object subtract(Object left, Object right, MathContext context) {
+        if (left instanceof Long && right instanceof Long) {
+            long x = (Long) left;
+            long y = (Long) right;
+            long result = x - y;
+            // Overflow if the operands have different signs and the result has the sign of the right operand
+            if (((x ^ y) & (x ^ result)) >= 0) {
+                return result;
+            }
+        }
+        return normalize(toBigDecimal(left).subtract(toBigDecimal(right), context));
+    }
+
+    public static Object multiply(Object left, Object right, MathContext context) {
+        if (left instanceof Long && right instanceof Long) {
+            long x = (Long) left;
+            long y = (Long) right;
+            long result = x * y;
+            long high = Math.multiplyHigh(x, y);
+            // No overflow if the high half is just the sign extension of the low half
+            if ((high == 0 && result >= 0) || (high == -1 && result < 0)) {
+                return result;
+            }
+        }
+        return normalize(toBigDecimal(left).multiply(toBigDecimal(right), context));
+    }
+
+    /**
+     * Divides two numbers. The divisor must not be zero.
+     * An exact integer quotient stays a long; anything else is rounded to the math context.
+     */
+    public static Object divide(Object left, Object right, MathContext context) {
+        if (left instanceof Long && right instanceof Long) {
+            long x = (Long) left;
+            long y = (Long) right;
+            if (x % y == 0 && !(x == Long.MIN_VALUE && y == -1)) {
+                return x / y;
+            }
+        }
+        return normalize(toBigDecimal(left).divide(toBigDecimal(right), context));
+    }
+
+    /**
+     * Computes the remainder of dividing two numbers. The divisor must not be zero.
+     */
+    public static Object remainder(Object left, Object right, MathContext context) {
+        if (left instanceof Long && right instanceof Long) {
+            return (Long) left % (Long) right;
+        }
+        return normalize(toBigDecimal(left).remainder(toBigDecimal(right), context));
+    }
+
+    /**
+     * Compares two numbers by value, ignoring the scale of BigDecimals.
+     *
+     * @return A negative number, zero, or a positive number as left is less than, equal to, or greater than right.
+     */
+    public static int compare(Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return Long.compare((Long) left, (Long) right);
+        }
+        return toBigDecimal(left).compareTo(toBigDecimal(right));
+    }
+
+    /**
+     * Gets the sign of a number.
+     *
+     * @return -1, 0, or 1 as the number is negative, zero, or positive.
+     */
+    public static int signum(Object value) {
+        return value instanceof Long ? Long.signum((Long) value) : ((BigDecimal) value).signum();
+    }
+
+    /**
+     * Gets the name of a value's type as shown in error messages.
+     * Every representation of numbers is reported as BigDecimal, and arrays as ArrayList,
+     * the classes that used to hold them.
+     *
+     * @param value The value.
+     * @return The simple class name of the value, or "null".
+     */
+    public static String typeName(Object value) {
+        if (value == null) return "null";
+        if (value instanceof List<?>) return ArrayList.class.getSimpleName();
+        return isNumber(value) ? BigDecimal.class.getSimpleName() : value.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,203 @@
+package io.github._3xhaust.runtime;
+
+import java.math.MathContext;
+
+/**
+ * The arithmetic backend behind the number type, selected with the --numeric option.
+ * The operators, comparisons, range loops and number conversions of every engine go through the
+ * mode of the program, so a program produces the same output on all engines within one mode.
+ * <ul>
+ *     <li>{@link #EXACT}: longs with a BigDecimal fallback. Addition, subtraction, multiplication and
+ *     remainder are exact; a division that does not come out even is rounded to 34 significant digits.
+ *     Numbers print as the BigDecimal they stand for, so {@code 1.50} prints as {@code 1.50},
+ *     and compare by value, so {@code 1.50 == 1.5}.</li>
+ *     <li>{@link #DECIMAL128}: like exact, but every decimal result is rounded to 34 significant digits
+ *     (IEEE 754 decimal128), which bounds the cost of long chains of decimal arithmetic.
+ *     Integer arithmetic that fits in a long stays exact.</li>
+ *     <li>{@link #DOUBLE}: 64-bit binary floating point. Fastest, but decimal fractions are approximate,
+ *     so {@code 0.1 + 0.2 == 0.3} is false. Integral values below 10^15 print without a fraction,
+ *     other values print like Java's {@link Double#toString(double)}. Comparisons use the primitive
+ *     operators, so {@code 0.0 == -0.0}. Division by zero is still an error.</li>
+ * </ul>
+ */
+public enum NumericMode {
+    EXACT(MathContext.UNLIMITED),
+    DECIMAL128(MathContext.DECIMAL128),
+    DOUBLE(null) {
+        @Override
+        public Object parse(String text) {
+            double value = Double.parseDouble(text);
+            return value == (int) value && isSmall((int) value) && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO
+                    ? valueOf((int) value) : value;
+        }
+
+        @Override
+        protected Object box(long value) {
+            return (double) value;
+        }
+
+        @Override
+        public Object add(Object left, Object right) {
+            return toDouble(left) + toDouble(right);
+        }
+
+        @Override
+        public Object subtract(Object left, Object right) {
+            return toDouble(left) - toDouble(right);
+        }
+
+        @Override
+        public Object multiply(Object left, Object right) {
+            return toDouble(left) * toDouble(right);
+        }
+
+        @Override
+        public Object divide(Object left, Object right) {
+            return toDouble(left) / toDouble(right);
+        }
+
+        @Override
+        public Object remainder(Object left, Object right) {
+            return toDouble(left) % toDouble(right);
+        }
+
+        @Override
+        public int compare(Object left, Object right) {
+            double x = toDouble(left);
+            double y = toDouble(right);
+            return x < y ? -1 : x > y ? 1 : 0;
+        }
+
+        @Override
+        public int signum(Object value) {
+            return (int) Math.signum(toDouble(value));
+        }
+
+        @Override
+        public String format(Object value) {
+            double d = toDouble(value);
+            if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+                return Long.toString((long) d);
+            }
+            return Double.toString(d);
+        }
+    };
+
+    // Range of the integers whose boxed value is shared, which covers most literals, lengths and loop steps
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1023;
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    // Precision of decimal results that fall back to BigDecimal; division always rounds to decimal128
+    private final MathContext context;
+    private final Object[] smallIntegers = new Object[SMALL_MAX - SMALL_MIN + 1];
+
+    NumericMode(MathContext context) {
+        this.context = context;
+        for (int i = SMALL_MIN; i <= SMALL_MAX; i++) {
+            smallIntegers[i - SMALL_MIN] = box(i);
+        }
+    }
+
+    /**
+     * Gets the mode with the given name, as written on the command line.
+     *
+     * @param name The name of the mode, such as "double".
+     * @return The mode, or null if there is no mode with that name.
+     */
+    public static NumericMode fromName(String name) {
+        for (NumericMode mode : values()) {
+            if (mode.getName().equals(name)) return mode;
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Parses a number literal or the operand of an 'as number' conversion.
+     * Small integers come back as the shared value of {@link #valueOf(long)}.
+     *
+     * @throws NumberFormatException If the text is not a valid number.
+     */
+    public Object parse(String text) {
+        Object value = Numbers.parse(text);
+        return value instanceof Long number && isSmall(number) ? valueOf(number) : value;
+    }
+
+    /**
+     * Converts an integer, such as a length or a character code, to a number of this mode.
+     * Small integers are shared rather than boxed again.
+     */
+    public final Object valueOf(long value) {
+        return isSmall(value) ? smallIntegers[(int) value - SMALL_MIN] : box(value);
+    }
+
+    /**
+     * Boxes an integer as a number of this mode.
+     */
+    protected Object box(long value) {
+        return value;
+    }
+
+    private static boolean isSmall(long value) {
+        return value >= SMALL_MIN && value <= SMALL_MAX;
+    }
+
+    public Object add(Object left, Object right) {
+        return Numbers.add(left, right, context);
+    }
+
+    public Object subtract(Object left, Object right) {
+        return Numbers.subtract(left, right, context);
+    }
+
+    public Object multiply(Object left, Object right) {
+        return Numbers.multiply(left, right, context);
+    }
+
+    /**
+     * Divides two numbers. The divisor must not be zero.
+     */
+    public Object divide(Object left, Object right) {
+        return Numbers.divide(left, right, MathContext.DECIMAL128);
+    }
+
+    /**
+     * Computes the remainder of dividing two numbers. The divisor must not be zero.
+     */
+    public Object remainder(Object left, Object right) {
+        return Numbers.remainder(left, right, context);
+    }
+
+    /**
+     * Compares two numbers by value.
+     *
+     * @return A negative number, zero, or a positive number as left is less than, equal to, or greater than right.
+     */
+    public int compare(Object left, Object right) {
+        return Numbers.compare(left, right);
+    }
+
+    /**
+     * Gets the sign of a number.
+     *
+     * @return -1, 0, or 1 as the number is negative, zero, or positive.
+     */
+    public int signum(Object value) {
+        return Numbers.signum(value);
+    }
+
+    /**
+     * Converts a number to the string used by print and string concatenation.
+     */
+    public String format(Object value) {
+        return String.valueOf(value);
+    }
+
+    private static double toDouble(Object value) {
+        return ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,557 @@
+package io.github._3xhaust.runtime;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.array.EzyArray;
+import io.github._3xhaust.token.Token;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Implements the semantics of the language's operators, type checks and conversions.
+ * Shared by every execution engine so that all of them agree on the meaning of a program.
+ */
+public class Operators {
+    private final SourceFile source;
+    private final NumericMode mode;
+
+    public Operators(SourceFile source, NumericMode mode) {
+        this.source = source;
+        this.mode = mode;
+    }
+
+    public NumericMode getNumericMode() {
+        return mode;
+    }
+
+    /**
+     * Applies a binary operator to two operands.
+     *
+     * @param left     The left-hand side operand.
+     * @param operator The operator to apply.
+     * @param right    The right-hand side operand.
+     * @param at       The operator token, used for error reporting.
+     * @return The result of the operation.
+     * @throws ParseException If the operation is not supported for the given operand types.
+     */
+    public Object binary(Object left, String operator, Object right, Token at) throws ParseException {
+        return switch (operator) {
+            case Token.PLUS -> add(left, right, at);
+            case Token.MINUS -> subtract(left, right, at);
+            case Token.ASTERISK -> multiply(left, right, at);
+            case Token.SLASH -> divide(left, right, at);
+            case Token.PERCENT -> remainder(left, right, at);
+            case Token.EQUAL_EQUAL -> equal(left, right, at);
+            case Token.NOT_EQUAL -> notEqual(left, right, at);
+            case Token.LESS_THAN -> lessThan(left, right, at);
+            case Token.GREATER_THAN -> greaterThan(left, right, at);
+            case Token.LESS_THAN_OR_EQUAL -> lessThanOrEqual(left, right, at);
+            case Token.GREATER_THAN_OR_EQUAL -> greaterThanOrEqual(left, right, at);
+            case Token.AND -> and(left, right, at);
+            case Token.OR -> or(left, right, at);
+            case Token.BITWISE_AND -> bitwiseAnd(left, right, at);
+            case Token.BITWISE_OR -> bitwiseOr(left, right, at);
+            case Token.BITWISE_XOR -> bitwiseXor(left, right, at);
+            case Token.LEFT_SHIFT -> shiftLeft(left, right, at);
+            case Token.RIGHT_SHIFT -> shiftRight(left, right, at);
+            default -> throw source.error("Unsupported operator: " + operator, at);
+        };
+    }
+
+    /**
+     * Adds two numbers, or concatenates two values if either of them is a string.
+     */
+    public Object add(Object left, Object right, Token at) throws ParseException {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return mode.add(left, right);
+        } else if (left instanceof String || right instanceof String) {
+            return stringify(left) + stringify(right);
+        }
+        throw source.error("Invalid operation between types", at);
+    }
+
+    public Object subtract(Object left, Object right, Token at) throws ParseException {
+        return mode.subtract(number(left, at), number(right, at));
+    }
+
+    public Object multiply(Object left, Object right, Token at) throws ParseException {
+        return mode.multiply(number(left, at), number(right, at));
+    }
+
+    public Object divide(Object left, Object right, Token at) throws ParseException {
+        Object dividend = number(left, at);
+        Object divisor = number(right, at);
+        if (mode.signum(divisor) == 0) {
+            throw source.error("Division by zero", at);
+        }
+        return mode.divide(dividend, divisor);
+    }
+
+    public Object remainder(Object left, Object right, Token at) throws ParseException {
+        Object dividend = number(left, at);
+        Object divisor = number(right, at);
+        if (mode.signum(divisor) == 0) {
+            throw source.error("Division by zero", at);
+        }
+        return mode.remainder(dividend, divisor);
+    }
+
+    /**
+     * Compares two numbers, strings or booleans for equality.
+     */
+    public Boolean equal(Object left, Object right, Token at) throws ParseException {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return mode.compare(left, right) == 0;
+        } else if ((left instanceof String && right instanceof String) ||
+                (left instanceof Boolean && right instanceof Boolean)) {
+            return left.equals(right);
+        }
+        throw source.error("Invalid operation between types", at);
+    }
+
+    public Boolean notEqual(Object left, Object right, Token at) throws ParseException {
+        return !equal(left, right, at);
+    }
+
+    public Boolean lessThan(Object left, Object right, Token at) throws ParseException {
+        return compare(left, right, Token.LESS_THAN, at) < 0;
+    }
+
+    public Boolean greaterThan(Object left, Object right, Token at) throws ParseException {
+        return compare(left, right, Token.GREATER_THAN, at) > 0;
+    }
+
+    public Boolean lessThanOrEqual(Object left, Object right, Token at) throws ParseException {
+        return compare(left, right, Token.LESS_THAN_OR_EQUAL, at) <= 0;
+    }
+
+    public Boolean greaterThanOrEqual(Object left, Object right, Token at) throws ParseException {
+        return compare(left, right, Token.GREATER_THAN_OR_EQUAL, at) >= 0;
+    }
+
+    public Boolean and(Object left, Object right, Token at) throws ParseException {
+        return bool(left, right, Token.AND, at) && (Boolean) right;
+    }
+
+    public Boolean or(Object left, Object right, Token at) throws ParseException {
+        return bool(left, right, Token.OR, at) || (Boolean) right;
+    }
+
+    /**
+     * Negates a boolean for the '!' operator.
+     *
+     * @throws ParseException If the value is not a boolean.
+     */
+    public Boolean not(Object value, Token at) throws ParseException {
+        if (value instanceof Boolean) {
+            return !(Boolean) value;
+        }
+        throw source.error("Unsupported operator for " + typeName(value) + ": " + Token.BANG, at);
+    }
+
+    // Bitwise operators and shifts work on the 64-bit two's complement of integral numbers
+
+    public Object bitwiseAnd(Object left, Object right, Token at) throws ParseException {
+        if (left instanceof Long && right instanceof Long) {
+            return mode.valueOf((Long) left & (Long) right);
+        }
+        return mode.valueOf(integer(left, Token.BITWISE_AND, at) & integer(right, Token.BITWISE_AND, at));
+    }
+
+    public Object bitwiseOr(Object left, Object right, Token at) throws ParseException {
+        if (left instanceof Long && right instanceof Long) {
+            return mode.valueOf((Long) left | (Long) right);
+        }
+        return mode.valueOf(integer(left, Token.BITWISE_OR, at) | integer(right, Token.BITWISE_OR, at));
+    }
+
+    public Object bitwiseXor(Object left, Object right, Token at) throws ParseException {
+        if (left instanceof Long && right instanceof Long) {
+            return mode.valueOf((Long) left ^ (Long) right);
+        }
+        return mode.valueOf(integer(left, Token.BITWISE_XOR, at) ^ integer(right, Token.BITWISE_XOR, at));
+    }
+
+    public Object bitwiseNot(Object value, Token at) throws ParseException {
+        return mode.valueOf(~integer(value, Token.BITWISE_NOT, at));
+    }
+
+    /**
+     * Shifts an integer left, dropping the bits shifted out of 64.
+     */
+    public Object shiftLeft(Object left, Object right, Token at) throws ParseException {
+        long value = integer(left, Token.LEFT_SHIFT, at);
+        return mode.valueOf(value << shiftDistance(right, Token.LEFT_SHIFT, at));
+    }
+
+    /**
+     * Shifts an integer right, keeping its sign.
+     */
+    public Object shiftRight(Object left, Object right, Token at) throws ParseException {
+        long value = integer(left, Token.RIGHT_SHIFT, at);
+        return mode.valueOf(value >> shiftDistance(right, Token.RIGHT_SHIFT, at));
+    }
+
+    private int shiftDistance(Object value, String operator, Token at) throws ParseException {
+        long distance = integer(value, operator, at);
+        if (distance < 0 || distance > 63) {
+            throw source.error("Shift distance must be between 0 and 63, found " + distance, at);
+        }
+        return (int) distance;
+    }
+
+    /**
+     * Gets the operand of a bitwise operator or shift as a long.
+     *
+     * @throws ParseException If the operand is not a number with an integral value that fits in 64 bits.
+     */
+    private long integer(Object value, String operator, Token at) throws ParseException {
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == Math.rint(d) && d >= -0x1p63 && d < 0x1p63) {
+                return (long) d;
+            }
+        } else if (value instanceof BigDecimal) {
+            try {
+                return ((BigDecimal) value).longValueExact();
+            } catch (ArithmeticException e) {
+                // Has a fraction or does not fit in a long
+            }
+        }
+        String found = Numbers.isNumber(value) ? mode.format(value) : typeName(value);
+        throw source.error("Operator " + operator + " requires 64-bit integers, found " + found, at);
+    }
+
+    /**
+     * Compares two numbers for an ordering operator.
+     *
+     * @return A negative number, zero, or a positive number as left is less than, equal to, or greater than right.
+     * @throws ParseException If the operands are not both numbers.
+     */
+    private int compare(Object left, Object right, String operator, Token at) throws ParseException {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return mode.compare(left, right);
+        }
+        throw unsupportedOperator(left, right, operator, at);
+    }
+
+    /**
+     * Checks the operands of a logical operator.
+     *
+     * @return The left operand as a boolean.
+     * @throws ParseException If the operands are not both booleans.
+     */
+    private boolean bool(Object left, Object right, String operator, Token at) throws ParseException {
+        if (left instanceof Boolean && right instanceof Boolean) {
+            return (Boolean) left;
+        }
+        throw unsupportedOperator(left, right, operator, at);
+    }
+
+    private Object number(Object value, Token at) throws ParseException {
+        if (Numbers.isNumber(value)) {
+            return value;
+        }
+        throw source.error("Invalid operation between types", at);
+    }
+
+    private ParseException unsupportedOperator(Object left, Object right, String operator, Token at) {
+        if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return source.error("Unsupported operator for " + Token.NUMBER + ": " + operator, at);
+        }
+        if (left != null && right != null && left.getClass() == right.getClass()) {
+            String type = left instanceof String ? Token.STRING : left instanceof Boolean ? Token.BOOLEAN : null;
+            if (type != null) {
+                return source.error("Unsupported operator for " + type + ": " + operator, at);
+            }
+        }
+        return source.error("Invalid operation between types", at);
+    }
+
+    /**
+     * Converts the value of a condition to a boolean.
+     *
+     * @param value The value of the condition expression.
+     * @param at    The token of the condition, used for error reporting.
+     * @return The boolean value.
+     * @throws ParseException If the value is not a boolean.
+     */
+    public boolean condition(Object value, Token at) throws ParseException {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw source.error("Expected a boolean expression", at);
+    }
+
+    /**
+     * Checks if the provided value matches the expected type.
+     *
+     * @param value The value to check.
+     * @param type  The expected type.
+     * @param at    The token used for error reporting.
+     * @throws ParseException If the value's type does not match the expected type.
+     */
+    public void checkType(Object value, String type, Token at) throws ParseException {
+        if (!isOfType(value, type)) {
+            throw source.error("Type mismatch: Expected " + type + ", found " + typeName(value), at);
+        }
+    }
+
+    /**
+     * Tests whether a value matches a declared type, including array element types.
+     *
+     * @param value The value to check.
+     * @param type  The type to check against.
+     * @return True if the value is of the given type.
+     */
+    public boolean isOfType(Object value, String type) {
+        if (type.endsWith(" array")) {
+            if (!(value instanceof List<?>)) return false;
+            String elementType = type.substring(0, type.length() - " array".length());
+            if (value instanceof EzyArray array && array.getElementType() != null && !array.isEmpty()) {
+                // The storage of the array already tells the type of every element
+                return array.getElementType().equals(elementType);
+            }
+            for (Object element : (List<?>) value) {
+                if (!isOfType(element, elementType)) return false;
+            }
+            return true;
+        }
+        return switch (type) {
+            case Token.NUMBER -> Numbers.isNumber(value);
+            case Token.STRING -> value instanceof String;
+            case Token.BOOLEAN -> value instanceof Boolean;
+            case Token.CHAR -> value instanceof Character;
+            case Token.ARRAY -> value instanceof List;
+            case Token.NULL -> value == null;
+            default -> false;
+        };
+    }
+
+    /**
+     * Evaluates an 'is' expression, checking if a value is of a particular type.
+     *
+     * @param value The value being checked.
+     * @param type  The type to check against.
+     * @param at    The token used for error reporting.
+     * @return True if the value is of the specified type, otherwise false.
+     * @throws ParseException If an unsupported type is encountered.
+     */
+    public boolean evaluateIs(Object value, String type, Token at) throws ParseException {
+        return switch (type) {
+            case Token.NUMBER, Token.STRING, Token.BOOLEAN, Token.CHAR, Token.ARRAY, Token.NULL -> isOfType(value, type);
+            default -> throw source.error("Unsupported type: " + type.toLowerCase(), at);
+        };
+    }
+
+    /**
+     * Evaluates an 'as' expression, converting a value to another type.
+     *
+     * @param value      The value to convert.
+     * @param targetType The type to convert to.
+     * @param at         The token used for error reporting.
+     * @return The converted value.
+     * @throws ParseException If the value cannot be converted.
+     */
+    public Object evaluateAs(Object value, String targetType, Token at) throws ParseException {
+        try {
+            return switch (targetType) {
+                case Token.NUMBER -> {
+                    if (value instanceof String) {
+                        yield mode.parse((String) value);
+                    } else if (value instanceof Character) {
+                        yield mode.valueOf((Character) value);
+                    } else {
+                        throw new IllegalArgumentException("Cannot convert to number");
+                    }
+                }
+                case Token.STRING -> stringify(value);
+                case Token.BOOLEAN -> {
+                    if (value instanceof String) {
+                        yield Boolean.parseBoolean((String) value);
+                    } else {
+                        throw new IllegalArgumentException("Cannot convert to boolean");
+                    }
+                }
+                case Token.CHAR -> {
+                    if (value instanceof String && ((String) value).length() == 1) {
+                        yield ((String) value).charAt(0);
+                    } else {
+                        throw new IllegalArgumentException("Cannot convert to char");
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unsupported target type: " + targetType);
+            };
+        } catch (IllegalArgumentException e) {
+            throw source.error("Type conversion error: " + e.getMessage(), at);
+        }
+    }
+
+    /**
+     * Creates a new array value.
+     *
+     * @param elements The initial elements.
+     * @return The array.
+     */
+    public List<Object> newArray(List<Object> elements) {
+        return new EzyArray(elements);
+    }
+
+    /**
+     * Gets the element of an array at the given index.
+     *
+     * @param array The array value.
+     * @param index The index value.
+     * @param at    The token used for error reporting.
+     * @return The element at the index.
+     * @throws ParseException If the value is not an array or the index is out of bounds.
+     */
+    public Object getIndex(Object array, Object index, Token at) throws ParseException {
+        List<?> list = asArray(array, at);
+        return list.get(checkIndex(list, index, at));
+    }
+
+    /**
+     * Sets the element of an array at the given index.
+     *
+     * @param array The array value.
+     * @param index The index value.
+     * @param value The value to store.
+     * @param at    The token used for error reporting.
+     * @throws ParseException If the value is not an array or the index is out of bounds.
+     */
+    @SuppressWarnings("unchecked")
+    public void setIndex(Object array, Object index, Object value, Token at) throws ParseException {
+        List<Object> list = (List<Object>) asArray(array, at);
+        list.set(checkIndex(list, index, at), value);
+    }
+
+    /**
+     * Gets the element of an array at an index the resolver proved to be within the array's bounds.
+     * Only a long index into an array skips the checks; anything else, such as a string indexed like
+     * an array, goes through {@link #getIndex(Object, Object, Token)} and its errors.
+     *
+     * @param array The array value.
+     * @param index The index value.
+     * @param at    The token used for error reporting.
+     * @return The element at the index.
+     * @throws ParseException If the value is not an array.
+     */
+    public Object getIndexInBounds(Object array, Object index, Token at) throws ParseException {
+        if (array instanceof EzyArray list && index instanceof Long i) {
+            return list.getElement((int) (long) i);
+        }
+        return getIndex(array, index, at);
+    }
+
+    /**
+     * Sets the element of an array at an index the resolver proved to be within the array's bounds.
+     *
+     * @param array The array value.
+     * @param index The index value.
+     * @param value The value to store.
+     * @param at    The token used for error reporting.
+     * @throws ParseException If the value is not an array.
+     */
+    public void setIndexInBounds(Object array, Object index, Object value, Token at) throws ParseException {
+        if (array instanceof EzyArray list && index instanceof Long i) {
+            list.setElement((int) (long) i, value);
+        } else {
+            setIndex(array, index, value, at);
+        }
+    }
+
+    /**
+     * Gets an element of a two-dimensional array, reaching the elements of a matrix directly.
+     *
+     * @param array  The array value.
+     * @param row    The index of the row.
+     * @param column The index of the column.
+     * @param at     The token used for error reporting.
+     * @return The element at the indices.
+     * @throws ParseException If a value is not an array or an index is out of bounds.
+     */
+    public Object getIndex(Object array, Object row, Object column, Token at) throws ParseException {
+        if (array instanceof EzyArray matrix && inMatrix(matrix, row, column)) {
+            return matrix.getElement((int) (long) (Long) row, (int) (long) (Long) column);
+        }
+        // Anything else, including the errors of a matrix, goes through the rows
+        return getIndex(getIndex(array, row, at), column, at);
+    }
+
+    /**
+     * Sets an element of a two-dimensional array, reaching the elements of a matrix directly.
+     *
+     * @param array  The array value.
+     * @param row    The index of the row.
+     * @param column The index of the column.
+     * @param value  The value to store.
+     * @param at     The token used for error reporting.
+     * @throws ParseException If a value is not an array or an index is out of bounds.
+     */
+    public void setIndex(Object array, Object row, Object column, Object value, Token at) throws ParseException {
+        if (array instanceof EzyArray matrix && inMatrix(matrix, row, column)) {
+            matrix.setElement((int) (long) (Long) row, (int) (long) (Long) column, value);
+        } else {
+            setIndex(getIndex(array, row, at), column, value, at);
+        }
+    }
+
+    /**
+     * Checks whether an array is a matrix and a pair of long indices is within its bounds.
+     */
+    private static boolean inMatrix(EzyArray matrix, Object row, Object column) {
+        return row instanceof Long i && column instanceof Long j &&
+                i >= 0 && i < matrix.size() && j >= 0 && j < matrix.getColumnCount();
+    }
+
+    private List<?> asArray(Object array, Token at) throws ParseException {
+        if (!(array instanceof List<?>)) {
+            throw source.error("Trying to access non-array element as array", at);
+        }
+        return (List<?>) array;
+    }
+
+    private int checkIndex(List<?> list, Object index, Token at) throws ParseException {
+        if (!Numbers.isNumber(index)) {
+            throw source.error("Array index must be a number", at);
+        }
+        int i = ((Number) index).intValue();
+        if (i < 0 || i >= list.size()) {
+            throw source.error("Array index out of bounds: " + i, at);
+        }
+        return i;
+    }
+
+    /**
+     * Converts a value to the string used by print and string concatenation.
+     *
+     * @param value The value to convert.
+     * @return The string representation.
+     */
+    public String stringify(Object value) {
+        if (Numbers.isNumber(value)) {
+            return mode.format(value);
+        } else if (value instanceof List<?>) {
+            StringBuilder result = new StringBuilder("[");
+            for (Object element : (List<?>) value) {
+                if (result.length() > 1) result.append(", ");
+                result.append(stringify(element));
+            }
+            return result.append(']').toString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Gets a user-facing name for the type of a value.
+     *
+     * @param value The value.
+     * @return The simple class name of the value, or "null".
+     */
+    public String typeName(Object value) {
+        return Numbers.typeName(value);
+    }
+}
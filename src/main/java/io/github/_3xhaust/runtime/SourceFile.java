@@ -0,0 +1,87 @@
+package io.github._3xhaust.runtime;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.token.Token;
+
+import java.util.Arrays;
+
+/**
+ * The source file being executed, used to build error messages that point at the offending line.
+ */
+public class SourceFile {
+    private final String fileName; // Name of the file being executed
+    private final CharSequence input; // The input code, read back a line at a time for error reporting
+    private final int firstLine; // Line number of the first line known
+    private int[] lineStarts; // Offset in the input of the start of each line known, from the first
+    private int lineCount; // Number of lines known
+    private int scanned; // Offset the input has been searched for line breaks up to
+
+    public SourceFile(String fileName, CharSequence input) {
+        this(fileName, input, 0, 1);
+    }
+
+    /**
+     * Creates a source file whose lines are only known from a line onward, so that reading them back
+     * does not search the input before it.
+     *
+     * @param fileName The name of the file.
+     * @param input    The input code.
+     * @param offset   The offset of the start of a line.
+     * @param line     The line number of that line.
+     */
+    public SourceFile(String fileName, CharSequence input, int offset, int line) {
+        this.fileName = fileName;
+        this.input = input;
+        this.firstLine = line;
+        this.lineStarts = new int[16];
+        this.lineStarts[0] = offset;
+        this.lineCount = 1;
+        this.scanned = offset;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets a line of the source code. The input is searched for line breaks only as far as needed.
+     *
+     * @param line The 1-based line number.
+     * @return The line of code, or an empty string if the line does not exist.
+     */
+    public String getLine(int line) {
+        int index = line - firstLine;
+        if (index < 0) return "";
+        findLines(index + 2);
+        if (index >= lineCount) return "";
+        int start = lineStarts[index];
+        int end = index + 1 < lineCount ? lineStarts[index + 1] - 1 : input.length();
+        if (end > start && input.charAt(end - 1) == '\r') end--;
+        return input.subSequence(start, end).toString();
+    }
+
+    /**
+     * Searches the input for line breaks until a number of lines is known or the input ends.
+     */
+    private void findLines(int count) {
+        while (lineCount < count && scanned < input.length()) {
+            // A \r on its own ends a line too, as it does for the lexer
+            char c = input.charAt(scanned++);
+            if (c == '\n' || (c == '\r' && (scanned == input.length() || input.charAt(scanned) != '\n'))) {
+                if (lineCount == lineStarts.length) lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                lineStarts[lineCount++] = scanned;
+            }
+        }
+    }
+
+    /**
+     * Creates a ParseException located at the given token.
+     *
+     * @param message The error message.
+     * @param at      The token where the error occurred.
+     * @return A new ParseException instance.
+     */
+    public ParseException error(String message, Token at) {
+        return new ParseException(fileName, message, at.getLine(), at.getColumn(), getLine(at.getLine()));
+    }
+}
@@ -0,0 +1,102 @@
+package io.github._3xhaust.runtime.array;
+
+import io.github._3xhaust.token.Token;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Storage for booleans, packed 64 to a long.
+ */
+final class BooleanStorage extends Storage {
+    private long[] words;
+
+    BooleanStorage(int capacity) {
+        words = new long[(capacity + 63) >>> 6];
+    }
+
+    private boolean bit(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setBit(int index, boolean value) {
+        if (value) {
+            words[index >>> 6] |= 1L << index;
+        } else {
+            words[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return value instanceof Boolean;
+    }
+
+    @Override
+    Object get(int index) {
+        return bit(index);
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        if (!(value instanceof Boolean)) return false;
+        setBit(index, (Boolean) value);
+        return true;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        if (!(value instanceof Boolean)) return false;
+        if (size == words.length << 6) {
+            words = Arrays.copyOf(words, grow(words.length));
+        }
+        for (int i = size; i > index; i--) {
+            setBit(i, bit(i - 1));
+        }
+        setBit(index, (Boolean) value);
+        size++;
+        return true;
+    }
+
+    @Override
+    void remove(int index) {
+        for (int i = index; i < size - 1; i++) {
+            setBit(i, bit(i + 1));
+        }
+        setBit(size - 1, false);
+        size--;
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(words, 0);
+        size = 0;
+    }
+
+    @Override
+    int indexOf(Object value) {
+        if (!(value instanceof Boolean)) return -1;
+        boolean target = (Boolean) value;
+        for (int i = 0; i < size; i++) {
+            if (bit(i) == target) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        // false sorts before true
+        int trues = 0;
+        for (int i = from; i < to; i++) {
+            if (bit(i)) trues++;
+        }
+        for (int i = from; i < to; i++) {
+            setBit(i, i >= to - trues);
+        }
+    }
+
+    @Override
+    String elementType() {
+        return Token.BOOLEAN;
+    }
+}
@@ -0,0 +1,72 @@
+package io.github._3xhaust.runtime.array;
+
+import io.github._3xhaust.token.Token;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Storage for chars.
+ */
+final class CharStorage extends Storage {
+    private char[] elements;
+
+    CharStorage(int capacity) {
+        elements = new char[capacity];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return value instanceof Character;
+    }
+
+    @Override
+    Object get(int index) {
+        return elements[index];
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        if (!(value instanceof Character)) return false;
+        elements[index] = (Character) value;
+        return true;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        if (!(value instanceof Character)) return false;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, grow(size));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = (Character) value;
+        size++;
+        return true;
+    }
+
+    @Override
+    void remove(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    int indexOf(Object value) {
+        if (!(value instanceof Character)) return -1;
+        char target = (Character) value;
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == target) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        Arrays.sort(elements, from, to);
+    }
+
+    @Override
+    String elementType() {
+        return Token.CHAR;
+    }
+}
@@ -0,0 +1,73 @@
+package io.github._3xhaust.runtime.array;
+
+import io.github._3xhaust.token.Token;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Storage for numbers of the double numeric mode.
+ */
+final class DoubleStorage extends Storage {
+    private double[] elements;
+
+    DoubleStorage(int capacity) {
+        elements = new double[capacity];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return value instanceof Double;
+    }
+
+    @Override
+    Object get(int index) {
+        return elements[index];
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        if (!(value instanceof Double)) return false;
+        elements[index] = (Double) value;
+        return true;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        if (!(value instanceof Double)) return false;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, grow(size));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = (Double) value;
+        size++;
+        return true;
+    }
+
+    @Override
+    void remove(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    int indexOf(Object value) {
+        if (!(value instanceof Double)) return -1;
+        // Compare bits, as Double.equals does
+        long target = Double.doubleToLongBits((Double) value);
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(elements[i]) == target) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        Arrays.sort(elements, from, to);
+    }
+
+    @Override
+    String elementType() {
+        return Token.NUMBER;
+    }
+}
@@ -0,0 +1,188 @@
+package io.github._3xhaust.runtime.array;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The array value of the language.
+ * <p>
+ * Elements are kept in a {@link Storage} chosen by their type: arrays of longs, doubles, chars and
+ * booleans are backed by primitive arrays, and anything else by an array of objects. An array starts
+ * with the storage of its elements, or of its first element if it is created empty, and moves to
+ * object storage for good once it is given an element its storage cannot hold. Reading an element of
+ * a primitive storage boxes it, so the savings are in memory and in the built-ins that work on the
+ * primitive elements directly, such as {@code indexOf} and {@code sort}.
+ * <p>
+ * An array of rows of the same length, created as such or built by adding rows to an empty array,
+ * is a matrix: the elements of all rows are kept in one row-major storage, and
+ * {@link #getElement(int, int)} reaches an element with a single multiplication. Jagged arrays,
+ * and matrices that get a row of another length or whose rows change length, keep every row in
+ * a storage of its own.
+ */
+public final class EzyArray extends AbstractList<Object> implements RandomAccess {
+    // Replaced when the array moves to a more general storage, or when a matrix it belongs to changes shape
+    Storage storage;
+
+    /**
+     * Creates an array holding the given elements.
+     *
+     * @param elements The initial elements.
+     */
+    public EzyArray(List<?> elements) {
+        Storage matrix = MatrixStorage.of(this, elements);
+        storage = matrix != null ? matrix : Storage.forElements(elements);
+    }
+
+    @Override
+    public int size() {
+        return storage.size;
+    }
+
+    @Override
+    public Object get(int index) {
+        Objects.checkIndex(index, storage.size);
+        return storage.get(index);
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        Objects.checkIndex(index, storage.size);
+        Object previous = storage.get(index);
+        setElement(index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        Objects.checkIndex(index, storage.size + 1);
+        if (storage.size == 0 && (storage instanceof ObjectStorage || !storage.accepts(element))) {
+            // An empty array takes the storage of its first element, and becomes a matrix if that is an array
+            Storage matrix = MatrixStorage.of(this, Collections.singletonList(element));
+            if (matrix != null) {
+                storage = matrix;
+                modCount++;
+                return;
+            }
+            storage = Storage.forElement(element);
+        }
+        if (!storage.insert(index, element)) {
+            storage = storage.generalize();
+            storage.insert(index, element);
+        }
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<?> elements) {
+        for (Object element : elements.toArray()) {
+            add(storage.size, element);
+        }
+        return !elements.isEmpty();
+    }
+
+    @Override
+    public Object remove(int index) {
+        Objects.checkIndex(index, storage.size);
+        Object previous = storage.get(index);
+        storage.remove(index);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object element) {
+        return storage.indexOf(element);
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return storage.indexOf(element) >= 0;
+    }
+
+    /**
+     * Sorts the array. Arrays of numbers, chars or booleans in primitive storage are sorted by value
+     * without the comparator, which must order such elements naturally.
+     *
+     * @param comparator The comparator for elements in object storage.
+     */
+    @Override
+    public void sort(Comparator<? super Object> comparator) {
+        storage.sort(0, storage.size, comparator);
+        modCount++;
+    }
+
+    /**
+     * Gets an element without checking the index, which must be within the bounds of the array.
+     *
+     * @param index The index of the element.
+     * @return The element.
+     */
+    public Object getElement(int index) {
+        return storage.get(index);
+    }
+
+    /**
+     * Sets an element without checking the index, which must be within the bounds of the array.
+     *
+     * @param index   The index of the element.
+     * @param element The value to store.
+     */
+    public void setElement(int index, Object element) {
+        if (!storage.set(index, element)) {
+            storage = storage.generalize();
+            storage.set(index, element);
+        }
+    }
+
+    /**
+     * Gets the number of columns of the array if it is a matrix.
+     *
+     * @return The length of every row, or -1 if the array is not a matrix.
+     */
+    public int getColumnCount() {
+        return storage instanceof MatrixStorage matrix ? matrix.columns : -1;
+    }
+
+    /**
+     * Gets an element of a matrix. The array must be a matrix and the indices within its bounds.
+     *
+     * @param row    The index of the row.
+     * @param column The index of the column.
+     * @return The element.
+     */
+    public Object getElement(int row, int column) {
+        return ((MatrixStorage) storage).getElement(row, column);
+    }
+
+    /**
+     * Sets an element of a matrix. The array must be a matrix and the indices within its bounds.
+     *
+     * @param row    The index of the row.
+     * @param column The index of the column.
+     * @param value  The value to store.
+     */
+    public void setElement(int row, int column, Object value) {
+        MatrixStorage matrix = (MatrixStorage) storage;
+        matrix.setElement(row * matrix.columns + column, value);
+    }
+
+    /**
+     * Gets the type every element of the array is known to have, without looking at the elements.
+     *
+     * @return The element type, such as {@code number}, or null if the elements may be of any type.
+     */
+    public String getElementType() {
+        return storage.elementType();
+    }
+}
@@ -0,0 +1,161 @@
+package io.github._3xhaust.runtime.array;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Storage for an array of rows of the same length, whose elements are kept in one row-major storage.
+ * The rows remain arrays of their own: their {@link RowStorage} reads and writes the matrix's elements
+ * at the offset of the row. Appending a row of the same length extends the matrix; any other change
+ * of shape, or replacing a row, gives every row a storage of its own again and turns the matrix into
+ * an ordinary array of arrays.
+ */
+final class MatrixStorage extends Storage {
+    private final EzyArray owner;
+    private EzyArray[] rows;
+    final int columns;
+    Storage elements;
+
+    private MatrixStorage(EzyArray owner, EzyArray[] rows) {
+        this.owner = owner;
+        this.rows = rows;
+        this.columns = rows[0].size();
+
+        elements = forElement(rows[0].get(0));
+        for (EzyArray row : rows) {
+            adopt(row);
+        }
+    }
+
+    /**
+     * Creates the storage of a matrix if the elements are distinct, non-empty arrays of the same length
+     * that are neither rows of a matrix nor matrices themselves.
+     *
+     * @param owner    The array that will hold the storage.
+     * @param elements The rows.
+     * @return The storage, or null if the elements do not form a matrix.
+     */
+    static MatrixStorage of(EzyArray owner, List<?> elements) {
+        if (elements.isEmpty() || !(elements.get(0) instanceof EzyArray first) || first.isEmpty()) {
+            return null;
+        }
+        EzyArray[] rows = new EzyArray[elements.size()];
+        Set<EzyArray> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < rows.length; i++) {
+            if (!(elements.get(i) instanceof EzyArray row) || !fits(row, first.size()) || !distinct.add(row)) {
+                return null;
+            }
+            rows[i] = row;
+        }
+        return new MatrixStorage(owner, rows);
+    }
+
+    private static boolean fits(EzyArray row, int columns) {
+        return row.size() == columns && !(row.storage instanceof MatrixStorage) && !(row.storage instanceof RowStorage);
+    }
+
+    /**
+     * Appends the elements of a row and makes the row a view of them.
+     */
+    private void adopt(EzyArray row) {
+        for (int j = 0; j < columns; j++) {
+            elements = append(elements, row.get(j));
+        }
+        row.storage = new RowStorage(this, size);
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, grow(size));
+        }
+        rows[size++] = row;
+    }
+
+    Object getElement(int row, int column) {
+        return elements.get(row * columns + column);
+    }
+
+    void setElement(int index, Object value) {
+        if (!elements.set(index, value)) {
+            elements = elements.generalize();
+            elements.set(index, value);
+        }
+    }
+
+    EzyArray row(int index) {
+        return rows[index];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return false;
+    }
+
+    @Override
+    Object get(int index) {
+        return rows[index];
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        // Replacing a row, even by an array of the same length, ends the matrix
+        return false;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        if (index == size && value instanceof EzyArray row && fits(row, columns)) {
+            adopt(row);
+            return true;
+        }
+        return generalize().insert(index, value);
+    }
+
+    @Override
+    void remove(int index) {
+        generalize().remove(index);
+    }
+
+    @Override
+    void clear() {
+        generalize().clear();
+    }
+
+    @Override
+    int indexOf(Object value) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(value, rows[i])) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        generalize().sort(from, to, comparator);
+    }
+
+    @Override
+    String elementType() {
+        String type = elements.elementType();
+        return type == null ? null : type + " array";
+    }
+
+    /**
+     * Detaches the rows and replaces this storage in its array by an object storage of the rows.
+     */
+    @Override
+    ObjectStorage generalize() {
+        if (owner.storage != this) {
+            return (ObjectStorage) owner.storage;
+        }
+        ObjectStorage result = new ObjectStorage(grow(size));
+        for (int i = 0; i < size; i++) {
+            rows[i].storage = copyOf(elements, i * columns, (i + 1) * columns);
+            result.insert(i, rows[i]);
+        }
+        owner.storage = result;
+        return result;
+    }
+}
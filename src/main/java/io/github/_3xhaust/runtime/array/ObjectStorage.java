@@ -0,0 +1,78 @@
+package io.github._3xhaust.runtime.array;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Storage for elements of any type, such as strings, nested arrays or a mix of types.
+ */
+final class ObjectStorage extends Storage {
+    private Object[] elements;
+
+    ObjectStorage(int capacity) {
+        elements = new Object[capacity];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return true;
+    }
+
+    @Override
+    Object get(int index) {
+        return elements[index];
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        elements[index] = value;
+        return true;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, grow(size));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        return true;
+    }
+
+    @Override
+    void remove(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+    }
+
+    @Override
+    void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    int indexOf(Object value) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(value, elements[i])) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        Arrays.sort(elements, from, to, comparator);
+    }
+
+    @Override
+    String elementType() {
+        return null;
+    }
+
+    @Override
+    ObjectStorage generalize() {
+        return this;
+    }
+}
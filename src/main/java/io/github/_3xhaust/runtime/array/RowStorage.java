@@ -0,0 +1,84 @@
+package io.github._3xhaust.runtime.array;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Storage for a row of a matrix, a view of the row's range of the matrix's elements.
+ */
+final class RowStorage extends Storage {
+    private final MatrixStorage matrix;
+    private final int row;
+    private final int offset;
+
+    RowStorage(MatrixStorage matrix, int row) {
+        this.matrix = matrix;
+        this.row = row;
+        this.offset = row * matrix.columns;
+        this.size = matrix.columns;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return true;
+    }
+
+    @Override
+    Object get(int index) {
+        return matrix.elements.get(offset + index);
+    }
+
+    @Override
+    boolean set(int index, Object value) {
+        matrix.setElement(offset + index, value);
+        return true;
+    }
+
+    @Override
+    boolean insert(int index, Object value) {
+        return detach().insert(index, value);
+    }
+
+    @Override
+    void remove(int index) {
+        detach().remove(index);
+    }
+
+    @Override
+    void clear() {
+        detach().clear();
+    }
+
+    @Override
+    int indexOf(Object value) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(value, get(i))) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    void sort(int from, int to, Comparator<? super Object> comparator) {
+        matrix.elements.sort(offset + from, offset + to, comparator);
+    }
+
+    @Override
+    String elementType() {
+        return matrix.elements.elementType();
+    }
+
+    /**
+     * Ends the matrix, so that the row can change length.
+     *
+     * @return The storage of its own the row got.
+     */
+    private Storage detach() {
+        matrix.generalize();
+        return matrix.row(row).storage;
+    }
+
+    @Override
+    ObjectStorage generalize() {
+        return detach().generalize();
+    }
+}
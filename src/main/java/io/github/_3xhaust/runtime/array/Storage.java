@@ -0,0 +1,132 @@
+package io.github._3xhaust.runtime.array;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The elements of an {@link EzyArray}, held in a growable backing array.
+ * A storage only accepts elements of its own type; the array replaces a storage that
+ * rejects an element by its {@link #generalize() generalization}.
+ */
+abstract class Storage {
+    static final int INITIAL_CAPACITY = 8;
+
+    int size;
+
+    /**
+     * Creates the storage for a list of initial elements: the primitive storage of their type if
+     * they all have the same one, and object storage otherwise.
+     */
+    static Storage forElements(List<?> elements) {
+        Storage storage = elements.isEmpty() ? new ObjectStorage(INITIAL_CAPACITY) : forElement(elements.get(0));
+        for (Object element : elements) {
+            storage = append(storage, element);
+        }
+        return storage;
+    }
+
+    /**
+     * Creates a storage holding a copy of a range of another storage's elements.
+     *
+     * @param from The index of the first element, inclusive.
+     * @param to   The index of the last element, exclusive. Must be greater than from.
+     */
+    static Storage copyOf(Storage source, int from, int to) {
+        Storage storage = forElement(source.get(from));
+        for (int i = from; i < to; i++) {
+            storage = append(storage, source.get(i));
+        }
+        return storage;
+    }
+
+    /**
+     * Appends an element, generalizing the storage if it cannot hold it.
+     *
+     * @return The storage holding the elements.
+     */
+    static Storage append(Storage storage, Object element) {
+        if (!storage.insert(storage.size, element)) {
+            storage = storage.generalize();
+            storage.insert(storage.size, element);
+        }
+        return storage;
+    }
+
+    /**
+     * Creates an empty storage for elements of the given element's type.
+     */
+    static Storage forElement(Object element) {
+        if (element instanceof Long) return new LongStorage(INITIAL_CAPACITY);
+        if (element instanceof Double) return new DoubleStorage(INITIAL_CAPACITY);
+        if (element instanceof Boolean) return new BooleanStorage(INITIAL_CAPACITY);
+        if (element instanceof Character) return new CharStorage(INITIAL_CAPACITY);
+        return new ObjectStorage(INITIAL_CAPACITY);
+    }
+
+    static int grow(int capacity) {
+        return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+    }
+
+    /**
+     * Checks whether the storage can hold a value.
+     */
+    abstract boolean accepts(Object value);
+
+    /**
+     * Gets the element at an index, which must be less than the size.
+     */
+    abstract Object get(int index);
+
+    /**
+     * Replaces the element at an index, which must be less than the size.
+     *
+     * @return False if the storage cannot hold the value, in which case nothing changed.
+     */
+    abstract boolean set(int index, Object value);
+
+    /**
+     * Inserts an element at an index, which may be equal to the size.
+     *
+     * @return False if the storage cannot hold the value, in which case nothing changed.
+     */
+    abstract boolean insert(int index, Object value);
+
+    abstract void remove(int index);
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Finds the first element equal to a value, comparing as {@link Object#equals} would.
+     *
+     * @return The index of the element, or -1 if there is none.
+     */
+    abstract int indexOf(Object value);
+
+    /**
+     * Sorts the elements in a range, by value for primitive storage and with the comparator otherwise.
+     *
+     * @param from The index of the first element, inclusive.
+     * @param to   The index of the last element, exclusive.
+     */
+    abstract void sort(int from, int to, Comparator<? super Object> comparator);
+
+    /**
+     * Gets the language type of every element the storage can hold.
+     *
+     * @return The type, or null for object storage.
+     */
+    abstract String elementType();
+
+    /**
+     * Copies the elements into an object storage.
+     */
+    ObjectStorage generalize() {
+        ObjectStorage result = new ObjectStorage(grow(size));
+        for (int i = 0; i < size; i++) {
+            result.insert(i, get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+package io.github._3xhaust.token;
+
+import java.util.Arrays;
+
+/**
+ * Interns names into dense integer ids, so that tables of variables, functions and built-ins can be
+ * arrays indexed by id instead of maps keyed by string. Each distinct name is kept as a single string.
+ * <p>
+ * Names can be looked up straight from a range of the source code, without creating a string for it.
+ */
+public class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] names = new String[INITIAL_CAPACITY]; // Name of each id
+    private int[] hashes = new int[INITIAL_CAPACITY]; // Hash of the name of each id
+    private int[] table = new int[INITIAL_CAPACITY * 2]; // Open-addressing hash table of id + 1, or 0 if empty
+    private int size;
+
+    /**
+     * Gets the id of a name, adding the name if it is new.
+     *
+     * @param name The name.
+     * @return The id.
+     */
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /**
+     * Gets the id of the name in a range of text, adding the name if it is new.
+     *
+     * @param text  The text.
+     * @param start The offset of the name.
+     * @param end   The offset of the end of the name.
+     * @return The id.
+     */
+    public int intern(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) {
+                id = add(text.subSequence(start, end).toString(), hash);
+                table[i] = id + 1;
+                if (size * 2 > table.length) rehash();
+                return id;
+            }
+            if (hashes[id] == hash && matches(names[id], text, start, end)) return id;
+        }
+    }
+
+    /**
+     * Gets the id of the name in a range of text, without adding it.
+     *
+     * @param text  The text.
+     * @param start The offset of the name.
+     * @param end   The offset of the end of the name.
+     * @return The id, or -1 if the name has not been interned.
+     */
+    public int find(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && matches(names[id], text, start, end)) return id;
+        }
+    }
+
+    /**
+     * Gets the name of an id.
+     *
+     * @param id The id.
+     * @return The name.
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Gets the number of names, which is one more than the largest id.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(String name, int hash) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        return size++;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        // Spread the bits, as the table is indexed by the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+}
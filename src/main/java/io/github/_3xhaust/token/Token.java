@@ -81,6 +81,7 @@ public class Token {
 
     // Definition
     public static final String FUNC = "func";
+    public static final String MEMO = "memo"; // Modifier of functions whose results are cached; a plain identifier anywhere else
 
     // Loop
     public static final String IN = "in"; // Used in for-in loops
@@ -103,6 +104,7 @@ public class Token {
     // End of File
     public static final String EOF = "EOF";
 
+    private final TokenKind kind; // The kind of the token, for dispatching on
     private final String type; // The type of the token (e.g., IDENTIFIER, NUMBER_LITERAL, PLUS)
     private final String value; // The actual value of the token (e.g., "myVariable", "123", "+")
     private final int line; // Line number where the token is found in the source code
@@ -117,6 +119,23 @@ public class Token {
      * @param column The column number of the token.
      */
     public Token(String type, String value, int line, int column) {
+        this(TokenKind.of(type, value), type, value, line, column);
+    }
+
+    /**
+     * Constructs a new Token object of a kind.
+     *
+     * @param kind   The kind of the token.
+     * @param value  The value of the token; for a {@link TokenKind#TYPE}, the type as written.
+     * @param line   The line number of the token.
+     * @param column The column number of the token.
+     */
+    public Token(TokenKind kind, String value, int line, int column) {
+        this(kind, kind == TokenKind.TYPE ? value.toLowerCase() : kind.getType(), value, line, column);
+    }
+
+    private Token(TokenKind kind, String type, String value, int line, int column) {
+        this.kind = kind;
         this.type = type;
         this.value = value != null ? value : "";
         this.line = line;
@@ -124,6 +143,10 @@ public class Token {
     }
 
     // Getters for the token's properties
+    public TokenKind getKind() {
+        return kind;
+    }
+
     public String getToken() {
         return type;
     }
@@ -0,0 +1,155 @@
+package io.github._3xhaust.token;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The kinds of tokens, so that the parser can dispatch on a constant instead of comparing type strings.
+ * Every kind but {@link #TYPE} has a single type string, the matching constant of {@link Token}.
+ * Type keywords share their type strings with literals, so they are told apart by the lexer instead.
+ */
+public enum TokenKind {
+    // Arithmetic Operators
+    PLUS(Token.PLUS),
+    MINUS(Token.MINUS),
+    ASTERISK(Token.ASTERISK),
+    SLASH(Token.SLASH),
+    PERCENT(Token.PERCENT),
+
+    // Relational Operators
+    EQUAL_EQUAL(Token.EQUAL_EQUAL),
+    NOT_EQUAL(Token.NOT_EQUAL),
+    LESS_THAN(Token.LESS_THAN),
+    GREATER_THAN(Token.GREATER_THAN),
+    LESS_THAN_OR_EQUAL(Token.LESS_THAN_OR_EQUAL),
+    GREATER_THAN_OR_EQUAL(Token.GREATER_THAN_OR_EQUAL),
+
+    // Logical Operators
+    AND(Token.AND),
+    OR(Token.OR),
+    BANG(Token.BANG),
+
+    // Assignment Operators
+    EQUAL(Token.EQUAL),
+    PLUS_EQUAL(Token.PLUS_EQUAL),
+    MINUS_EQUAL(Token.MINUS_EQUAL),
+    ASTERISK_EQUAL(Token.ASTERISK_EQUAL),
+    SLASH_EQUAL(Token.SLASH_EQUAL),
+    PERCENT_EQUAL(Token.PERCENT_EQUAL),
+
+    // Increment/Decrement Operators
+    PLUS_PLUS(Token.PLUS_PLUS),
+    MINUS_MINUS(Token.MINUS_MINUS),
+
+    // Bitwise Operators
+    BITWISE_AND(Token.BITWISE_AND),
+    BITWISE_OR(Token.BITWISE_OR),
+    BITWISE_XOR(Token.BITWISE_XOR),
+    BITWISE_NOT(Token.BITWISE_NOT),
+    LEFT_SHIFT(Token.LEFT_SHIFT),
+    RIGHT_SHIFT(Token.RIGHT_SHIFT),
+
+    // Data Types
+    TYPE(null), // A type keyword such as 'number' or 'string[]'; the type string is the type itself
+    NULL(Token.NULL), // Both a type and a literal
+
+    // Literals
+    IDENTIFIER(Token.IDENTIFIER),
+    NUMBER_LITERAL(Token.NUMBER_LITERAL),
+    CHAR_LITERAL(Token.CHAR_LITERAL),
+    STRING_LITERAL(Token.STRING_LITERAL),
+    BOOLEAN_LITERAL(Token.BOOLEAN_LITERAL),
+    VARIABLE_LITERAL(Token.VARIABLE_LITERAL),
+
+    // Functions
+    PRINT(Token.PRINT),
+    PRINTLN(Token.PRINTLN),
+
+    // Control Flow
+    IF(Token.IF),
+    ELSE(Token.ELSE),
+    ELSE_IF(Token.ELSE_IF),
+    WHILE(Token.WHILE),
+    FOR(Token.FOR),
+    BREAK(Token.BREAK),
+    CONTINUE(Token.CONTINUE),
+    RETURN(Token.RETURN),
+    IS(Token.IS),
+    AS(Token.AS),
+
+    // Definition
+    FUNC(Token.FUNC),
+
+    // Loop
+    IN(Token.IN),
+
+    // Symbols
+    LEFT_PAREN(Token.LEFT_PAREN),
+    RIGHT_PAREN(Token.RIGHT_PAREN),
+    LEFT_BRACE(Token.LEFT_BRACE),
+    RIGHT_BRACE(Token.RIGHT_BRACE),
+    LEFT_BRACKET(Token.LEFT_BRACKET),
+    RIGHT_BRACKET(Token.RIGHT_BRACKET),
+    DOLLAR(Token.DOLLAR),
+    ARROW(Token.ARROW),
+    COMMA(Token.COMMA),
+    DOT(Token.DOT),
+    DOT_DOT(Token.DOT_DOT),
+    COLON(Token.COLON),
+    SEMICOLON(Token.SEMICOLON),
+
+    // End of File
+    EOF(Token.EOF);
+
+    private static final TokenKind[] VALUES = values();
+    private static final Map<String, TokenKind> BY_TYPE = new HashMap<>();
+
+    static {
+        for (TokenKind kind : VALUES) {
+            if (kind.type != null) BY_TYPE.put(kind.type, kind);
+        }
+    }
+
+    private final String type;
+
+    TokenKind(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Gets the type string of tokens of this kind.
+     *
+     * @return The type string, or null for {@link #TYPE}, whose tokens carry their own.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets a kind by its ordinal, as stored by a {@link TokenStream}.
+     */
+    static TokenKind of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Works out the kind of a token from its type string and value, for tokens not made by the lexer.
+     * A type string shared by a type keyword and a literal is a type if the value spells the type.
+     *
+     * @param type  The type string of the token.
+     * @param value The value of the token.
+     * @return The kind.
+     */
+    public static TokenKind of(String type, String value) {
+        if (type.equals(Token.VOID) || type.equals(Token.ARRAY) || type.endsWith(" array")) {
+            return TYPE;
+        }
+        TokenKind kind = BY_TYPE.get(type);
+        if (kind == null) return IDENTIFIER;
+        return switch (kind) {
+            case NUMBER_LITERAL, CHAR_LITERAL, STRING_LITERAL, BOOLEAN_LITERAL ->
+                    value != null && value.equalsIgnoreCase(type) ? TYPE : kind;
+            default -> kind;
+        };
+    }
+}
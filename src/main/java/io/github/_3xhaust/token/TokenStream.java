@@ -0,0 +1,308 @@
+package io.github._3xhaust.token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A compact list of tokens, kept in parallel primitive arrays instead of one {@link Token} object per token.
+ * The text of a token is read from the source when asked for, except for the few tokens whose text
+ * is not a range of the source, such as string literals with escapes, which keep their own.
+ * <p>
+ * A stream can be filled by a lexer as the tokens are asked for, and can {@link #release(int) release}
+ * the tokens before a position once they are no longer needed, so that only a window of the tokens of a
+ * large input is held at a time. Tokens keep their indices from the start of the input.
+ */
+public class TokenStream {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final CharSequence source; // The source code the tokens were read from, or null
+    private BooleanSupplier lexer; // Reads more tokens into the stream, false at the end; null once done
+    private byte[] kinds; // Ordinal of the TokenKind of each token
+    private int[] starts; // Offset of each token in the source, or -1 if unknown
+    private int[] lengths; // Length of the text of each token
+    private int[] lines;
+    private int[] columns;
+    private int[] matching; // Index of the brace each curly brace pairs with, or -1
+    private String[] texts; // Text of the tokens that are not a range of the source, created on first use
+    private int base; // Index of the first token held
+    private int count; // Number of tokens held
+
+    // Indices of the '{' not yet closed by a '}'
+    private int[] open = new int[16];
+    private int depth;
+
+    /**
+     * Creates an empty stream of tokens read from a source.
+     *
+     * @param source The source code.
+     */
+    public TokenStream(CharSequence source) {
+        this(source, null);
+    }
+
+    /**
+     * Creates an empty stream of tokens that a lexer adds as they are asked for.
+     *
+     * @param source The source code.
+     * @param lexer  Reads at least one more token into the stream, and returns false once it has added
+     *               the last one.
+     */
+    public TokenStream(CharSequence source, BooleanSupplier lexer) {
+        this.source = source;
+        this.lexer = lexer;
+        kinds = new byte[INITIAL_CAPACITY];
+        starts = new int[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+        lines = new int[INITIAL_CAPACITY];
+        columns = new int[INITIAL_CAPACITY];
+        matching = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a stream holding a list of tokens, whose texts are kept as they are.
+     *
+     * @param tokens The tokens.
+     * @return The stream.
+     */
+    public static TokenStream of(List<Token> tokens) {
+        TokenStream stream = new TokenStream(null);
+        for (Token token : tokens) {
+            stream.add(token.getKind(), -1, token.getValue(), token.getLine(), token.getColumn());
+        }
+        return stream;
+    }
+
+    /**
+     * Appends a token whose text is a range of the source.
+     *
+     * @param kind   The kind of the token.
+     * @param start  The offset of the text in the source.
+     * @param length The length of the text.
+     * @param line   The line number of the token.
+     * @param column The column number of the token.
+     */
+    public void add(TokenKind kind, int start, int length, int line, int column) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            matching = Arrays.copyOf(matching, capacity);
+            if (texts != null) texts = Arrays.copyOf(texts, capacity);
+        }
+        kinds[count] = (byte) kind.ordinal();
+        starts[count] = start;
+        lengths[count] = length;
+        lines[count] = line;
+        columns[count] = column;
+        matching[count] = -1;
+        if (texts != null) texts[count] = null;
+
+        int index = base + count;
+        if (kind == TokenKind.LEFT_BRACE) {
+            if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+            open[depth++] = index;
+        } else if (kind == TokenKind.RIGHT_BRACE && depth > 0) {
+            int left = open[--depth];
+            matching[count] = left;
+            if (left >= base) matching[left - base] = index;
+        }
+        count++;
+    }
+
+    /**
+     * Appends a token whose text is not a range of the source.
+     *
+     * @param kind   The kind of the token.
+     * @param start  The offset of the token in the source, or -1 if unknown.
+     * @param text   The text of the token.
+     * @param line   The line number of the token.
+     * @param column The column number of the token.
+     */
+    public void add(TokenKind kind, int start, String text, int line, int column) {
+        add(kind, start, text.length(), line, column);
+        if (texts == null) texts = new String[kinds.length];
+        texts[count - 1] = text;
+    }
+
+    /**
+     * Appends the tokens held by another stream of the same source.
+     *
+     * @param other      The stream.
+     * @param lineOffset The number to add to the line numbers of its tokens.
+     */
+    public void addAll(TokenStream other, int lineOffset) {
+        for (int i = 0; i < other.count; i++) {
+            TokenKind kind = TokenKind.of(other.kinds[i]);
+            if (other.texts != null && other.texts[i] != null) {
+                add(kind, other.starts[i], other.texts[i], other.lines[i] + lineOffset, other.columns[i]);
+            } else {
+                add(kind, other.starts[i], other.lengths[i], other.lines[i] + lineOffset, other.columns[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tokens read so far, including released ones.
+     */
+    public int size() {
+        return base + count;
+    }
+
+    /**
+     * Makes sure the token at an index has been read, if the input has that many tokens.
+     *
+     * @return True if the token exists.
+     */
+    private boolean fill(int index) {
+        while (index >= base + count && lexer != null) {
+            if (!lexer.getAsBoolean()) lexer = null;
+        }
+        return index < base + count;
+    }
+
+    /**
+     * Finds where a token is held. Past the end of the input, that is the last token, the end of file.
+     */
+    private int slot(int index) {
+        if (!fill(index)) index = base + count - 1;
+        return index - base;
+    }
+
+    public TokenKind kind(int index) {
+        int slot = slot(index); // Before reading the array, which filling it may replace
+        return TokenKind.of(kinds[slot]);
+    }
+
+    /**
+     * Gets the text of a token, which is its value as {@link Token#getValue()} gives it.
+     */
+    public String text(int index) {
+        int slot = slot(index);
+        if (texts != null && texts[slot] != null) return texts[slot];
+        return source.subSequence(starts[slot], starts[slot] + lengths[slot]).toString();
+    }
+
+    /**
+     * Gets the offset of a token in the source.
+     *
+     * @return The offset, or -1 if unknown.
+     */
+    public int start(int index) {
+        int slot = slot(index);
+        return starts[slot];
+    }
+
+    /**
+     * Gets the offset a lexer can start at to read a token again: the start of its text, or the opening
+     * quote of a string or char literal.
+     *
+     * @return The offset, or -1 for a token read in the middle of a literal, such as a variable in a string
+     *         or the text after it, or if the offset is unknown.
+     */
+    public int lexerOffset(int index) {
+        int slot = slot(index);
+        int start = starts[slot];
+        TokenKind kind = TokenKind.of(kinds[slot]);
+        if (kind == TokenKind.STRING_LITERAL || kind == TokenKind.CHAR_LITERAL) {
+            char quote = kind == TokenKind.STRING_LITERAL ? '\"' : '\'';
+            return start > 0 && source.charAt(start - 1) == quote ? start - 1 : -1;
+        }
+        return kind == TokenKind.VARIABLE_LITERAL ? -1 : start;
+    }
+
+    /**
+     * Interns the text of a token, such as an identifier, without creating a string for it if it is known.
+     *
+     * @param index   The index of the token.
+     * @param symbols The symbol table.
+     * @return The id of the text.
+     */
+    public int intern(int index, SymbolTable symbols) {
+        int slot = slot(index);
+        if (texts != null && texts[slot] != null) return symbols.intern(texts[slot]);
+        return symbols.intern(source, starts[slot], starts[slot] + lengths[slot]);
+    }
+
+    public int line(int index) {
+        int slot = slot(index);
+        return lines[slot];
+    }
+
+    public int column(int index) {
+        int slot = slot(index);
+        return columns[slot];
+    }
+
+    /**
+     * Creates the token object of a token, for the parser to keep in the syntax tree.
+     */
+    public Token token(int index) {
+        int slot = slot(index);
+        return new Token(TokenKind.of(kinds[slot]), text(base + slot), lines[slot], columns[slot]);
+    }
+
+    /**
+     * Finds the brace a curly brace pairs with, reading ahead to the closing brace if needed.
+     *
+     * @param index The index of the brace.
+     * @return The index of the brace it pairs with, or -1 if it is unbalanced or not a brace.
+     */
+    public int matchingBrace(int index) {
+        int slot = slot(index);
+        if (kinds[slot] == TokenKind.LEFT_BRACE.ordinal()) {
+            while (matching[slot] < 0 && fill(base + count)) {
+                // Read on until the brace is closed or the input ends
+            }
+        }
+        return matching[slot];
+    }
+
+    /**
+     * Drops the tokens before an index, which must not be asked for again. The tokens are only dropped
+     * once there are at least as many of them as there are tokens to keep, so that moving the kept
+     * tokens costs no more than reading the dropped ones did.
+     *
+     * @param index The index of the first token to keep.
+     */
+    public void release(int index) {
+        int drop = Math.min(index - base, count);
+        if (drop <= 0 || drop < count - drop) return;
+        count -= drop;
+        System.arraycopy(kinds, drop, kinds, 0, count);
+        System.arraycopy(starts, drop, starts, 0, count);
+        System.arraycopy(lengths, drop, lengths, 0, count);
+        System.arraycopy(lines, drop, lines, 0, count);
+        System.arraycopy(columns, drop, columns, 0, count);
+        System.arraycopy(matching, drop, matching, 0, count);
+        if (texts != null) System.arraycopy(texts, drop, texts, 0, count);
+        base += drop;
+    }
+
+    /**
+     * Reads all the remaining tokens and creates their token objects.
+     */
+    public List<Token> toList() {
+        fill(Integer.MAX_VALUE);
+        List<Token> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(token(base + i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Reads all the remaining tokens and pairs up their curly braces.
+     *
+     * @return A table with an entry per token held: for a '{' or '}', the index of the brace it pairs with,
+     *         or -1 if it is unbalanced; -1 for every other token.
+     */
+    public int[] matchBraces() {
+        fill(Integer.MAX_VALUE);
+        return Arrays.copyOf(matching, count);
+    }
+}
@@ -0,0 +1,616 @@
+package io.github._3xhaust.vm;
+
+import io.github._3xhaust.compiler.CodeObject;
+import io.github._3xhaust.compiler.CompiledProgram;
+import io.github._3xhaust.compiler.OpCode;
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.Builtins;
+import io.github._3xhaust.runtime.LongRange;
+import io.github._3xhaust.runtime.MemoCache;
+import io.github._3xhaust.runtime.MethodCache;
+import io.github._3xhaust.runtime.Numbers;
+import io.github._3xhaust.runtime.NumericMode;
+import io.github._3xhaust.runtime.Operators;
+import io.github._3xhaust.runtime.SourceFile;
+import io.github._3xhaust.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stack-based virtual machine that executes the bytecode produced by the compiler.
+ * Calls push a frame onto an explicit frame stack instead of recursing on the Java stack,
+ * and the local variables of each frame live in the shared value stack.
+ */
+public class VirtualMachine {
+    // Marks a global variable that has not been declared yet
+    private static final Object UNDEFINED = new Object();
+
+    private final CompiledProgram program;
+    private final SourceFile source;
+    private final NumericMode mode;
+    private final Operators operators;
+    private final Builtins builtins;
+
+    private final Object[] constants;
+    private final Object[] globals;
+    private final MethodCache[] caches; // Inline cache of each built-in call site
+    private final MemoCache[] memoCaches; // Result cache of each memoized function, by function index
+
+    private Object[] stack = new Object[256];
+    private int sp = 0;
+    private Frame[] frames = new Frame[64];
+    private int frameCount = 0;
+
+    /**
+     * An active function call.
+     */
+    private static final class Frame {
+        CodeObject function;
+        int ip; // Offset of the next instruction
+        int base; // Index of the first local slot in the value stack
+        Token callSite; // Token of the call, used to report return errors; null for the top-level program
+        MemoCache memo; // Cache to store the result in, for a call of a memoized function that missed it
+        Object memoKey;
+    }
+
+    /**
+     * Constructor for the VirtualMachine class.
+     *
+     * @param program  The compiled program to execute.
+     * @param fileName The name of the file being executed.
+     * @param input    The input code as a single string, used for error reporting.
+     */
+    public VirtualMachine(CompiledProgram program, String fileName, CharSequence input) {
+        this.program = program;
+        this.source = new SourceFile(fileName, input);
+        this.mode = program.numericMode;
+        this.operators = new Operators(source, mode);
+        this.builtins = new Builtins(source, mode, program.symbols);
+        this.constants = program.constants;
+        this.globals = new Object[program.globalNames.length];
+        Arrays.fill(globals, UNDEFINED);
+        this.caches = new MethodCache[program.callSites.length];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = builtins.cache(program.callSites[i]);
+        }
+        this.memoCaches = new MemoCache[program.functions.length];
+        for (int i = 0; i < memoCaches.length; i++) {
+            if (program.functions[i].memoized) {
+                memoCaches[i] = new MemoCache(program.functions[i].name, MemoCache.DEFAULT_CAPACITY);
+            }
+        }
+    }
+
+    /**
+     * Executes the program.
+     *
+     * @throws ParseException If a runtime error occurs.
+     */
+    public void run() throws ParseException {
+        pushFrame(program.main, 0, null);
+        execute(0);
+    }
+
+    /**
+     * Calls a compiled function from outside the virtual machine and runs it to completion.
+     *
+     * @param functionIndex The index of the function in the compiled program.
+     * @param arguments     The arguments to pass.
+     * @param at            The token of the call, used for error reporting.
+     * @return The return value of the function, or null if it doesn't return a value.
+     * @throws ParseException If a runtime error occurs.
+     */
+    public Object call(int functionIndex, Object[] arguments, Token at) throws ParseException {
+        CodeObject function = program.functions[functionIndex];
+        if (arguments.length != function.parameterCount) {
+            throw source.error("Function " + function.name + " expects " + function.parameterCount +
+                    " arguments, but got " + arguments.length, at);
+        }
+        int depth = frameCount;
+        for (Object argument : arguments) {
+            push(argument);
+        }
+        if (function.memoized) {
+            if (callMemoized(functionIndex, at)) return pop();
+        } else {
+            pushFrame(function, sp - arguments.length, at);
+        }
+        return execute(depth);
+    }
+
+    /**
+     * Gets the result caches of the memoized functions.
+     */
+    public List<MemoCache> getMemoCaches() {
+        List<MemoCache> result = new ArrayList<>();
+        for (MemoCache cache : memoCaches) {
+            if (cache != null) result.add(cache);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the value of a global variable.
+     *
+     * @param index The index of the global variable.
+     * @param at    The token used for error reporting.
+     * @return The value of the variable.
+     * @throws ParseException If the variable has not been declared yet.
+     */
+    public Object getGlobal(int index, Token at) throws ParseException {
+        Object value = globals[index];
+        if (value == UNDEFINED) {
+            throw source.error("Undefined variable: " + program.globalNames[index], at);
+        }
+        return value;
+    }
+
+    /**
+     * Assigns a new value to a declared global variable.
+     *
+     * @throws ParseException If the variable has not been declared yet.
+     */
+    public void setGlobal(int index, Object value, Token at) throws ParseException {
+        if (globals[index] == UNDEFINED) {
+            throw source.error("Undefined variable: " + program.globalNames[index], at);
+        }
+        globals[index] = value;
+    }
+
+    /**
+     * Declares a global variable.
+     *
+     * @throws ParseException If the variable has already been declared.
+     */
+    public void defineGlobal(int index, Object value, Token at) throws ParseException {
+        if (globals[index] != UNDEFINED) {
+            throw source.error("Variable '" + program.globalNames[index] + "' already declared in this scope", at);
+        }
+        globals[index] = value;
+    }
+
+    private void pushFrame(CodeObject function, int base, Token callSite) {
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        Frame frame = frames[frameCount];
+        if (frame == null) {
+            frame = frames[frameCount] = new Frame();
+        }
+        frameCount++;
+
+        frame.function = function;
+        frame.ip = 0;
+        frame.base = base;
+        frame.callSite = callSite;
+        frame.memo = null;
+        frame.memoKey = null;
+
+        // Reserve the local slots that are not filled by arguments
+        int top = base + function.localCount;
+        ensureCapacity(top);
+        Arrays.fill(stack, base + function.parameterCount, top, null);
+        sp = top;
+    }
+
+    /**
+     * Looks up a call of a memoized function, whose arguments are on top of the stack, in its cache.
+     * On a hit, replaces the arguments with the result. On a miss, pushes the frame of the call
+     * and has it store its result when it returns.
+     *
+     * @return True on a hit.
+     */
+    private boolean callMemoized(int functionIndex, Token at) {
+        CodeObject function = program.functions[functionIndex];
+        MemoCache memo = memoCaches[functionIndex];
+        Object key = MemoCache.key(stack, sp - function.parameterCount, function.parameterCount);
+        Object cached = memo.get(key);
+        if (cached != null) {
+            drop(function.parameterCount);
+            push(cached);
+            return true;
+        }
+        pushFrame(function, sp - function.parameterCount, at);
+        Frame frame = frames[frameCount - 1];
+        frame.memo = memo;
+        frame.memoKey = key;
+        return false;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size >= stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(size + 1, stack.length * 2));
+        }
+    }
+
+    private void push(Object value) {
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, sp * 2);
+        }
+        stack[sp++] = value;
+    }
+
+    private Object pop() {
+        Object value = stack[--sp];
+        stack[sp] = null;
+        return value;
+    }
+
+    private void drop(int count) {
+        Arrays.fill(stack, sp - count, sp, null);
+        sp -= count;
+    }
+
+    /**
+     * Checks if the counter of a range that is not over integers has stepped past the end.
+     */
+    private boolean rangeDone(Object counter, Object end, Object step) {
+        int comparison = mode.compare(counter, end);
+        return mode.signum(step) > 0 ? comparison > 0 : comparison < 0;
+    }
+
+    private List<Object> popArguments(int count) {
+        List<Object> arguments = new ArrayList<>(count);
+        for (int i = sp - count; i < sp; i++) {
+            arguments.add(stack[i]);
+            stack[i] = null;
+        }
+        sp -= count;
+        return arguments;
+    }
+
+    /**
+     * The dispatch loop. Runs until the top-level program halts, or until a return
+     * brings the frame stack back down to the given depth.
+     *
+     * @param exitDepth The number of frames below the frame being executed.
+     * @return The value returned by the frame that returned to the exit depth, or null on halt.
+     */
+    private Object execute(int exitDepth) throws ParseException {
+        Frame frame = frames[frameCount - 1];
+        int[] code = frame.function.code;
+        int base = frame.base;
+        int ip = frame.ip;
+
+        while (true) {
+            int start = ip;
+            int opCode = code[ip++];
+            Token at = frame.function.positions[start];
+
+            switch (opCode) {
+                case OpCode.CONSTANT -> push(constants[code[ip++]]);
+                case OpCode.POP -> pop();
+
+                case OpCode.GET_LOCAL -> push(stack[base + code[ip++]]);
+                case OpCode.SET_LOCAL -> stack[base + code[ip++]] = pop();
+                case OpCode.GET_GLOBAL -> push(getGlobal(code[ip++], at));
+                case OpCode.SET_GLOBAL -> setGlobal(code[ip++], pop(), at);
+                case OpCode.DEFINE_GLOBAL -> defineGlobal(code[ip++], pop(), at);
+
+                case OpCode.ADD -> {
+                    Object right = pop();
+                    push(operators.add(pop(), right, at));
+                }
+                case OpCode.SUBTRACT -> {
+                    Object right = pop();
+                    push(operators.subtract(pop(), right, at));
+                }
+                case OpCode.MULTIPLY -> {
+                    Object right = pop();
+                    push(operators.multiply(pop(), right, at));
+                }
+                case OpCode.DIVIDE -> {
+                    Object right = pop();
+                    push(operators.divide(pop(), right, at));
+                }
+                case OpCode.REMAINDER -> {
+                    Object right = pop();
+                    push(operators.remainder(pop(), right, at));
+                }
+                case OpCode.EQUAL -> {
+                    Object right = pop();
+                    push(operators.equal(pop(), right, at));
+                }
+                case OpCode.NOT_EQUAL -> {
+                    Object right = pop();
+                    push(operators.notEqual(pop(), right, at));
+                }
+                case OpCode.LESS -> {
+                    Object right = pop();
+                    push(operators.lessThan(pop(), right, at));
+                }
+                case OpCode.GREATER -> {
+                    Object right = pop();
+                    push(operators.greaterThan(pop(), right, at));
+                }
+                case OpCode.LESS_EQUAL -> {
+                    Object right = pop();
+                    push(operators.lessThanOrEqual(pop(), right, at));
+                }
+                case OpCode.GREATER_EQUAL -> {
+                    Object right = pop();
+                    push(operators.greaterThanOrEqual(pop(), right, at));
+                }
+                case OpCode.AND -> {
+                    Object right = pop();
+                    push(operators.and(pop(), right, at));
+                }
+                case OpCode.OR -> {
+                    Object right = pop();
+                    push(operators.or(pop(), right, at));
+                }
+
+                case OpCode.BIT_AND -> {
+                    Object right = pop();
+                    push(operators.bitwiseAnd(pop(), right, at));
+                }
+                case OpCode.BIT_OR -> {
+                    Object right = pop();
+                    push(operators.bitwiseOr(pop(), right, at));
+                }
+                case OpCode.BIT_XOR -> {
+                    Object right = pop();
+                    push(operators.bitwiseXor(pop(), right, at));
+                }
+                case OpCode.SHIFT_LEFT -> {
+                    Object right = pop();
+                    push(operators.shiftLeft(pop(), right, at));
+                }
+                case OpCode.SHIFT_RIGHT -> {
+                    Object right = pop();
+                    push(operators.shiftRight(pop(), right, at));
+                }
+                case OpCode.NOT -> push(operators.not(pop(), at));
+                case OpCode.BIT_NOT -> push(operators.bitwiseNot(pop(), at));
+
+                case OpCode.IS -> push(operators.evaluateIs(pop(), (String) constants[code[ip++]], at));
+                case OpCode.AS -> push(operators.evaluateAs(pop(), (String) constants[code[ip++]], at));
+                case OpCode.CHECK_TYPE -> operators.checkType(stack[sp - 1], (String) constants[code[ip++]], at);
+
+                case OpCode.INTERPOLATE -> {
+                    int count = code[ip++];
+                    StringBuilder result = new StringBuilder();
+                    for (int i = sp - count; i < sp; i++) {
+                        result.append(operators.stringify(stack[i]));
+                    }
+                    drop(count);
+                    push(result.toString());
+                }
+                case OpCode.ARRAY -> push(operators.newArray(popArguments(code[ip++])));
+                case OpCode.INDEX -> {
+                    int count = code[ip++];
+                    Object value = stack[sp - count - 1];
+                    if (count == 2) {
+                        value = operators.getIndex(value, stack[sp - 2], stack[sp - 1], at);
+                    } else {
+                        for (int i = sp - count; i < sp; i++) {
+                            value = operators.getIndex(value, stack[i], at);
+                        }
+                    }
+                    drop(count + 1);
+                    push(value);
+                }
+                case OpCode.INDEX_KEEP -> {
+                    int count = code[ip++];
+                    Object value = stack[sp - count - 1];
+                    if (count == 2) {
+                        value = operators.getIndex(value, stack[sp - 2], stack[sp - 1], at);
+                    } else {
+                        for (int i = sp - count; i < sp; i++) {
+                            value = operators.getIndex(value, stack[i], at);
+                        }
+                    }
+                    push(value);
+                }
+                case OpCode.SET_INDEX -> {
+                    int count = code[ip++];
+                    Object value = pop();
+                    Object array = stack[sp - count - 1];
+                    if (count == 2) {
+                        operators.setIndex(array, stack[sp - 2], stack[sp - 1], value, at);
+                    } else {
+                        for (int i = sp - count; i < sp - 1; i++) {
+                            array = operators.getIndex(array, stack[i], at);
+                        }
+                        operators.setIndex(array, stack[sp - 1], value, at);
+                    }
+                    drop(count + 1);
+                }
+                case OpCode.INDEX_IN_BOUNDS -> {
+                    Object index = pop();
+                    push(operators.getIndexInBounds(pop(), index, at));
+                }
+                case OpCode.SET_INDEX_IN_BOUNDS -> {
+                    Object value = pop();
+                    Object index = pop();
+                    operators.setIndexInBounds(pop(), index, value, at);
+                }
+
+                case OpCode.JUMP -> ip = code[ip];
+                case OpCode.JUMP_IF_FALSE_KEEP, OpCode.JUMP_IF_TRUE_KEEP -> {
+                    if (stack[sp - 1] instanceof Boolean value && value == (opCode == OpCode.JUMP_IF_TRUE_KEEP)) {
+                        ip = code[ip];
+                    } else {
+                        ip++;
+                    }
+                }
+                case OpCode.JUMP_IF_FALSE -> {
+                    if (operators.condition(pop(), at)) {
+                        ip++;
+                    } else {
+                        ip = code[ip];
+                    }
+                }
+                case OpCode.FOR_EACH_PREP -> {
+                    int slot = base + code[ip++];
+                    String message = (String) constants[code[ip++]];
+                    Object array = pop();
+                    if (!(array instanceof List<?>)) {
+                        throw source.error(message, at);
+                    }
+                    stack[slot] = array;
+                    stack[slot + 1] = 0;
+                }
+                case OpCode.FOR_EACH_NEXT -> {
+                    int slot = base + code[ip++];
+                    int variable = base + code[ip++];
+                    List<?> array = (List<?>) stack[slot];
+                    int index = (Integer) stack[slot + 1];
+                    if (index >= array.size()) {
+                        ip = code[ip];
+                    } else {
+                        ip++;
+                        stack[variable] = array.get(index);
+                        stack[slot + 1] = index + 1;
+                    }
+                }
+                case OpCode.RANGE_PREP -> {
+                    int slot = base + code[ip++];
+                    Object step = pop();
+                    Object end = pop();
+                    Object begin = pop();
+                    if (mode.signum(step) == 0) {
+                        throw source.error("Step cannot be zero", at);
+                    }
+                    // A range over integers keeps its state in a LongRange in the first slot
+                    LongRange range = LongRange.of(begin, end, step);
+                    stack[slot] = range != null ? range : begin;
+                    stack[slot + 1] = end;
+                    stack[slot + 2] = step;
+                }
+                case OpCode.RANGE_CHECK -> {
+                    int slot = base + code[ip++];
+                    String type = (String) constants[code[ip++]];
+                    // Every value of a range is a number, so checking the first one covers the loop
+                    if (stack[slot] instanceof LongRange range) {
+                        if (range.hasNext()) {
+                            operators.checkType(mode.valueOf(range.peek()), type, at);
+                        }
+                    } else if (!rangeDone(stack[slot], stack[slot + 1], stack[slot + 2])) {
+                        operators.checkType(stack[slot], type, at);
+                    }
+                }
+                case OpCode.RANGE_BOUND -> {
+                    Object bound = stack[sp - 1];
+                    if (!Numbers.isNumber(bound)) {
+                        throw source.error("Range bounds must be numbers, found " + operators.typeName(bound), at);
+                    }
+                }
+                case OpCode.RANGE_NEXT -> {
+                    int slot = base + code[ip++];
+                    int variable = base + code[ip++];
+                    Object counter = stack[slot];
+                    if (counter instanceof LongRange range) {
+                        if (!range.hasNext()) {
+                            ip = code[ip];
+                        } else {
+                            ip++;
+                            stack[variable] = mode.valueOf(range.next());
+                        }
+                    } else if (rangeDone(counter, stack[slot + 1], stack[slot + 2])) {
+                        ip = code[ip];
+                    } else {
+                        ip++;
+                        stack[variable] = counter;
+                        stack[slot] = mode.add(counter, stack[slot + 2]);
+                    }
+                }
+
+                case OpCode.CALL -> {
+                    int functionIndex = code[ip++];
+                    CodeObject function = program.functions[functionIndex];
+                    int argumentCount = code[ip++];
+                    if (argumentCount != function.parameterCount) {
+                        throw source.error("Function " + function.name + " expects " + function.parameterCount +
+                                " arguments, but got " + argumentCount, at);
+                    }
+                    frame.ip = ip;
+                    if (function.memoized) {
+                        // A hit leaves the result on the stack and stays in this frame
+                        if (callMemoized(functionIndex, at)) continue;
+                    } else {
+                        pushFrame(function, sp - argumentCount, at);
+                    }
+                    frame = frames[frameCount - 1];
+                    code = function.code;
+                    base = frame.base;
+                    ip = 0;
+                }
+                case OpCode.CALL_BUILTIN -> {
+                    int site = code[ip++];
+                    List<Object> arguments = popArguments(code[ip++]);
+                    int symbol = program.callSites[site];
+                    if (!builtins.contains(symbol)) {
+                        throw source.error("Undefined function: " + program.symbols.name(symbol), at);
+                    }
+                    push(builtins.callFunction(caches[site], arguments, at));
+                }
+                case OpCode.INVOKE -> {
+                    MethodCache cache = caches[code[ip++]];
+                    List<Object> arguments = popArguments(code[ip++]);
+                    Object receiver = pop();
+                    push(builtins.callMethod(receiver, cache, arguments, at));
+                }
+                case OpCode.TAIL_CALL -> {
+                    // The resolver only marks calls whose arity matches, to functions that are not memoized
+                    CodeObject function = program.functions[code[ip++]];
+                    int argumentCount = code[ip++];
+                    // Replace the caller's locals with the arguments and run the callee in its frame
+                    System.arraycopy(stack, sp - argumentCount, stack, base, argumentCount);
+                    Arrays.fill(stack, base + argumentCount, sp, null);
+                    int top = base + function.localCount;
+                    ensureCapacity(top);
+                    sp = top;
+                    frame.function = function;
+                    frame.callSite = at;
+                    code = function.code;
+                    ip = 0;
+                }
+                case OpCode.RETURN, OpCode.RETURN_VOID -> {
+                    Object result = opCode == OpCode.RETURN ? pop() : null;
+                    CodeObject function = frame.function;
+                    if (function.returnsVoid) {
+                        result = null;
+                    } else {
+                        operators.checkType(result, function.returnType, frame.callSite);
+                    }
+                    if (frame.memo != null) {
+                        frame.memo.put(frame.memoKey, result);
+                    }
+
+                    // Discard the callee's locals and resume the caller
+                    Arrays.fill(stack, frame.base, sp, null);
+                    sp = frame.base;
+                    frameCount--;
+                    if (frameCount == exitDepth) {
+                        return result;
+                    }
+                    push(result);
+                    frame = frames[frameCount - 1];
+                    code = frame.function.code;
+                    base = frame.base;
+                    ip = frame.ip;
+                }
+                case OpCode.MISSING_RETURN ->
+                        throw source.error("Missing return statement in function '" + frame.function.name + "'", frame.callSite);
+
+                case OpCode.PRINT -> {
+                    int count = code[ip++];
+                    boolean newline = code[ip++] != 0;
+                    for (Object argument : popArguments(count)) {
+                        System.out.print(operators.stringify(argument));
+                    }
+                    if (newline) {
+                        System.out.println();
+                    }
+                }
+                case OpCode.HALT -> {
+                    return null;
+                }
+                default -> throw source.error("Unknown opcode: " + opCode, at);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github._3xhaust.lexer;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.token.Token;
+import io.github._3xhaust.token.TokenStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexerTest {
+    // Pieces of source that are easy to split in the wrong place: line breaks inside literals and comments,
+    // CRLF line endings, variables in strings, and an 'else' whose 'if' is on the next line
+    private static final String[] SNIPPETS = {
+            "x: number = 1\n",
+            "y: number = x + 2 * (3 - 4)\r\n",
+            "name: string = \"a ${x} b\"\n",
+            "s: string = \"line\\n${name}\\\"\"\r\n",
+            "c: char = '}'\n",
+            "if (x > 1) {\n    print(x)\n} else\nif (x < 0) {\n    print(0)\n}\n",
+            "if (x == 1) {\r\n} else {\r\n    x += 1\r\n}\r\n",
+            "// a comment with \" and { and ${x}\n",
+            "/* a comment\nover \"lines\" {\n*/ x = 2\n",
+            "/* crlf\r\ncomment */\r\n",
+            "for (i: number in 0..10..2) { print(\"${i}\") }\n",
+            "arr: number[] = [1, 2, 3]\narr[0] = arr[1] << 2 & 7\n",
+            "\n",
+            "\r\n",
+    };
+
+    @Test
+    void parallelScanMatchesSequentialScan() throws ParseException {
+        String input = generate(new Random(1), 2 * Lexer.PARALLEL_CHUNK_SIZE + 1000);
+        assertSameTokens(new Lexer(input).scan(), new Lexer(input).scanParallel());
+    }
+
+    @Test
+    void smallChunksMatchSequentialScan() throws ParseException {
+        // Small chunks put split points next to every kind of snippet
+        for (long seed = 1; seed <= 20; seed++) {
+            String input = generate(new Random(seed), 20_000);
+            for (int chunkSize : new int[]{1, 16, 100}) {
+                assertSameTokens(new Lexer(input).scan(), new Lexer(input).scanParallel(chunkSize));
+            }
+        }
+    }
+
+    @Test
+    void splitPointsStartLines() {
+        String input = generate(new Random(42), 200_000);
+        int[] bounds = Lexer.splitPoints(input, 1000);
+
+        assertEquals(0, bounds[0]);
+        assertEquals(input.length(), bounds[bounds.length - 1]);
+        assertTrue(bounds.length > 2, "the input is split");
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertTrue(bounds[i] > bounds[i - 1]);
+            assertEquals('\n', input.charAt(bounds[i] - 1), "split " + i + " follows a line break");
+        }
+    }
+
+    private static void assertSameTokens(TokenStream sequential, TokenStream parallel) {
+        assertEquals(describe(sequential), describe(parallel));
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.matchingBrace(i), parallel.matchingBrace(i), "brace of token " + i);
+        }
+    }
+
+    private static String generate(Random random, int length) {
+        StringBuilder input = new StringBuilder();
+        while (input.length() < length) {
+            input.append(SNIPPETS[random.nextInt(SNIPPETS.length)]);
+        }
+        return input.toString();
+    }
+
+    private static List<String> describe(TokenStream tokens) {
+        List<String> result = new ArrayList<>();
+        for (Token token : tokens.toList()) {
+            result.add(token.getKind() + " " + token.getValue() + " " + token.getLine() + ":" + token.getColumn());
+        }
+        return result;
+    }
+}
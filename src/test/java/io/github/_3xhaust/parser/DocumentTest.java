@@ -0,0 +1,71 @@
+package io.github._3xhaust.parser;
+
+import io.github._3xhaust.exception.ParseException;
+import io.github._3xhaust.runtime.NumericMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentTest {
+    private static final String PROGRAM = """
+            arr: number[] = [5, 2, 3, 4, 1]
+            name: string = "ezy ${arr}"
+            // sorts the array
+            func sort(arr: number[]): void {
+                n: number = arr.length()
+                for (i: number in 0 .. n - 2) {
+                    for (j: number in 0 .. n - i - 2) {
+                        if (arr[j] >= arr[j + 1]) {
+                            temp: number = arr[j]
+                            arr[j] = arr[j + 1]
+                            arr[j + 1] = temp
+                        } else
+                        if (j == 0) {
+                            print("first")
+                        }
+                    }
+                }
+            }
+            /* a block
+               comment */
+            sort(arr)
+            while (arr[0] < 3) { arr[0] += 1 }
+            """;
+
+    // Replacements that open and close braces, literals and comments, or join and split statements
+    private static final String[] REPLACEMENTS = {
+            "", "", "x", "{", "}", "(", ")", "\"", "'a'", "\n", "\r\n", " ", "else", "if (x) {",
+            "/*", "*/", "//", "${", "x: number = 1\n", "print(1)\n", "func f(): void {\n}\n", "memo ", "..",
+    };
+
+    @Test
+    void editsAgreeWithAFreshParse() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            Document document = new Document("test.ezy", PROGRAM, NumericMode.EXACT);
+            for (int i = 0; i < 500; i++) {
+                String text = document.getText();
+                int offset = random.nextInt(text.length() + 1);
+                int length = Math.min(random.nextInt(8), text.length() - offset);
+                String replacement = REPLACEMENTS[random.nextInt(REPLACEMENTS.length)];
+                document.edit(offset, length, replacement);
+
+                Document fresh = new Document("test.ezy", document.getText(), NumericMode.EXACT);
+                assertEquals(describe(fresh.getDiagnostics()), describe(document.getDiagnostics()),
+                        "seed " + seed + ", edit " + i + " at " + offset + "+" + length);
+            }
+        }
+    }
+
+    private static List<String> describe(List<ParseException> diagnostics) {
+        List<String> result = new ArrayList<>();
+        for (ParseException error : diagnostics) {
+            result.add(error.getLine() + ":" + error.getColumn() + " " + error.getErrorMessage() + " | " + error.getErrorLine());
+        }
+        return result;
+    }
+}